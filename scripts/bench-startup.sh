@@ -0,0 +1,100 @@
+#!/usr/bin/env bash
+# Banc de démarrage : temps jusqu'au contexte rafraîchi (-Dspring.context.exit=onRefresh), moyenne sur RUNS
+# exécutions, pour quatre variantes : JIT, JIT + CDS, AOT Spring, AOT Spring + CDS.
+#
+# Utilisation : scripts/bench-startup.sh            (RUNS=5 par défaut)
+#               RUNS=10 MVN="mvn -o" scripts/bench-startup.sh
+# Journaux des exécutions dans $WORK/<variante>/.
+# Pic de mémoire résidente (RSS) par exécution : /usr/bin/time -v s'il est installé, sinon
+# échantillonnage de VmHWM dans /proc/<pid>/status (Linux) toutes les 10 ms.
+# Même JDK et même machine pour toutes les variantes ; comparer les variantes entre elles.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${RUNS:-5}
+MVN=${MVN:-./mvnw}
+# Hors de target/ : chaque build fait un clean
+WORK=${WORK:-${TMPDIR:-/tmp}/notification-service-bench-startup}
+APP_ARGS=(
+  --spring.cloud.config.enabled=false
+  --spring.kafka.bootstrap-servers=localhost:9092
+  --spring.kafka.consumer.group-id=bench-startup
+  --spring.kafka.topics.notification=notifications
+)
+
+# Construit le jar (avec ou sans -Paot) et l'extrait comme dans le Dockerfile
+prepare() {
+  local variant=$1 profile=$2
+  $MVN -B -q -DskipTests $profile clean package
+  rm -rf "$WORK/$variant"
+  mkdir -p "$WORK"
+  java -Djarmode=tools -jar target/notification-service-*.jar extract --destination "$WORK/$variant"
+  mv "$WORK/$variant"/notification-service-*.jar "$WORK/$variant/application.jar"
+}
+
+# Exécution d'entraînement CDS, identique à celle du Dockerfile
+train() {
+  local variant=$1 aot=$2
+  (cd "$WORK/$variant" && java -XX:ArchiveClassesAtExit=application.jsa -Dspring.context.exit=onRefresh \
+      -Dspring.aot.enabled="$aot" -jar application.jar "${APP_ARGS[@]}" > training.log 2>&1)
+}
+
+# Lance java dans $WORK/<variante> ; pic RSS de l'exécution (Ko) dans PEAK_RSS_KB
+run_java() {
+  local dir=$1 log=$2
+  shift 2
+  PEAK_RSS_KB=0
+  if [[ -x /usr/bin/time ]]; then
+    (cd "$dir" && /usr/bin/time -v -o "$log.time" java "$@" > "$log" 2>&1)
+    PEAK_RSS_KB=$(awk -F': ' '/Maximum resident set size/ {print $2}' "$dir/$log.time")
+    return
+  fi
+  (cd "$dir" && exec java "$@" > "$log" 2>&1) &
+  local pid=$! hwm
+  # VmHWM est le pic du processus : la dernière valeur lue avant la sortie suffit
+  while [[ -r /proc/$pid/status ]]; do
+    hwm=$(awk '/^VmHWM:/ {print $2}' "/proc/$pid/status" 2>/dev/null || true)
+    if [[ -n $hwm ]] && ((hwm > PEAK_RSS_KB)); then
+      PEAK_RSS_KB=$hwm
+    fi
+    sleep 0.01
+  done
+  wait "$pid"
+}
+
+measure() {
+  local label=$1 variant=$2 aot=$3 cds=$4
+  local total=0 min=0 rssTotal=0 rssMax=0
+  for ((i = 1; i <= RUNS; i++)); do
+    local opts=(-Dspring.context.exit=onRefresh -Dspring.aot.enabled="$aot")
+    if [[ $cds == true ]]; then
+      opts+=(-XX:SharedArchiveFile=application.jsa)
+    fi
+    local start end elapsed
+    start=$(date +%s%N)
+    run_java "$WORK/$variant" "run-$label-$i.log" "${opts[@]}" -jar application.jar "${APP_ARGS[@]}"
+    end=$(date +%s%N)
+    elapsed=$(((end - start) / 1000000))
+    total=$((total + elapsed))
+    if ((min == 0 || elapsed < min)); then
+      min=$elapsed
+    fi
+    rssTotal=$((rssTotal + PEAK_RSS_KB))
+    if ((PEAK_RSS_KB > rssMax)); then
+      rssMax=$PEAK_RSS_KB
+    fi
+  done
+  printf '%-10s runs=%d meanMs=%d minMs=%d meanPeakRssMb=%d maxPeakRssMb=%d\n' "$label" "$RUNS" \
+    $((total / RUNS)) "$min" $((rssTotal / RUNS / 1024)) $((rssMax / 1024))
+}
+
+prepare jit ""
+train jit false
+prepare aot "-Paot"
+train aot true
+
+echo "Startup to context refresh ($(java -version 2>&1 | head -1))"
+measure jit jit false false
+measure jit+cds jit false true
+measure aot aot true false
+measure aot+cds aot true true
@@ -1,11 +1,14 @@
 package ma.fstt.notificationservice;
 
+import ma.fstt.notificationservice.config.NotificationRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableScheduling
+@ImportRuntimeHints(NotificationRuntimeHints.class)
 public class NotificationServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,102 @@
+package ma.fstt.notificationservice.channels;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.utils.TokenBucket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Socle commun des canaux : découpage en lots, limitation de débit par fournisseur,
+ * plafond de concurrence et métriques (latence et débit par canal).
+ *
+ * Métriques :
+ * - notification.channel.send (observation par lot, tag channel : timer + span enfant de la livraison)
+ * - notification.channel.messages (compteur, tags channel / outcome)
+ */
+@Slf4j
+public abstract class AbstractChannelSender implements ChannelSender {
+
+    private final int batchSize;
+    private final TokenBucket rateLimiter;
+    private final Semaphore concurrency;
+    private final Channel channel;
+    private final ObservationRegistry observationRegistry;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    protected AbstractChannelSender(Channel channel, MeterRegistry meterRegistry,
+                                    ObservationRegistry observationRegistry,
+                                    int batchSize, double ratePerSecond, int maxConcurrency) {
+        this.batchSize = batchSize;
+        this.rateLimiter = new TokenBucket(ratePerSecond, Math.max(batchSize, (int) ratePerSecond));
+        this.concurrency = new Semaphore(maxConcurrency);
+        this.channel = channel;
+        this.observationRegistry = observationRegistry;
+        this.sentCounter = Counter.builder("notification.channel.messages")
+                .tag("channel", channel.name()).tag("outcome", "sent")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("notification.channel.messages")
+                .tag("channel", channel.name()).tag("outcome", "failed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public SendResult send(List<NotificationDTO> messages) {
+        List<NotificationDTO> failed = new ArrayList<>();
+        List<NotificationDTO> rejected = new ArrayList<>();
+
+        for (int from = 0; from < messages.size(); from += batchSize) {
+            List<NotificationDTO> batch = messages.subList(from, Math.min(from + batchSize, messages.size()));
+            SendResult result = sendBatch(batch);
+            failed.addAll(result.failed());
+            rejected.addAll(result.rejected());
+        }
+
+        sentCounter.increment(messages.size() - failed.size() - rejected.size());
+        failedCounter.increment(failed.size() + rejected.size());
+        return new SendResult(failed, rejected);
+    }
+
+    private SendResult sendBatch(List<NotificationDTO> batch) {
+        rateLimiter.acquire(batch.size());
+        try {
+            concurrency.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return SendResult.failed(batch);
+        }
+        try {
+            Observation observation = Observation.createNotStarted("notification.channel.send", observationRegistry)
+                    .lowCardinalityKeyValue("channel", channel.name())
+                    .highCardinalityKeyValue("batch.size", String.valueOf(batch.size()));
+            return observation.observe(() -> {
+                try {
+                    return doSend(batch);
+                } catch (Exception e) {
+                    log.error("Channel batch send failed: channel={}, size={}", getChannel(), batch.size(), e);
+                    observation.error(e);
+                    return SendResult.failed(batch);
+                }
+            });
+        } finally {
+            concurrency.release();
+        }
+    }
+
+    /**
+     * Envoi effectif d'un lot (au plus batchSize messages).
+     *
+     * Une exception met tout le lot en échec temporaire.
+     *
+     * @return les messages en échec temporaire et ceux rejetés définitivement
+     */
+    protected abstract SendResult doSend(List<NotificationDTO> batch) throws Exception;
+}
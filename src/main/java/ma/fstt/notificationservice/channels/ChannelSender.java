@@ -0,0 +1,25 @@
+package ma.fstt.notificationservice.channels;
+
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.enums.Channel;
+
+import java.util.List;
+
+/**
+ * SPI d'envoi d'un canal de notification (PUSH, EMAIL, SMS).
+ *
+ * Les implémentations reçoivent des lots de messages déjà rendus et renvoient
+ * les messages qui n'ont pas pu être délivrés, en distinguant les échecs temporaires
+ * (à relancer) des rejets définitifs.
+ */
+public interface ChannelSender {
+
+    Channel getChannel();
+
+    /**
+     * Envoie un lot de messages.
+     *
+     * @return les messages en échec temporaire et ceux rejetés définitivement
+     */
+    SendResult send(List<NotificationDTO> messages);
+}
@@ -0,0 +1,117 @@
+package ma.fstt.notificationservice.channels;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.entities.UserContact;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.repositories.UserContactRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Canal EMAIL (SMTP).
+ *
+ * Un lot est envoyé via JavaMailSender.send(MimeMessage...) : une seule session SMTP
+ * (connexion + authentification) pour tous les destinataires du lot.
+ * Inactif tant que spring.mail.host n'est pas configuré : les messages sont alors rejetés définitivement,
+ * comme ceux d'un utilisateur sans adresse ou sans texte (pas de relance par l'outbox).
+ */
+@Component
+@Slf4j
+public class EmailChannelSender extends AbstractChannelSender {
+
+    private final ObjectProvider<JavaMailSender> mailSenderProvider;
+    private final UserContactRepository userContactRepository;
+
+    @Value("${notification.email.from:no-reply@estate-rental.local}")
+    private String from;
+
+    public EmailChannelSender(
+            ObjectProvider<JavaMailSender> mailSenderProvider,
+            UserContactRepository userContactRepository,
+            MeterRegistry meterRegistry,
+            ObservationRegistry observationRegistry,
+            @Value("${notification.email.batch-size:50}") int batchSize,
+            @Value("${notification.email.rate-per-second:20}") double ratePerSecond,
+            @Value("${notification.email.max-concurrency:4}") int maxConcurrency) {
+        super(Channel.EMAIL, meterRegistry, observationRegistry, batchSize, ratePerSecond, maxConcurrency);
+        this.mailSenderProvider = mailSenderProvider;
+        this.userContactRepository = userContactRepository;
+    }
+
+    @Override
+    public Channel getChannel() {
+        return Channel.EMAIL;
+    }
+
+    @Override
+    protected SendResult doSend(List<NotificationDTO> batch) throws Exception {
+        JavaMailSender mailSender = mailSenderProvider.getIfAvailable();
+        if (mailSender == null) {
+            log.warn("EMAIL channel not configured (spring.mail.host), {} messages rejected", batch.size());
+            return SendResult.rejected(batch);
+        }
+
+        Map<Long, UserContact> contacts = userContactRepository.findAllById(
+                        batch.stream().map(NotificationDTO::getUserId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(UserContact::getUserId, Function.identity()));
+
+        List<NotificationDTO> failed = new ArrayList<>();
+        List<NotificationDTO> rejected = new ArrayList<>();
+        List<NotificationDTO> sendable = new ArrayList<>();
+        List<MimeMessage> mimeMessages = new ArrayList<>();
+
+        for (NotificationDTO message : batch) {
+            UserContact contact = contacts.get(message.getUserId());
+            if (contact == null || contact.getEmail() == null) {
+                log.warn("No email address for userId={}", message.getUserId());
+                rejected.add(message);
+                continue;
+            }
+            if (message.getMessage() == null) {
+                log.warn("Email without text rejected: userId={}, id={}", message.getUserId(), message.getId());
+                rejected.add(message);
+                continue;
+            }
+            MimeMessage mime = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(mime, StandardCharsets.UTF_8.name());
+            helper.setFrom(from);
+            helper.setTo(contact.getEmail());
+            helper.setSubject(message.getTitle() != null ? message.getTitle() : "");
+            helper.setText(message.getMessage());
+            mimeMessages.add(mime);
+            sendable.add(message);
+        }
+
+        if (mimeMessages.isEmpty()) {
+            return SendResult.rejected(rejected);
+        }
+
+        try {
+            mailSender.send(mimeMessages.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            // Les messages en échec sont indexés par leur MimeMessage d'origine
+            Set<Object> failedMessages = e.getFailedMessages().keySet();
+            for (int i = 0; i < mimeMessages.size(); i++) {
+                if (failedMessages.contains(mimeMessages.get(i))) {
+                    failed.add(sendable.get(i));
+                }
+            }
+            log.error("SMTP batch partially failed: failed={}, batch={}", failedMessages.size(), batch.size(), e);
+        }
+        return new SendResult(failed, rejected);
+    }
+}
@@ -0,0 +1,53 @@
+package ma.fstt.notificationservice.channels;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.exceptions.WebSocketException;
+import ma.fstt.notificationservice.services.PushNotificationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Canal PUSH : délégation au PushNotificationService (WebSocket / STOMP).
+ */
+@Component
+@Slf4j
+public class PushChannelSender extends AbstractChannelSender {
+
+    private final PushNotificationService pushNotificationService;
+
+    public PushChannelSender(
+            PushNotificationService pushNotificationService,
+            MeterRegistry meterRegistry,
+            ObservationRegistry observationRegistry,
+            @Value("${notification.push.batch-size:500}") int batchSize,
+            @Value("${notification.push.rate-per-second:10000}") double ratePerSecond,
+            @Value("${notification.push.max-concurrency:16}") int maxConcurrency) {
+        super(Channel.PUSH, meterRegistry, observationRegistry, batchSize, ratePerSecond, maxConcurrency);
+        this.pushNotificationService = pushNotificationService;
+    }
+
+    @Override
+    public Channel getChannel() {
+        return Channel.PUSH;
+    }
+
+    @Override
+    protected SendResult doSend(List<NotificationDTO> batch) {
+        List<NotificationDTO> failed = new ArrayList<>();
+        for (NotificationDTO message : batch) {
+            try {
+                pushNotificationService.sendPushNotification(message);
+            } catch (WebSocketException e) {
+                failed.add(message);
+            }
+        }
+        return SendResult.failed(failed);
+    }
+}
@@ -0,0 +1,41 @@
+package ma.fstt.notificationservice.channels;
+
+import ma.fstt.notificationservice.dto.NotificationDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Résultat de l'envoi d'un lot.
+ *
+ * @param failed   échecs temporaires (passerelle indisponible, erreur SMTP...) : relancés par l'outbox
+ * @param rejected échecs définitifs (canal non configuré, contact ou texte manquant) : marqués FAILED
+ *                 sans nouvelle tentative
+ */
+public record SendResult(List<NotificationDTO> failed, List<NotificationDTO> rejected) {
+
+    public static SendResult sent() {
+        return new SendResult(List.of(), List.of());
+    }
+
+    public static SendResult failed(List<NotificationDTO> failed) {
+        return new SendResult(failed, List.of());
+    }
+
+    public static SendResult rejected(List<NotificationDTO> rejected) {
+        return new SendResult(List.of(), rejected);
+    }
+
+    public int failureCount() {
+        return failed.size() + rejected.size();
+    }
+
+    /**
+     * Échecs temporaires et définitifs confondus.
+     */
+    public List<NotificationDTO> unsent() {
+        List<NotificationDTO> unsent = new ArrayList<>(failed);
+        unsent.addAll(rejected);
+        return unsent;
+    }
+}
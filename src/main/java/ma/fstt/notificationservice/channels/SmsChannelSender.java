@@ -0,0 +1,122 @@
+package ma.fstt.notificationservice.channels;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.entities.UserContact;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.repositories.UserContactRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Canal SMS via passerelle HTTP.
+ *
+ * Un lot donne lieu à un seul appel à l'API d'envoi groupé :
+ * POST {gateway-url} {"messages":[{"to":"+212...","text":"..."}]}
+ * Le client HTTP est partagé (connexions persistantes réutilisées).
+ * Inactif tant que notification.sms.gateway-url n'est pas configuré : les messages sont alors rejetés
+ * définitivement, comme ceux d'un utilisateur sans numéro ou sans texte (pas de relance par l'outbox).
+ */
+@Component
+@Slf4j
+public class SmsChannelSender extends AbstractChannelSender {
+
+    private final UserContactRepository userContactRepository;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    @Value("${notification.sms.gateway-url:}")
+    private String gatewayUrl;
+
+    @Value("${notification.sms.api-key:}")
+    private String apiKey;
+
+    @Value("${notification.sms.timeout-ms:5000}")
+    private long timeoutMs;
+
+    public SmsChannelSender(
+            UserContactRepository userContactRepository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            ObservationRegistry observationRegistry,
+            @Value("${notification.sms.batch-size:100}") int batchSize,
+            @Value("${notification.sms.rate-per-second:50}") double ratePerSecond,
+            @Value("${notification.sms.max-concurrency:4}") int maxConcurrency) {
+        super(Channel.SMS, meterRegistry, observationRegistry, batchSize, ratePerSecond, maxConcurrency);
+        this.userContactRepository = userContactRepository;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    @Override
+    public Channel getChannel() {
+        return Channel.SMS;
+    }
+
+    @Override
+    protected SendResult doSend(List<NotificationDTO> batch) throws Exception {
+        if (gatewayUrl == null || gatewayUrl.isBlank()) {
+            log.warn("SMS channel not configured (notification.sms.gateway-url), {} messages rejected", batch.size());
+            return SendResult.rejected(batch);
+        }
+
+        Map<Long, UserContact> contacts = userContactRepository.findAllById(
+                        batch.stream().map(NotificationDTO::getUserId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(UserContact::getUserId, Function.identity()));
+
+        List<NotificationDTO> rejected = new ArrayList<>();
+        List<Map<String, String>> payload = new ArrayList<>();
+        List<NotificationDTO> sendable = new ArrayList<>();
+
+        for (NotificationDTO message : batch) {
+            UserContact contact = contacts.get(message.getUserId());
+            if (contact == null || contact.getPhoneNumber() == null) {
+                log.warn("No phone number for userId={}", message.getUserId());
+                rejected.add(message);
+                continue;
+            }
+            if (message.getMessage() == null) {
+                log.warn("SMS without text rejected: userId={}, id={}", message.getUserId(), message.getId());
+                rejected.add(message);
+                continue;
+            }
+            payload.add(Map.of("to", contact.getPhoneNumber(), "text", message.getMessage()));
+            sendable.add(message);
+        }
+
+        if (payload.isEmpty()) {
+            return SendResult.rejected(rejected);
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(gatewayUrl))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(
+                        objectMapper.writeValueAsBytes(Map.of("messages", payload))));
+        if (apiKey != null && !apiKey.isBlank()) {
+            request.header("Authorization", "Bearer " + apiKey);
+        }
+
+        HttpResponse<Void> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            log.error("SMS gateway rejected batch: status={}, batch={}", response.statusCode(), payload.size());
+            return new SendResult(sendable, rejected);
+        }
+        return SendResult.rejected(rejected);
+    }
+}
@@ -1,13 +1,17 @@
 package ma.fstt.notificationservice.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import ma.fstt.notificationservice.dto.NotificationEvent;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
@@ -30,6 +34,22 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    // Taille des fetchs : un record de diffusion volumineux doit tenir dans max.partition.fetch.bytes
+    @Value("${spring.kafka.consumer.max-partition-fetch-bytes:5242880}")
+    private int maxPartitionFetchBytes;
+
+    @Value("${spring.kafka.consumer.fetch-max-bytes:52428800}")
+    private int fetchMaxBytes;
+
+    @Value("${spring.kafka.consumer.fetch-min-bytes:1}")
+    private int fetchMinBytes;
+
+    @Value("${spring.kafka.consumer.fetch-max-wait-ms:500}")
+    private int fetchMaxWaitMs;
+
+    @Value("${spring.kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
     @Bean
     public ConsumerFactory<String, NotificationEvent> consumerFactory() {
         Map<String, Object> config = new HashMap<>();
@@ -42,17 +62,67 @@ public class KafkaConfig {
         config.put(JsonDeserializer.TRUSTED_PACKAGES, "ma.fstt.notificationservice.dto");
         config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // Les topics compressés (lz4, zstd...) sont décompressés par le client, sans réglage côté consumer
+        config.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, maxPartitionFetchBytes);
+        config.put(ConsumerConfig.FETCH_MAX_BYTES_CONFIG, fetchMaxBytes);
+        config.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, fetchMinBytes);
+        config.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, fetchMaxWaitMs);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
 
         return new DefaultKafkaConsumerFactory<>(config);
     }
 
+    @Value("${notification.priority.listener-concurrency:2}")
+    private int priorityConcurrency;
+
+    // Producer (DLQ / rejeu) : regroupement et compression des envois
+    @Value("${spring.kafka.producer.linger-ms:20}")
+    private int producerLingerMs;
+
+    @Value("${spring.kafka.producer.batch-size:131072}")
+    private int producerBatchSize;
+
+    // none, gzip, snappy, lz4, zstd
+    @Value("${spring.kafka.producer.compression-type:lz4}")
+    private String producerCompressionType;
+
+    @Value("${spring.kafka.producer.buffer-memory:67108864}")
+    private long producerBufferMemory;
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    public KafkaConfig(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, NotificationEvent> kafkaListenerContainerFactory() {
+        return listenerContainerFactory(3);
+    }
+
+    // Container dédié à la voie prioritaire (topic séparé, threads séparés)
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, NotificationEvent> priorityKafkaListenerContainerFactory() {
+        return listenerContainerFactory(priorityConcurrency);
+    }
+
+    private ConcurrentKafkaListenerContainerFactory<String, NotificationEvent> listenerContainerFactory(int concurrency) {
         ConcurrentKafkaListenerContainerFactory<String, NotificationEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
-        factory.setConcurrency(3);
+        factory.setConcurrency(concurrency);
         factory.getContainerProperties().setAckMode(org.springframework.kafka.listener.ContainerProperties.AckMode.MANUAL);
+        // Une observation par record, contexte de trace extrait des headers
+        factory.getContainerProperties().setObservationEnabled(true);
+
+        // Profil threads virtuels : les threads de poll des consumers sont virtuels
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor listenerExecutor = new SimpleAsyncTaskExecutor("kafka-listener-");
+            listenerExecutor.setVirtualThreads(true);
+            factory.getContainerProperties().setListenerTaskExecutor(listenerExecutor);
+        }
 
         // Configuration du gestionnaire d'erreurs avec backoff
         DefaultErrorHandler errorHandler = new DefaultErrorHandler(
@@ -73,12 +143,22 @@ public class KafkaConfig {
         config.put(ProducerConfig.ACKS_CONFIG, "all");
         config.put(ProducerConfig.RETRIES_CONFIG, 3);
         config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, producerLingerMs);
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, producerBatchSize);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, producerCompressionType);
+        config.put(ProducerConfig.BUFFER_MEMORY_CONFIG, producerBufferMemory);
 
-        return new DefaultKafkaProducerFactory<>(config);
+        DefaultKafkaProducerFactory<String, NotificationEvent> factory = new DefaultKafkaProducerFactory<>(config);
+        // Métriques kafka.producer.* (record-send-rate, batch-size-avg, compression-rate-avg...) pour comparer les réglages
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
 
     @Bean
     public KafkaTemplate<String, NotificationEvent> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+        KafkaTemplate<String, NotificationEvent> template = new KafkaTemplate<>(producerFactory());
+        // Propagation du contexte de trace dans les headers des messages produits
+        template.setObservationEnabled(true);
+        return template;
     }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package ma.fstt.notificationservice.config;
+
+import ma.fstt.notificationservice.dto.ErrorResponse;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.dto.NotificationEvent;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Hints AOT / image native pour les types sérialisés hors des signatures de contrôleurs.
+ *
+ * - NotificationEvent : désérialisé par le JsonDeserializer Kafka et par le retraitement DLQ
+ * - NotificationDTO : envoyé par STOMP / SSE et archivé en JSON
+ * - notification-templates.properties : chargé depuis le classpath au démarrage
+ */
+public class NotificationRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+        bindingRegistrar.registerReflectionHints(hints.reflection(),
+                NotificationEvent.class, NotificationDTO.class, ErrorResponse.class);
+
+        hints.resources().registerPattern("notification-templates.properties");
+    }
+}
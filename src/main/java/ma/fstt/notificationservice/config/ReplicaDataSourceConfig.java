@@ -0,0 +1,77 @@
+package ma.fstt.notificationservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routage des lectures vers les réplicas (notification.datasource.replicas.enabled=true).
+ *
+ * Le proxy n'obtient la connexion réelle qu'à la première requête, une fois la transaction démarrée :
+ * une connexion marquée read-only (@Transactional(readOnly = true)) est alors prise sur
+ * ReplicaRoutingDataSource, toutes les autres sur le primaire.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "notification.datasource.replicas", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                             ReplicaProperties replicaProperties,
+                                                             Environment environment,
+                                                             MeterRegistry meterRegistry) {
+        HikariDataSource primary = pool("primary", dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword(),
+                dataSourceProperties, environment, meterRegistry);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        List<ReplicaProperties.Node> nodes = replicaProperties.getNodes();
+        for (int i = 0; i < nodes.size(); i++) {
+            ReplicaProperties.Node node = nodes.get(i);
+            HikariDataSource replica = pool("replica-" + i, node.getUrl(),
+                    node.getUsername() != null ? node.getUsername() : dataSourceProperties.determineUsername(),
+                    node.getPassword() != null ? node.getPassword() : dataSourceProperties.determinePassword(),
+                    dataSourceProperties, environment, meterRegistry);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReplicaRoutingDataSource(primary, replicas, replicaProperties, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        LazyConnectionDataSourceProxy proxy =
+                new LazyConnectionDataSourceProxy(replicaRoutingDataSource.getPrimary());
+        proxy.setReadOnlyDataSource(replicaRoutingDataSource);
+        return proxy;
+    }
+
+    private static HikariDataSource pool(String name, String url, String username, String password,
+                                         DataSourceProperties dataSourceProperties,
+                                         Environment environment, MeterRegistry meterRegistry) {
+        HikariDataSource pool = new HikariDataSource();
+        // Réglages communs spring.datasource.hikari.* appliqués à chaque pool
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setDriverClassName(dataSourceProperties.determineDriverClassName());
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return pool;
+    }
+}
@@ -0,0 +1,50 @@
+package ma.fstt.notificationservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Réplicas de lecture pour les transactions @Transactional(readOnly = true).
+ *
+ * Exemple :
+ * notification.datasource.replicas.enabled=true
+ * notification.datasource.replicas.nodes[0].url=jdbc:mysql://replica-1:3306/notifications
+ * notification.datasource.replicas.max-lag-seconds=5
+ * notification.datasource.replicas.lag-query=SHOW REPLICA STATUS
+ * notification.datasource.replicas.lag-column=Seconds_Behind_Source
+ */
+@Component
+@ConfigurationProperties(prefix = "notification.datasource.replicas")
+@Getter
+@Setter
+public class ReplicaProperties {
+
+    private boolean enabled = false;
+
+    private List<Node> nodes = new ArrayList<>();
+
+    // Budget de fraîcheur : au-delà, le réplica est écarté et les lectures repassent sur le primaire
+    private long maxLagSeconds = 5;
+
+    // Requête de mesure du retard (vide : simple vérification de connectivité)
+    private String lagQuery = "";
+
+    // Colonne lue dans le résultat de lag-query (vide : première colonne)
+    private String lagColumn = "";
+
+    private long checkIntervalMs = 5000;
+
+    @Getter
+    @Setter
+    public static class Node {
+        private String url;
+        // Identifiants du primaire si absents
+        private String username;
+        private String password;
+    }
+}
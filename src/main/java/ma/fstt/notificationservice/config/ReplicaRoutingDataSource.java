@@ -0,0 +1,197 @@
+package ma.fstt.notificationservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Source des connexions en lecture seule : répartition tournante sur les réplicas
+ * dont le retard respecte le budget de fraîcheur, repli sur le primaire sinon.
+ *
+ * - Le retard de chaque réplica est mesuré périodiquement (lag-query), un réplica injoignable est écarté
+ * - Une connexion impossible à obtenir sur un réplica bascule immédiatement sur le primaire
+ * - readFromPrimary() force le primaire pour les lectures qui doivent voir les dernières écritures
+ *   (lecture de ses propres écritures), sans quitter la transaction read-only
+ *
+ * Métriques : notification.datasource.replica.lag (gauge, tag replica),
+ * notification.datasource.reads (compteur, tag target = replica / primary-fallback / primary-pinned).
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final String PRIMARY = "primary";
+    private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+
+    private final HikariDataSource primary;
+    private final List<HikariDataSource> replicas;
+    private final ReplicaProperties properties;
+    // Remplacés en bloc à chaque vérification
+    private volatile double[] lagSeconds;
+    private volatile boolean[] healthy;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter replicaReads;
+    private final Counter fallbackReads;
+    private final Counter pinnedReads;
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                    ReplicaProperties properties, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.properties = properties;
+        this.lagSeconds = new double[replicas.size()];
+        this.healthy = new boolean[replicas.size()];
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+            int index = i;
+            Gauge.builder("notification.datasource.replica.lag", this, ds -> ds.lagSeconds[index])
+                    .tag("replica", replicas.get(i).getPoolName())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        this.replicaReads = Counter.builder("notification.datasource.reads")
+                .tag("target", "replica")
+                .register(meterRegistry);
+        this.fallbackReads = Counter.builder("notification.datasource.reads")
+                .tag("target", "primary-fallback")
+                .register(meterRegistry);
+        this.pinnedReads = Counter.builder("notification.datasource.reads")
+                .tag("target", "primary-pinned")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Exécute read en obtenant la connexion (lecture seule comprise) sur le primaire.
+     * La connexion étant obtenue à la première requête, read doit contenir ces requêtes.
+     */
+    public static <T> T readFromPrimary(Supplier<T> read) {
+        Boolean previous = PRIMARY_READS.get();
+        PRIMARY_READS.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_READS.remove();
+            } else {
+                PRIMARY_READS.set(previous);
+            }
+        }
+    }
+
+    public static boolean isReadingFromPrimary() {
+        return Boolean.TRUE.equals(PRIMARY_READS.get());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        checkReplicas();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (isReadingFromPrimary()) {
+            pinnedReads.increment();
+            return PRIMARY;
+        }
+        boolean[] active = healthy;
+        int size = active.length;
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            int candidate = (start + i) % size;
+            if (active[candidate]) {
+                replicaReads.increment();
+                return candidate;
+            }
+        }
+        fallbackReads.increment();
+        return PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        try {
+            return super.getConnection();
+        } catch (SQLException e) {
+            log.warn("Replica connection failed, reading from primary: {}", e.getMessage());
+            fallbackReads.increment();
+            return primary.getConnection();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.datasource.replicas.check-interval-ms:5000}")
+    public void checkReplicas() {
+        boolean[] previous = healthy;
+        double[] measuredLag = new double[replicas.size()];
+        boolean[] active = new boolean[replicas.size()];
+
+        for (int i = 0; i < replicas.size(); i++) {
+            HikariDataSource replica = replicas.get(i);
+            try (Connection connection = replica.getConnection()) {
+                measuredLag[i] = measureLag(connection);
+                active[i] = measuredLag[i] <= properties.getMaxLagSeconds();
+                if (previous[i] != active[i]) {
+                    log.info("Replica routing changed: replica={}, lagSeconds={}, active={}",
+                            replica.getPoolName(), measuredLag[i], active[i]);
+                }
+            } catch (SQLException e) {
+                if (previous[i]) {
+                    log.warn("Replica unreachable, excluded from reads: replica={}", replica.getPoolName(), e);
+                }
+                measuredLag[i] = Double.NaN;
+            }
+        }
+
+        lagSeconds = measuredLag;
+        healthy = active;
+    }
+
+    public DataSource getPrimary() {
+        return primary;
+    }
+
+    /**
+     * Retard du réplica en secondes ; +∞ si la réplication est arrêtée (valeur NULL).
+     */
+    private double measureLag(Connection connection) throws SQLException {
+        if (properties.getLagQuery().isBlank()) {
+            return connection.isValid(2) ? 0 : Double.POSITIVE_INFINITY;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(properties.getLagQuery())) {
+            if (!resultSet.next()) {
+                return Double.POSITIVE_INFINITY;
+            }
+            long lag = properties.getLagColumn().isBlank()
+                    ? resultSet.getLong(1)
+                    : resultSet.getLong(properties.getLagColumn());
+            return resultSet.wasNull() ? Double.POSITIVE_INFINITY : lag;
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+}
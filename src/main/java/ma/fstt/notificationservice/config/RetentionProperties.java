@@ -0,0 +1,39 @@
+package ma.fstt.notificationservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import ma.fstt.notificationservice.enums.EventType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Paramètres de rétention des notifications lues.
+ *
+ * Exemple :
+ * notification.retention.default-days=90
+ * notification.retention.days.PAYMENT_RECEIVED=365
+ */
+@Component
+@ConfigurationProperties(prefix = "notification.retention")
+@Getter
+@Setter
+public class RetentionProperties {
+
+    private boolean enabled = true;
+
+    // Âge (en jours) au-delà duquel une notification lue est archivée
+    private int defaultDays = 90;
+
+    // Surcharge par type d'événement
+    private Map<EventType, Integer> days = new EnumMap<>(EventType.class);
+
+    // Nombre de lignes déplacées par transaction
+    private int batchSize = 500;
+
+    public int daysFor(EventType eventType) {
+        return days.getOrDefault(eventType, defaultDays);
+    }
+}
@@ -0,0 +1,51 @@
+package ma.fstt.notificationservice.config;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import brave.sampler.RateLimitingSampler;
+import brave.sampler.Sampler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Traçage (Micrometer Observation + Brave).
+ *
+ * - Échantillonnage probabiliste par défaut (management.tracing.sampling.probability)
+ * - Mode à débit plafonné (notification.tracing.traces-per-second) : coût borné quel que soit le trafic
+ * - Export local des spans dans les logs (DEBUG), en attendant un collecteur :
+ *   désactivé par défaut, notification.tracing.log-exporter.enabled=true pour l'activer
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "notification.tracing.traces-per-second")
+    public Sampler rateLimitingSampler(@Value("${notification.tracing.traces-per-second}") int tracesPerSecond) {
+        return RateLimitingSampler.create(tracesPerSecond);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "notification.tracing.log-exporter.enabled", havingValue = "true")
+    public SpanHandler loggingSpanHandler() {
+        return new LoggingSpanHandler();
+    }
+
+    @Slf4j
+    static class LoggingSpanHandler extends SpanHandler {
+
+        @Override
+        public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+            if (cause == Cause.FINISHED && log.isDebugEnabled()) {
+                log.debug("Span finished: traceId={}, spanId={}, parentId={}, name={}, durationUs={}, tags={}, error={}",
+                        span.traceId(), span.id(), span.parentId(), span.name(),
+                        span.finishTimestamp() - span.startTimestamp(), span.tags(),
+                        span.error() != null ? span.error().getMessage() : null);
+            }
+            return true;
+        }
+    }
+}
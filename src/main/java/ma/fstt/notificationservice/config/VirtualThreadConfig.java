@@ -0,0 +1,27 @@
+package ma.fstt.notificationservice.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
+
+/**
+ * Profil threads virtuels (spring.threads.virtual.enabled=true, Java 21).
+ *
+ * Tomcat est pris en charge par Spring Boot ; les listeners Kafka, les canaux STOMP et les workers
+ * de livraison basculent via Threading.VIRTUAL dans leur propre configuration.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    // Nommé taskScheduler pour être préféré au messageBrokerTaskScheduler par @Scheduled (jobs DLQ, outbox, archivage)
+    @Bean
+    public SimpleAsyncTaskScheduler taskScheduler() {
+        SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+        scheduler.setThreadNamePrefix("scheduling-");
+        scheduler.setVirtualThreads(true);
+        return scheduler;
+    }
+}
@@ -0,0 +1,33 @@
+package ma.fstt.notificationservice.config;
+
+import ma.fstt.notificationservice.websocket.SlowConsumerRegistry;
+import ma.fstt.notificationservice.websocket.SlowConsumerSubProtocolWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+
+/**
+ * Équivalent de @EnableWebSocketMessageBroker (les WebSocketMessageBrokerConfigurer, dont
+ * WebSocketConfig, restent appliqués), avec le SubProtocolWebSocketHandler propre aux clients lents.
+ */
+@Configuration(proxyBeanMethods = false)
+public class WebSocketBrokerConfiguration extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    private SlowConsumerRegistry slowConsumerRegistry;
+
+    @Autowired
+    public void setSlowConsumerRegistry(SlowConsumerRegistry slowConsumerRegistry) {
+        this.slowConsumerRegistry = slowConsumerRegistry;
+    }
+
+    @Bean
+    @Override
+    public WebSocketHandler subProtocolWebSocketHandler(
+            AbstractSubscribableChannel clientInboundChannel, AbstractSubscribableChannel clientOutboundChannel) {
+        return new SlowConsumerSubProtocolWebSocketHandler(clientInboundChannel, clientOutboundChannel,
+                slowConsumerRegistry);
+    }
+}
@@ -1,25 +1,123 @@
 package ma.fstt.notificationservice.config;
 
+import lombok.RequiredArgsConstructor;
+import ma.fstt.notificationservice.websocket.HandshakeRateLimitInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
-import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
-import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.socket.config.annotation.*;
 
+/**
+ * Configuration STOMP ; le broker lui-même est activé par WebSocketBrokerConfiguration.
+ */
 @Configuration
-@EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final HandshakeRateLimitInterceptor handshakeRateLimitInterceptor;
+    private final Environment environment;
+
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    // false : endpoint WebSocket natif uniquement (pas de transports de repli XHR)
+    @Value("${websocket.sockjs.enabled:true}")
+    private boolean sockJsEnabled;
+
+    @Value("${websocket.heartbeat.server-ms:10000}")
+    private long serverHeartbeatMs;
+
+    @Value("${websocket.heartbeat.client-ms:10000}")
+    private long clientHeartbeatMs;
+
+    @Value("${websocket.transport.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${websocket.transport.send-time-limit-ms:15000}")
+    private int sendTimeLimitMs;
+
+    @Value("${websocket.transport.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${websocket.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+
+    @Value("${websocket.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+
+    @Value("${websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${websocket.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+
+    @Value("${websocket.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+
+    @Value("${websocket.outbound.queue-capacity:10000}")
+    private int outboundQueueCapacity;
+
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy TaskScheduler messageBrokerTaskScheduler) {
+        this.messageBrokerTaskScheduler = messageBrokerTaskScheduler;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        // /queue : réponses adressées à une seule session (/user/queue/errors)
+        config.enableSimpleBroker("/topic", "/queue")
+                .setHeartbeatValue(new long[]{serverHeartbeatMs, clientHeartbeatMs})
+                .setTaskScheduler(messageBrokerTaskScheduler);
         config.setApplicationDestinationPrefixes("/app");
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        registry.addEndpoint("/ws-notifications")
+        StompWebSocketEndpointRegistration endpoint = registry.addEndpoint("/ws-notifications")
                 .setAllowedOriginPatterns("*")
-                .withSockJS();
+                .addInterceptors(handshakeRateLimitInterceptor);
+
+        if (sockJsEnabled) {
+            endpoint.withSockJS()
+                    .setHeartbeatTime(serverHeartbeatMs * 2);
+        }
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Limites appliquées par SlowConsumerSubProtocolWebSocketHandler au tampon de chaque session
+        registration.setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setSendTimeLimit(sendTimeLimitMs)
+                .setMessageSizeLimit(messageSizeLimit);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            registration.executor(new VirtualThreadTaskExecutor("ws-inbound-"));
+            return;
+        }
+        registration.taskExecutor()
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            registration.executor(new VirtualThreadTaskExecutor("ws-outbound-"));
+            return;
+        }
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
     }
-}
\ No newline at end of file
+}
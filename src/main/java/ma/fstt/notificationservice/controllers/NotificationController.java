@@ -1,15 +1,34 @@
 package ma.fstt.notificationservice.controllers;
 
 import lombok.RequiredArgsConstructor;
+import ma.fstt.notificationservice.dto.DeliveryHealthSnapshot;
 import ma.fstt.notificationservice.dto.NotificationDTO;
 import ma.fstt.notificationservice.entities.DeadLetterQueue;
 import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.exceptions.InvalidNotificationDataException;
 import ma.fstt.notificationservice.services.DeadLetterQueueService;
+import ma.fstt.notificationservice.services.DeliveryHealthCounters;
+import ma.fstt.notificationservice.services.DlqReplayService;
+import ma.fstt.notificationservice.services.NotificationReplayService;
 import ma.fstt.notificationservice.services.NotificationService;
+import ma.fstt.notificationservice.services.SseConnectionRegistry;
+import ma.fstt.notificationservice.services.UserFeedVersionTracker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/notifications")
@@ -18,6 +37,14 @@ public class NotificationController {
 
     private final NotificationService notificationService;
     private final DeadLetterQueueService dlqService;
+    private final NotificationReplayService replayService;
+    private final SseConnectionRegistry sseConnectionRegistry;
+    private final UserFeedVersionTracker versionTracker;
+    private final DeliveryHealthCounters healthCounters;
+    private final DlqReplayService dlqReplayService;
+
+    @Value("${notification.long-poll.max-timeout-ms:60000}")
+    private long maxLongPollTimeoutMs;
 
     @PutMapping("/{id}/read")
     public ResponseEntity<Void> markAsRead(@PathVariable Long id) {
@@ -26,15 +53,108 @@ public class NotificationController {
     }
 
     @GetMapping("/unread/count/{userId}")
-    public ResponseEntity<Long> getUnreadNotificationsCount(@PathVariable Long userId) {
+    public ResponseEntity<Long> getUnreadNotificationsCount(@PathVariable Long userId, WebRequest request) {
+        String eTag = eTag("count", userId);
+        if (request.checkNotModified(eTag)) {
+            return null; // 304 sans accès à la base
+        }
         Long count = notificationService.countUnreadByUserId(userId);
-        return ResponseEntity.ok(count);
+        return ResponseEntity.ok().eTag(eTag).body(count);
+    }
+
+    /**
+     * Long-poll du compteur de non lus : répond dès que la version change (ou immédiatement si
+     * l'ETag fourni est déjà obsolète), 304 à l'expiration du délai.
+     */
+    @GetMapping("/unread/count/{userId}/poll")
+    public DeferredResult<ResponseEntity<Long>> pollUnreadNotificationsCount(
+            @PathVariable Long userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(defaultValue = "30000") long timeoutMs) {
+        return longPoll(userId, "count", ifNoneMatch, timeoutMs, () -> unreadCountResponse(userId));
+    }
+
+    /**
+     * Long-poll du flux (même contrat que le compteur) ; avec limit, première page servie depuis le cache.
+     */
+    @GetMapping("/user/{userId}/poll")
+    public DeferredResult<ResponseEntity<List<NotificationDTO>>> pollUserNotifications(
+            @PathVariable Long userId,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(defaultValue = "30000") long timeoutMs) {
+        return longPoll(userId, feedRepresentation(limit), ifNoneMatch, timeoutMs,
+                () -> ResponseEntity.ok().eTag(eTag(feedRepresentation(limit), userId)).body(feed(userId, limit)));
+    }
+
+    private <T> DeferredResult<ResponseEntity<T>> longPoll(Long userId, String representation, String ifNoneMatch,
+                                                           long timeoutMs, Supplier<ResponseEntity<T>> response) {
+        // Délai borné : ni attente infinie (<= 0) ni requête tenue au-delà du maximum configuré
+        long timeout = timeoutMs <= 0 || timeoutMs > maxLongPollTimeoutMs ? maxLongPollTimeoutMs : timeoutMs;
+        DeferredResult<ResponseEntity<T>> result = new DeferredResult<>(
+                timeout, ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag(representation, userId)).build());
+
+        if (ifNoneMatch == null || !ifNoneMatch.equals(eTag(representation, userId))) {
+            result.setResult(response.get());
+            return result;
+        }
+
+        Runnable cancel = versionTracker.onNextChange(userId, () -> result.setResult(response.get()));
+        result.onTimeout(cancel);
+        result.onCompletion(cancel);
+        // Changement survenu entre la comparaison de l'ETag et l'inscription
+        if (!ifNoneMatch.equals(eTag(representation, userId))) {
+            cancel.run();
+            result.setResult(response.get());
+        }
+        return result;
     }
 
+    private ResponseEntity<Long> unreadCountResponse(Long userId) {
+        String eTag = eTag("count", userId);
+        return ResponseEntity.ok().eTag(eTag).body(notificationService.countUnreadByUserId(userId));
+    }
+
+    private String eTag(String representation, Long userId) {
+        return "\"" + representation + "-" + versionTracker.currentVersion(userId) + "\"";
+    }
+
+    /**
+     * Flux Server-Sent Events (clients sans SockJS/STOMP).
+     * L'en-tête Last-Event-ID permet de reprendre après la dernière notification reçue.
+     */
+    @GetMapping(path = "/stream/{userId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUserNotifications(
+            @PathVariable Long userId,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        // Le delta est calculé une fois le flux enregistré : rien n'est perdu entre les deux
+        return sseConnectionRegistry.open(userId, () -> lastEventId != null
+                ? replayService.replaySince(userId, lastEventId)
+                : Collections.<NotificationDTO>emptyList());
+    }
+
+    /**
+     * Flux d'un utilisateur ; avec limit (première page), servi depuis le cache mémoire du flux.
+     */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<NotificationDTO>> getUserNotifications(@PathVariable Long userId) {
-        List<NotificationDTO> notifications = notificationService.getNotificationsByUserId(userId);
-        return ResponseEntity.ok(notifications);
+    public ResponseEntity<List<NotificationDTO>> getUserNotifications(@PathVariable Long userId,
+                                                                      @RequestParam(required = false) Integer limit,
+                                                                      WebRequest request) {
+        String eTag = eTag(feedRepresentation(limit), userId);
+        if (request.checkNotModified(eTag)) {
+            return null; // 304 sans accès à la base
+        }
+        return ResponseEntity.ok().eTag(eTag).body(feed(userId, limit));
+    }
+
+    private List<NotificationDTO> feed(Long userId, Integer limit) {
+        return limit == null
+                ? notificationService.getNotificationsByUserId(userId)
+                : notificationService.getRecentNotifications(userId, Math.max(1, limit));
+    }
+
+    private static String feedRepresentation(Integer limit) {
+        return limit == null ? "feed" : "feed-" + limit;
     }
 
 
@@ -44,12 +164,38 @@ public class NotificationController {
         return ResponseEntity.ok(dlqService.getUnprocessedCount());
     }
 
+    /**
+     * Indicateurs DLQ / livraison en mémoire sur une fenêtre glissante (60 s, 900 s ou 3600 s).
+     */
+    @GetMapping("/health/counters")
+    public ResponseEntity<DeliveryHealthSnapshot> getHealthCounters(
+            @RequestParam(defaultValue = "60") long windowSeconds) {
+        if (windowSeconds <= 0) {
+            throw new InvalidNotificationDataException("windowSeconds must be positive: " + windowSeconds);
+        }
+        return ResponseEntity.ok(healthCounters.snapshot(Duration.ofSeconds(windowSeconds)));
+    }
+
     @GetMapping("/dlq/old")
     public ResponseEntity<List<DeadLetterQueue>> getOldDlqMessages(
             @RequestParam(defaultValue = "7") int daysOld) {
         return ResponseEntity.ok(dlqService.getOldUnprocessedMessages(daysOld));
     }
 
+    /**
+     * Republie vers Kafka les messages DLQ correspondant aux filtres (débit plafonné).
+     */
+    @PostMapping("/dlq/replay")
+    public ResponseEntity<Integer> replayDlqMessages(
+            @RequestParam(required = false) String fingerprint,
+            @RequestParam(required = false) String topic,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "10000") int limit) {
+        return ResponseEntity.ok(dlqReplayService.replay(
+                new DlqReplayService.Filter(fingerprint, topic, from, to, limit)));
+    }
+
     @PostMapping("/dlq/retry")
     public ResponseEntity<Void> retryDlqMessages() {
         dlqService.retryFailedMessages();
@@ -0,0 +1,76 @@
+package ma.fstt.notificationservice.controllers;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.dto.ErrorResponse;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.enums.ErrorCode;
+import ma.fstt.notificationservice.exceptions.InvalidNotificationDataException;
+import ma.fstt.notificationservice.services.NotificationReplayService;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reprise après reconnexion WebSocket.
+ *
+ * Après s'être abonné à /topic/notifications/{userId}, le client s'abonne à
+ * /app/notifications/{userId}/replay avec l'en-tête STOMP "last-seen-id" (ou "last-seen-at", ISO-8601).
+ * La réponse (le delta uniquement) est envoyée directement à la session qui s'abonne.
+ * Un en-tête invalide est une erreur client (400) : l'ErrorResponse est envoyée à la seule session
+ * sur /user/queue/errors.
+ */
+@Controller
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationReplayController {
+
+    private final NotificationReplayService replayService;
+
+    @SubscribeMapping("/notifications/{userId}/replay")
+    public List<NotificationDTO> replay(
+            @DestinationVariable Long userId,
+            @Header(name = "last-seen-id", required = false) Long lastSeenId,
+            @Header(name = "last-seen-at", required = false) String lastSeenAt) {
+
+        if (lastSeenId != null) {
+            return replayService.replaySince(userId, lastSeenId);
+        }
+        if (lastSeenAt != null) {
+            return replayService.replaySince(userId, parseLastSeenAt(lastSeenAt));
+        }
+        return Collections.emptyList();
+    }
+
+    @MessageExceptionHandler(InvalidNotificationDataException.class)
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public ErrorResponse handleInvalidReplayRequest(InvalidNotificationDataException ex,
+                                                    SimpMessageHeaderAccessor headers) {
+        log.warn("Invalid replay request: {}", ex.getTechnicalMessage());
+        ErrorCode errorCode = ex.getErrorCode();
+        return ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(errorCode.getHttpStatus().value())
+                .errorCode(errorCode.getCode())
+                .message(errorCode.getMessage())
+                .path(headers.getDestination())
+                .build();
+    }
+
+    private static LocalDateTime parseLastSeenAt(String lastSeenAt) {
+        try {
+            return LocalDateTime.parse(lastSeenAt);
+        } catch (DateTimeParseException e) {
+            throw new InvalidNotificationDataException("Invalid last-seen-at header: " + lastSeenAt, e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ma.fstt.notificationservice.converters;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stocke les metadata d'une notification dans une seule colonne JSON
+ * (aucune table de jointure, aucun INSERT/SELECT supplémentaire par clé).
+ */
+@Converter
+public class MetadataJsonConverter implements AttributeConverter<Map<String, String>, String> {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<LinkedHashMap<String, String>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    @Override
+    public String convertToDatabaseColumn(Map<String, String> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable to serialize notification metadata", e);
+        }
+    }
+
+    @Override
+    public Map<String, String> convertToEntityAttribute(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try {
+            return OBJECT_MAPPER.readValue(json, MAP_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable to deserialize notification metadata", e);
+        }
+    }
+}
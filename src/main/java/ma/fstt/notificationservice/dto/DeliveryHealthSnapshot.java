@@ -0,0 +1,23 @@
+package ma.fstt.notificationservice.dto;
+
+import lombok.Builder;
+import lombok.Value;
+import ma.fstt.notificationservice.enums.Channel;
+
+import java.util.Map;
+
+/**
+ * Indicateurs DLQ / livraison sur une fenêtre glissante.
+ */
+@Value
+@Builder
+public class DeliveryHealthSnapshot {
+    long windowSeconds;
+    long dlqBacklog;
+    long dlqInserts;
+    long reprocessSucceeded;
+    long reprocessFailed;
+    Map<Channel, Long> channelDeliveries;
+    Map<Channel, Long> channelFailures;
+    Map<Channel, Double> channelFailureRates;
+}
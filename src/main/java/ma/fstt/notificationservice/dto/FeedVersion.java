@@ -0,0 +1,15 @@
+package ma.fstt.notificationservice.dto;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Empreinte du flux d'un utilisateur en base : plus grand identifiant et plus grand sentAt.
+ * Permet à UserFeedCache de revalider une page sans la relire (créations et envois d'une autre instance).
+ */
+@Value
+public class FeedVersion {
+    Long maxId;
+    LocalDateTime maxSentAt;
+}
@@ -0,0 +1,22 @@
+package ma.fstt.notificationservice.dto;
+
+import lombok.Builder;
+import lombok.Value;
+import ma.fstt.notificationservice.enums.EventType;
+
+import java.util.Map;
+
+/**
+ * Contenu immuable d'une notification (partagé par tous ses destinataires),
+ * tel que conservé dans le cache applicatif.
+ */
+@Value
+@Builder
+public class NotificationContent {
+    Long id;
+    EventType eventType;
+    String templateId;
+    String title;
+    String message;
+    Map<String, String> metadata;
+}
@@ -13,11 +13,12 @@ import java.util.Map;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class NotificationDTO {
     private Long id;
     private Long userId;
     private EventType eventType;
+    private String templateId;
     private String title;
     private String message;
     private Status status;
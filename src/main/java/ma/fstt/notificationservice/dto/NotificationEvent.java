@@ -19,8 +19,20 @@ public class NotificationEvent implements Serializable {
 
     private EventType eventType;
     private List<Long> userIds;
+    /**
+     * Segment de destinataires (ex: "PROPERTY:42", "ROLE:TENANT") résolu côté service
+     * par l'AudienceResolver, en complément ou à la place de userIds.
+     */
+    private String audience;
+    /**
+     * Référence d'une liste de destinataires déposée hors message (claim check, voir RecipientListStore),
+     * utilisée à la place de userIds lorsque la liste est trop volumineuse pour un record Kafka.
+     */
+    private String recipientsRef;
     private String title;
     private String message;
     private List<Channel> channels;
     private Map<String, String> metadata;
+    // Langue du modèle de notification (défaut : notification.templates.default-locale)
+    private String locale;
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package ma.fstt.notificationservice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.EventType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Notification utilisateur archivée (hors table chaude user_notifications).
+ * Le contenu complet (NotificationDTO) est stocké en JSON compressé GZIP.
+ */
+@Entity
+@Table(name = "user_notifications_archive")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivedUserNotification {
+
+    // Identifiant d'origine dans user_notifications
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(name = "notification_id", nullable = false)
+    private Long notificationId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EventType eventType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Channel channel;
+
+    private LocalDateTime sentAt;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+
+    // MEDIUMBLOB sous MySQL (un @Lob sans longueur y devient TINYBLOB, 255 octets)
+    @Lob
+    @Column(nullable = false, length = 16777215)
+    private byte[] payload;
+}
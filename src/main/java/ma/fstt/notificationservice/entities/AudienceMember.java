@@ -0,0 +1,34 @@
+package ma.fstt.notificationservice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Appartenance d'un utilisateur à un segment d'audience (ex: locataires d'un bien, rôle).
+ * Table locale servant de source pour l'expansion des audiences.
+ */
+@Entity
+@Table(name = "audience_members", indexes = {
+        // findUserIdsAfter (pagination par clé, couvrant)
+        @Index(name = "idx_audience_segment_user", columnList = "segment_type, segment_key, user_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AudienceMember {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "segment_type", nullable = false, length = 50)
+    private String segmentType;
+
+    @Column(name = "segment_key", nullable = false, length = 100)
+    private String segmentKey;
+
+    @Column(nullable = false)
+    private Long userId;
+}
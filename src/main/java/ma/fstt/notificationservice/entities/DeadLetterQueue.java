@@ -9,7 +9,16 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "dead_letter_queue")
+@Table(name = "dead_letter_queue", indexes = {
+        // findByProcessedFalseAndRetryCountLessThan, countByProcessedFalse (couvrant)
+        @Index(name = "idx_dlq_processed_retry", columnList = "processed, retry_count"),
+        // findOldUnprocessedMessages
+        @Index(name = "idx_dlq_processed_failed_at", columnList = "processed, failed_at"),
+        // Rejeu filtré par empreinte d'erreur
+        @Index(name = "idx_dlq_processed_fingerprint", columnList = "processed, error_fingerprint"),
+        // Purge des listes de destinataires : listes encore référencées par un message non traité
+        @Index(name = "idx_dlq_processed_recipients_ref", columnList = "processed, recipients_ref")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -29,15 +38,27 @@ public class DeadLetterQueue {
     @Column(name = "kafka_offset", nullable = false)
     private Long kafkaOffset;
 
+    // Clé d'origine, réutilisée au rejeu pour conserver l'ordre par clé
+    @Column(name = "kafka_key")
+    private String kafkaKey;
+
     @Column(nullable = false, columnDefinition = "TEXT")
     private String payload;
 
+    // Liste de destinataires déposée hors message (claim check) référencée par le payload
+    @Column(name = "recipients_ref", length = 36)
+    private String recipientsRef;
+
     @Column(nullable = false, columnDefinition = "TEXT")
     private String errorMessage;
 
     @Column(columnDefinition = "TEXT")
     private String stackTrace;
 
+    // Regroupe les échecs de même cause (classe d'exception + message normalisé)
+    @Column(length = 64)
+    private String errorFingerprint;
+
     @Column(nullable = false)
     private Integer retryCount;
 
@@ -47,6 +68,14 @@ public class DeadLetterQueue {
     @Column
     private LocalDateTime processedAt;
 
+    // Republication vers Kafka (mode de rejeu KAFKA)
+    @Column
+    private LocalDateTime replayedAt;
+
+    // Bail du rejeu en cours : la ligne n'est pas réclamée de nouveau avant cette date
+    @Column
+    private LocalDateTime replayLeaseUntil;
+
     @Column(nullable = false)
     private Boolean processed;
 
@@ -0,0 +1,57 @@
+package ma.fstt.notificationservice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ma.fstt.notificationservice.enums.Priority;
+
+import java.time.LocalDateTime;
+
+/**
+ * Tâche de livraison (outbox transactionnel).
+ *
+ * Insérée dans la même transaction que les user_notifications d'un lot, elle décrit la plage
+ * d'identifiants à délivrer. Supprimée une fois la livraison effectuée ; sinon reprise
+ * par l'OutboxRelay lorsque availableAt est dépassé (crash, échec après commit).
+ */
+@Entity
+@Table(name = "delivery_outbox", indexes = @Index(name = "idx_outbox_available_at", columnList = "available_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DeliveryOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "notification_id", nullable = false)
+    private Long notificationId;
+
+    @Column(name = "first_user_notification_id", nullable = false)
+    private Long firstUserNotificationId;
+
+    @Column(name = "last_user_notification_id", nullable = false)
+    private Long lastUserNotificationId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Priority priority;
+
+    // Instant à partir duquel le relais peut (re)prendre la tâche
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+        if (this.attempts == null) this.attempts = 0;
+    }
+}
@@ -2,7 +2,9 @@ package ma.fstt.notificationservice.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ma.fstt.notificationservice.converters.MetadataJsonConverter;
 import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.services.NotificationCacheEvictionListener;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -10,7 +12,11 @@ import java.util.List;
 import java.util.Map;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+        // deleteOrphansCreatedBefore
+        @Index(name = "idx_notifications_created_at", columnList = "created_at")
+})
+@EntityListeners(NotificationCacheEvictionListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -26,17 +32,20 @@ public class Notification {
     @Column(nullable = false)
     private EventType eventType;
 
-    @Column(nullable = false)
+    // Null lorsque la notification est rendue à partir d'un modèle (templateId)
+    @Column
     private String title;
 
-    @Column(nullable = false, length = 1000)
+    @Column(length = 1000)
     private String message;
 
-    // ✅ AJOUT DU CHAMP METADATA
-    @ElementCollection
-    @CollectionTable(name = "notification_metadata", joinColumns = @JoinColumn(name = "notification_id"))
-    @MapKeyColumn(name = "meta_key")
-    @Column(name = "meta_value")
+    // Identifiant du modèle (ex: PAYMENT_RECEIVED.fr), les paramètres sont les metadata
+    @Column(name = "template_id", length = 100)
+    private String templateId;
+
+    // Metadata sérialisées en JSON dans une seule colonne (plus de table notification_metadata)
+    @Convert(converter = MetadataJsonConverter.class)
+    @Column(columnDefinition = "TEXT")
     private Map<String, String> metadata;
 
     @Column(nullable = false, updatable = false)
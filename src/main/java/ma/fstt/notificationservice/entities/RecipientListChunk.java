@@ -0,0 +1,52 @@
+package ma.fstt.notificationservice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fragment d'une liste de destinataires déposée hors message (claim check).
+ *
+ * Un événement trop volumineux porte seulement listRef ; les userIds sont stockés ici par
+ * fragments numérotés (encodage binaire, 8 octets par userId) et relus un fragment à la fois.
+ */
+@Entity
+@Table(name = "recipient_list_chunks", indexes = {
+        // findByListRefAndChunkIndex
+        @Index(name = "idx_recipient_chunk_ref_index", columnList = "list_ref, chunk_index", unique = true),
+        // purge des listes expirées
+        @Index(name = "idx_recipient_chunk_created_at", columnList = "created_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RecipientListChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "list_ref", nullable = false, length = 36)
+    private String listRef;
+
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(name = "user_count", nullable = false)
+    private Integer userCount;
+
+    // userIds big-endian, 8 octets chacun
+    @Column(name = "user_ids", nullable = false, length = 16000)
+    private byte[] userIds;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,26 @@
+package ma.fstt.notificationservice.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Coordonnées d'un utilisateur pour les canaux EMAIL et SMS.
+ * Table locale alimentée par le service utilisateurs.
+ */
+@Entity
+@Table(name = "user_contacts")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserContact {
+
+    @Id
+    private Long userId;
+
+    private String email;
+
+    @Column(length = 30)
+    private String phoneNumber;
+}
@@ -9,7 +9,17 @@ import java.time.LocalDateTime;
 
 
 @Entity
-@Table(name = "user_notifications")
+@Table(name = "user_notifications", indexes = {
+        // countByUserIdAndStatus (couvrant), findByUserIdAndStatusOrderBySentAtDesc
+        @Index(name = "idx_un_user_status_sent", columnList = "user_id, status, sent_at"),
+        // findByUserIdOrderBySentAtDesc, findByUserIdAndSentAtAfterOrderBySentAtAsc
+        @Index(name = "idx_un_user_sent", columnList = "user_id, sent_at"),
+        // claimArchivable
+        @Index(name = "idx_un_status_sent", columnList = "status, sent_at")
+}, uniqueConstraints = {
+        // Une ligne par destinataire et canal ; sert aussi au dédoublonnage entre lots à l'ingestion
+        @UniqueConstraint(name = "uk_un_notification_user_channel", columnNames = {"notification_id", "user_id", "channel"})
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -25,6 +35,10 @@ public class UserNotification {
     @JoinColumn(name = "notification_id")
     private Notification notification;
 
+    // Lecture seule : permet de résoudre le contenu via le cache sans charger la notification
+    @Column(name = "notification_id", insertable = false, updatable = false)
+    private Long notificationId;
+
     @Column(nullable = false)
     private Long userId;
 
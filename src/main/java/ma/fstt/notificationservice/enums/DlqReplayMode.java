@@ -0,0 +1,10 @@
+package ma.fstt.notificationservice.enums;
+
+/**
+ * Mode de retraitement de la DLQ : IN_PROCESS rejoue directement sur l'instance,
+ * KAFKA republie les messages pour qu'ils soient répartis sur tout le consumer group.
+ */
+public enum DlqReplayMode {
+    IN_PROCESS,
+    KAFKA
+}
@@ -0,0 +1,10 @@
+package ma.fstt.notificationservice.enums;
+
+/**
+ * Voie de traitement d'une notification : HIGH pour les événements urgents
+ * (paiements, remise des clés), NORMAL pour les événements informatifs.
+ */
+public enum Priority {
+    HIGH,
+    NORMAL
+}
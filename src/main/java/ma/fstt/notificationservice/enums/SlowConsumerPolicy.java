@@ -0,0 +1,13 @@
+package ma.fstt.notificationservice.enums;
+
+/**
+ * Politique appliquée à une session WebSocket dont le tampon de sortie dépasse la limite.
+ */
+public enum SlowConsumerPolicy {
+    // Les messages les plus anciens du tampon sont abandonnés (le client se resynchronise via le replay)
+    DROP_OLDEST,
+    // Les nouvelles notifications de l'utilisateur sont regroupées en résumé tant que la session est lente
+    COALESCE,
+    // La session est fermée (le client se reconnecte et rejoue le delta)
+    DISCONNECT
+}
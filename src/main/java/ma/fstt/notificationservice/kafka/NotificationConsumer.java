@@ -1,16 +1,27 @@
 package ma.fstt.notificationservice.kafka;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ma.fstt.notificationservice.dto.NotificationEvent;
 import ma.fstt.notificationservice.services.NotificationService;
 import ma.fstt.notificationservice.services.DeadLetterQueueService;
+import ma.fstt.notificationservice.services.DlqReplayService;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Consumer Kafka pour le traitement des événements de notification.
  *
@@ -20,6 +31,12 @@ import org.springframework.stereotype.Component;
  * - Envoi vers DLQ en cas d'échec
  * - Acknowledgment manuel pour contrôler le commit
  *
+ * Rejeu DLQ : un record portant les headers dlq-id / dlq-replay-count (DlqReplayService) qui échoue
+ * de nouveau réouvre sa ligne DLQ d'origine, dlq.max-retries borne ainsi le nombre total de rejeux.
+ *
+ * Traçage : le contexte est extrait des headers Kafka par l'observation du container ; la persistance
+ * et l'écriture DLQ sont des spans enfants, le lag (horodatage du record → réception) est mesuré.
+ *
  * ⚠️ Les exceptions Kafka ne remontent JAMAIS au GlobalExceptionHandler REST
  */
 @Component
@@ -30,6 +47,11 @@ public class NotificationConsumer {
     private final NotificationService notificationService;
     private final DeadLetterQueueService dlqService;
     private final ObjectMapper objectMapper;
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    // Un timer de lag par topic, enregistré une seule fois
+    private final Map<String, Timer> lagTimers = new ConcurrentHashMap<>();
 
     @KafkaListener(
             topics = "${spring.kafka.topics.notification}",
@@ -39,6 +61,44 @@ public class NotificationConsumer {
     public void consumeNotification(
             ConsumerRecord<String, NotificationEvent> record,
             Acknowledgment acknowledgment) {
+        handle(record, acknowledgment);
+    }
+
+    /**
+     * Voie prioritaire : topic dédié aux événements urgents (PAYMENT_RECEIVED, KEY_DELIVERED...),
+     * consommé par son propre container afin de ne pas attendre derrière les rafales informatives.
+     */
+    @KafkaListener(
+            id = "priorityNotificationListener",
+            topics = "${spring.kafka.topics.notification-priority:notifications-priority}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "priorityKafkaListenerContainerFactory",
+            autoStartup = "${notification.priority.listener-enabled:false}"
+    )
+    public void consumePriorityNotification(
+            ConsumerRecord<String, NotificationEvent> record,
+            Acknowledgment acknowledgment) {
+        handle(record, acknowledgment);
+    }
+
+    /**
+     * Topic de rejeu dédié (dlq.replay.topic) : démarré uniquement lorsqu'il est configuré, les rejeux
+     * ne passent alors pas derrière le trafic courant.
+     */
+    @KafkaListener(
+            id = "dlqReplayListener",
+            topics = "#{'${dlq.replay.topic:}'.isBlank() ? 'notifications-dlq-replay' : '${dlq.replay.topic:}'}",
+            groupId = "${spring.kafka.consumer.group-id}",
+            containerFactory = "kafkaListenerContainerFactory",
+            autoStartup = "#{!'${dlq.replay.topic:}'.isBlank()}"
+    )
+    public void consumeReplayedNotification(
+            ConsumerRecord<String, NotificationEvent> record,
+            Acknowledgment acknowledgment) {
+        handle(record, acknowledgment);
+    }
+
+    private void handle(ConsumerRecord<String, NotificationEvent> record, Acknowledgment acknowledgment) {
 
         String topic = record.topic();
         int partition = record.partition();
@@ -48,6 +108,8 @@ public class NotificationConsumer {
         log.info("Kafka message received: topic={}, partition={}, offset={}, key={}",
                 topic, partition, offset, key);
 
+        recordLag(record);
+
         try {
             NotificationEvent event = record.value();
 
@@ -59,7 +121,7 @@ public class NotificationConsumer {
                 return;
             }
 
-            if (event.getUserIds() == null || event.getUserIds().isEmpty()) {
+            if (!NotificationService.hasRecipients(event)) {
                 log.warn("Invalid notification event (no users), skipping. topic={}, offset={}, event={}",
                         topic, offset, event);
                 acknowledgment.acknowledge();
@@ -67,18 +129,21 @@ public class NotificationConsumer {
             }
 
             // Traitement de la notification
-            log.info("Processing notification: eventType={}, users={}, channels={}",
+            log.info("Processing notification: eventType={}, users={}, audience={}, channels={}",
                     event.getEventType(),
-                    event.getUserIds().size(),
+                    event.getUserIds() != null ? event.getUserIds().size() : 0,
+                    event.getAudience(),
                     event.getChannels());
 
-            notificationService.processNotification(event);
+            Observation.createNotStarted("notification.persist", observationRegistry)
+                    .lowCardinalityKeyValue("event.type", String.valueOf(event.getEventType()))
+                    .observe(() -> notificationService.processNotification(event));
 
             // Acknowledge après traitement réussi
             acknowledgment.acknowledge();
 
-            log.info("Notification processed successfully: topic={}, offset={}, users={}",
-                    topic, offset, event.getUserIds().size());
+            log.info("Notification processed successfully: topic={}, offset={}, audience={}",
+                    topic, offset, event.getAudience());
 
         } catch (Exception e) {
             // Log complet de l'erreur avec stacktrace
@@ -95,14 +160,26 @@ public class NotificationConsumer {
                 String errorMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
                 String stackTrace = buildStackTrace(e);
 
-                dlqService.saveToDeadLetterQueue(
-                        topic,
-                        partition,
-                        offset,
-                        payload,
-                        errorMessage,
-                        stackTrace
-                );
+                Observation.createNotStarted("notification.dlq.write", observationRegistry)
+                        .lowCardinalityKeyValue("topic", topic)
+                        .observe(() -> {
+                            Long dlqId = longHeader(record, DlqReplayService.DLQ_ID_HEADER);
+                            if (dlqId != null) {
+                                Long replayCount = longHeader(record, DlqReplayService.DLQ_REPLAY_COUNT_HEADER);
+                                dlqService.saveReplayFailure(dlqId, replayCount != null ? replayCount.intValue() : 1,
+                                        topic, partition, offset, key, payload, errorMessage, stackTrace);
+                            } else {
+                                dlqService.saveToDeadLetterQueue(
+                                        topic,
+                                        partition,
+                                        offset,
+                                        key,
+                                        payload,
+                                        errorMessage,
+                                        stackTrace
+                                );
+                            }
+                        });
 
                 // Acknowledge pour ne pas bloquer le consumer
                 acknowledgment.acknowledge();
@@ -121,6 +198,39 @@ public class NotificationConsumer {
         }
     }
 
+    /**
+     * Lag du record : délai entre son horodatage Kafka et sa réception (timer + tag du span courant).
+     */
+    private void recordLag(ConsumerRecord<String, NotificationEvent> record) {
+        if (record.timestamp() <= 0) {
+            return;
+        }
+        long lagMs = Math.max(0, System.currentTimeMillis() - record.timestamp());
+        lagTimers.computeIfAbsent(record.topic(), topic -> Timer.builder("notification.kafka.lag")
+                        .tag("topic", topic)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry))
+                .record(lagMs, TimeUnit.MILLISECONDS);
+
+        Observation current = observationRegistry.getCurrentObservation();
+        if (current != null) {
+            current.highCardinalityKeyValue("kafka.lag.ms", String.valueOf(lagMs));
+        }
+    }
+
+    private static Long longHeader(ConsumerRecord<?, ?> record, String name) {
+        Header header = record.headers().lastHeader(name);
+        if (header == null || header.value() == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(new String(header.value(), StandardCharsets.UTF_8));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid {} header ignored: topic={}, offset={}", name, record.topic(), record.offset());
+            return null;
+        }
+    }
+
     /**
      * Construction de la stacktrace complète pour les logs et la DLQ.
      */
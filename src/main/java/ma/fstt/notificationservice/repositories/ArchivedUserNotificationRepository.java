@@ -0,0 +1,7 @@
+package ma.fstt.notificationservice.repositories;
+
+import ma.fstt.notificationservice.entities.ArchivedUserNotification;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ArchivedUserNotificationRepository extends JpaRepository<ArchivedUserNotification, Long> {
+}
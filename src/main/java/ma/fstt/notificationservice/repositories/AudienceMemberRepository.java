@@ -0,0 +1,19 @@
+package ma.fstt.notificationservice.repositories;
+
+import ma.fstt.notificationservice.entities.AudienceMember;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface AudienceMemberRepository extends JpaRepository<AudienceMember, Long> {
+
+    /**
+     * Pagination par clé (keyset) : renvoie les userIds du segment strictement supérieurs à afterUserId.
+     */
+    @Query("SELECT a.userId FROM AudienceMember a " +
+            "WHERE a.segmentType = :segmentType AND a.segmentKey = :segmentKey AND a.userId > :afterUserId " +
+            "ORDER BY a.userId")
+    List<Long> findUserIdsAfter(String segmentType, String segmentKey, Long afterUserId, Pageable pageable);
+}
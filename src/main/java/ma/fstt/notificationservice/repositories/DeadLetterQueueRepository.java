@@ -1,8 +1,14 @@
 package ma.fstt.notificationservice.repositories;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import ma.fstt.notificationservice.entities.DeadLetterQueue;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,4 +21,47 @@ public interface DeadLetterQueueRepository extends JpaRepository<DeadLetterQueue
     List<DeadLetterQueue> findOldUnprocessedMessages(LocalDateTime before);
 
     Long countByProcessedFalse();
+
+    /**
+     * Réclame un lot de messages à rejouer (SKIP LOCKED) : chaque instance rejoue des lignes distinctes.
+     * Filtres optionnels (null = ignoré) : empreinte d'erreur, topic, intervalle [from, to) sur failedAt.
+     * Les lignes dont le bail de rejeu court encore (envoi en attente d'acquittement) sont écartées.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT d FROM DeadLetterQueue d WHERE d.processed = false AND d.retryCount < :maxRetries " +
+            "AND (:fingerprint IS NULL OR d.errorFingerprint = :fingerprint) " +
+            "AND (:topic IS NULL OR d.topic = :topic) " +
+            "AND (:from IS NULL OR d.failedAt >= :from) " +
+            "AND (:to IS NULL OR d.failedAt < :to) " +
+            "AND (d.replayLeaseUntil IS NULL OR d.replayLeaseUntil < :now) " +
+            "ORDER BY d.id")
+    List<DeadLetterQueue> claimReplayable(Integer maxRetries, String fingerprint, String topic,
+                                          LocalDateTime from, LocalDateTime to, LocalDateTime now,
+                                          Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE DeadLetterQueue d SET d.replayLeaseUntil = :leaseUntil WHERE d.id IN :ids")
+    int markReplayClaimed(List<Long> ids, LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query("UPDATE DeadLetterQueue d SET d.processed = true, d.processedAt = :replayedAt, d.replayedAt = :replayedAt, " +
+            "d.replayLeaseUntil = null WHERE d.id IN :ids")
+    int markReplayed(List<Long> ids, LocalDateTime replayedAt);
+
+    @Modifying
+    @Query("UPDATE DeadLetterQueue d SET d.retryCount = d.retryCount + 1, d.errorMessage = :errorMessage, " +
+            "d.replayLeaseUntil = null WHERE d.id IN :ids")
+    int markReplayFailed(List<Long> ids, String errorMessage);
+
+    /**
+     * Message rejoué via Kafka puis de nouveau en échec au traitement : la ligne d'origine redevient
+     * éligible avec le nombre de rejeux déjà effectués (borné par dlq.max-retries).
+     */
+    @Modifying
+    @Query("UPDATE DeadLetterQueue d SET d.processed = false, d.processedAt = null, d.retryCount = :retryCount, " +
+            "d.errorMessage = :errorMessage, d.stackTrace = :stackTrace, d.errorFingerprint = :fingerprint, " +
+            "d.failedAt = :failedAt, d.replayLeaseUntil = null WHERE d.id = :id")
+    int reopenAfterReplay(Long id, Integer retryCount, String errorMessage, String stackTrace,
+                          String fingerprint, LocalDateTime failedAt);
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package ma.fstt.notificationservice.repositories;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import ma.fstt.notificationservice.entities.DeliveryOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface DeliveryOutboxRepository extends JpaRepository<DeliveryOutbox, Long> {
+
+    /**
+     * Réclame les tâches disponibles : SELECT ... FOR UPDATE SKIP LOCKED (timeout -2),
+     * plusieurs instances peuvent ainsi relayer en parallèle sans se bloquer.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM DeliveryOutbox o WHERE o.availableAt <= :now ORDER BY o.availableAt")
+    List<DeliveryOutbox> findClaimable(LocalDateTime now, Pageable pageable);
+
+    /**
+     * Prolonge le bail des tâches encore détenues par un dispatcher (jamais raccourci :
+     * un report de retryLater plus lointain est conservé).
+     */
+    @Modifying
+    @Query("UPDATE DeliveryOutbox o SET o.availableAt = :leaseUntil WHERE o.id IN :ids AND o.availableAt < :leaseUntil")
+    int extendLease(Collection<Long> ids, LocalDateTime leaseUntil);
+}
@@ -0,0 +1,231 @@
+package ma.fstt.notificationservice.repositories;
+
+import ma.fstt.notificationservice.converters.MetadataJsonConverter;
+import ma.fstt.notificationservice.dto.FeedVersion;
+import ma.fstt.notificationservice.entities.Notification;
+import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.Status;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Implémentation JDBC du NotificationStore (notification.store.type=jdbc).
+ *
+ * - Aucune entité gérée : pas de contexte de persistance, de dirty checking ni de flush
+ * - Destinataires insérés en un seul batch JDBC, clés générées relues en retour
+ *   (MySQL : rewriteBatchedStatements=true dans l'URL pour un INSERT multi-lignes)
+ * - Les entités renvoyées sont détachées ; seul notificationId est renseigné, pas l'association
+ */
+@Component
+@ConditionalOnProperty(name = "notification.store.type", havingValue = "jdbc")
+public class JdbcNotificationStore implements NotificationStore {
+
+    private static final String[] ID_COLUMN = {"id"};
+
+    private static final String INSERT_NOTIFICATION =
+            "INSERT INTO notifications (event_type, title, message, template_id, metadata, created_at) " +
+                    "VALUES (:eventType, :title, :message, :templateId, :metadata, :createdAt)";
+
+    private static final String INSERT_USER_NOTIFICATION =
+            "INSERT INTO user_notifications (notification_id, user_id, status, channel, sent_at) " +
+                    "VALUES (:notificationId, :userId, :status, :channel, :sentAt)";
+
+    private static final String SELECT_USER_NOTIFICATION =
+            "SELECT id, notification_id, user_id, status, channel, sent_at FROM user_notifications ";
+
+    private static final RowMapper<UserNotification> USER_NOTIFICATION_MAPPER = (rs, rowNum) -> {
+        Timestamp sentAt = rs.getTimestamp("sent_at");
+        return UserNotification.builder()
+                .id(rs.getLong("id"))
+                .notificationId(rs.getLong("notification_id"))
+                .userId(rs.getLong("user_id"))
+                .status(Status.valueOf(rs.getString("status")))
+                .channel(Channel.valueOf(rs.getString("channel")))
+                .sentAt(sentAt != null ? sentAt.toLocalDateTime() : null)
+                .build();
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final MetadataJsonConverter metadataConverter = new MetadataJsonConverter();
+
+    public JdbcNotificationStore(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Notification saveNotification(Notification notification) {
+        if (notification.getCreatedAt() == null) {
+            notification.setCreatedAt(LocalDateTime.now());
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("eventType", notification.getEventType().name())
+                .addValue("title", notification.getTitle())
+                .addValue("message", notification.getMessage())
+                .addValue("templateId", notification.getTemplateId())
+                .addValue("metadata", metadataConverter.convertToDatabaseColumn(notification.getMetadata()))
+                .addValue("createdAt", notification.getCreatedAt());
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(INSERT_NOTIFICATION, params, keyHolder, ID_COLUMN);
+        notification.setId(keyHolder.getKey().longValue());
+        return notification;
+    }
+
+    @Override
+    public List<UserNotification> saveUserNotifications(List<UserNotification> userNotifications) {
+        if (userNotifications.isEmpty()) {
+            return userNotifications;
+        }
+        SqlParameterSource[] batch = new SqlParameterSource[userNotifications.size()];
+        for (int i = 0; i < batch.length; i++) {
+            UserNotification un = userNotifications.get(i);
+            if (un.getStatus() == null) {
+                un.setStatus(Status.UNREAD);
+            }
+            if (un.getNotificationId() == null && un.getNotification() != null) {
+                un.setNotificationId(un.getNotification().getId());
+            }
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("notificationId", un.getNotificationId())
+                    .addValue("userId", un.getUserId())
+                    .addValue("status", un.getStatus().name())
+                    .addValue("channel", un.getChannel().name())
+                    .addValue("sentAt", un.getSentAt());
+        }
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(INSERT_USER_NOTIFICATION, batch, keyHolder, ID_COLUMN);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < userNotifications.size(); i++) {
+            // Nom de la colonne de clé propre au driver (ID, GENERATED_KEY...) : seule valeur de la ligne
+            Number id = (Number) keys.get(i).values().iterator().next();
+            userNotifications.get(i).setId(id.longValue());
+        }
+        return userNotifications;
+    }
+
+    @Override
+    public List<Long> findRecipientUserIds(Long notificationId, Collection<Long> userIds) {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT user_id FROM user_notifications WHERE notification_id = :notificationId " +
+                        "AND user_id IN (:userIds)",
+                new MapSqlParameterSource()
+                        .addValue("notificationId", notificationId)
+                        .addValue("userIds", userIds),
+                Long.class);
+    }
+
+    @Override
+    public long countByUserIdAndStatus(Long userId, Status status) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_notifications WHERE user_id = :userId AND status = :status",
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("status", status.name()),
+                Long.class);
+        return count != null ? count : 0L;
+    }
+
+    @Override
+    public List<UserNotification> findByUserIdOrderBySentAtDesc(Long userId) {
+        return jdbcTemplate.query(
+                SELECT_USER_NOTIFICATION + "WHERE user_id = :userId ORDER BY sent_at DESC",
+                new MapSqlParameterSource("userId", userId),
+                USER_NOTIFICATION_MAPPER);
+    }
+
+    @Override
+    public List<UserNotification> findRecentByUserId(Long userId, int limit) {
+        return jdbcTemplate.query(
+                SELECT_USER_NOTIFICATION + "WHERE user_id = :userId ORDER BY sent_at DESC LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("limit", limit),
+                USER_NOTIFICATION_MAPPER);
+    }
+
+    @Override
+    public FeedVersion findFeedVersion(Long userId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT MAX(id) AS max_id, MAX(sent_at) AS max_sent_at FROM user_notifications WHERE user_id = :userId",
+                new MapSqlParameterSource("userId", userId),
+                (rs, rowNum) -> {
+                    Timestamp maxSentAt = rs.getTimestamp("max_sent_at");
+                    return new FeedVersion(rs.getObject("max_id", Long.class),
+                            maxSentAt != null ? maxSentAt.toLocalDateTime() : null);
+                });
+    }
+
+    @Override
+    public List<UserNotification> findByUserIdAfterId(Long userId, Long lastSeenId, int limit) {
+        return jdbcTemplate.query(
+                SELECT_USER_NOTIFICATION + "WHERE user_id = :userId AND id > :lastSeenId ORDER BY id ASC LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("lastSeenId", lastSeenId)
+                        .addValue("limit", limit),
+                USER_NOTIFICATION_MAPPER);
+    }
+
+    @Override
+    public List<UserNotification> findByUserIdSentAfter(Long userId, LocalDateTime lastSeenAt, int limit) {
+        return jdbcTemplate.query(
+                SELECT_USER_NOTIFICATION + "WHERE user_id = :userId AND sent_at > :lastSeenAt ORDER BY sent_at ASC LIMIT :limit",
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("lastSeenAt", lastSeenAt)
+                        .addValue("limit", limit),
+                USER_NOTIFICATION_MAPPER);
+    }
+
+    @Override
+    public long countByUserIdAfterId(Long userId, Long lastSeenId) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_notifications WHERE user_id = :userId AND id > :lastSeenId",
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("lastSeenId", lastSeenId),
+                Long.class);
+        return count != null ? count : 0L;
+    }
+
+    @Override
+    public long countByUserIdSentAfter(Long userId, LocalDateTime lastSeenAt) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_notifications WHERE user_id = :userId AND sent_at > :lastSeenAt",
+                new MapSqlParameterSource()
+                        .addValue("userId", userId)
+                        .addValue("lastSeenAt", lastSeenAt),
+                Long.class);
+        return count != null ? count : 0L;
+    }
+
+    @Override
+    public Optional<Long> markAsRead(Long userNotificationId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("id", userNotificationId)
+                .addValue("status", Status.READ.name());
+        List<Long> userIds = jdbcTemplate.queryForList(
+                "SELECT user_id FROM user_notifications WHERE id = :id", params, Long.class);
+        if (userIds.isEmpty()) {
+            return Optional.empty();
+        }
+        jdbcTemplate.update("UPDATE user_notifications SET status = :status WHERE id = :id", params);
+        return Optional.of(userIds.get(0));
+    }
+}
@@ -0,0 +1,98 @@
+package ma.fstt.notificationservice.repositories;
+
+import ma.fstt.notificationservice.dto.FeedVersion;
+import ma.fstt.notificationservice.entities.Notification;
+import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.Status;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Implémentation JPA du NotificationStore (défaut).
+ */
+@Component
+@ConditionalOnProperty(name = "notification.store.type", havingValue = "jpa", matchIfMissing = true)
+public class JpaNotificationStore implements NotificationStore {
+
+    private final NotificationRepository notificationRepository;
+    private final UserNotificationRepository userNotificationRepository;
+
+    public JpaNotificationStore(NotificationRepository notificationRepository,
+                                UserNotificationRepository userNotificationRepository) {
+        this.notificationRepository = notificationRepository;
+        this.userNotificationRepository = userNotificationRepository;
+    }
+
+    @Override
+    public Notification saveNotification(Notification notification) {
+        return notificationRepository.save(notification);
+    }
+
+    @Override
+    public List<UserNotification> saveUserNotifications(List<UserNotification> userNotifications) {
+        return userNotificationRepository.saveAll(userNotifications);
+    }
+
+    @Override
+    public List<Long> findRecipientUserIds(Long notificationId, Collection<Long> userIds) {
+        return userNotificationRepository.findRecipientUserIds(notificationId, userIds);
+    }
+
+    @Override
+    public long countByUserIdAndStatus(Long userId, Status status) {
+        return userNotificationRepository.countByUserIdAndStatus(userId, status);
+    }
+
+    @Override
+    public List<UserNotification> findByUserIdOrderBySentAtDesc(Long userId) {
+        return userNotificationRepository.findByUserIdOrderBySentAtDesc(userId);
+    }
+
+    @Override
+    public List<UserNotification> findRecentByUserId(Long userId, int limit) {
+        return userNotificationRepository.findByUserIdOrderBySentAtDesc(userId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public FeedVersion findFeedVersion(Long userId) {
+        return userNotificationRepository.findFeedVersion(userId);
+    }
+
+    @Override
+    public List<UserNotification> findByUserIdAfterId(Long userId, Long lastSeenId, int limit) {
+        return userNotificationRepository.findByUserIdAndIdGreaterThanOrderByIdAsc(
+                userId, lastSeenId, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public List<UserNotification> findByUserIdSentAfter(Long userId, LocalDateTime lastSeenAt, int limit) {
+        return userNotificationRepository.findByUserIdAndSentAtAfterOrderBySentAtAsc(
+                userId, lastSeenAt, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public long countByUserIdAfterId(Long userId, Long lastSeenId) {
+        return userNotificationRepository.countByUserIdAndIdGreaterThan(userId, lastSeenId);
+    }
+
+    @Override
+    public long countByUserIdSentAfter(Long userId, LocalDateTime lastSeenAt) {
+        return userNotificationRepository.countByUserIdAndSentAtAfter(userId, lastSeenAt);
+    }
+
+    @Override
+    public Optional<Long> markAsRead(Long userNotificationId) {
+        return userNotificationRepository.findById(userNotificationId)
+                .map(userNotification -> {
+                    userNotification.setStatus(Status.READ);
+                    userNotificationRepository.save(userNotification);
+                    return userNotification.getUserId();
+                });
+    }
+}
@@ -2,7 +2,18 @@ package ma.fstt.notificationservice.repositories;
 
 import ma.fstt.notificationservice.entities.Notification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
 
 public interface NotificationRepository extends JpaRepository<Notification, Long> {
 
+    /**
+     * Supprime les notifications anciennes qui n'ont plus aucun destinataire dans la table chaude.
+     */
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.createdAt < :before " +
+            "AND NOT EXISTS (SELECT 1 FROM UserNotification un WHERE un.notificationId = n.id)")
+    int deleteOrphansCreatedBefore(LocalDateTime before);
 }
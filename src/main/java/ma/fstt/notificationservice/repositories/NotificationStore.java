@@ -0,0 +1,66 @@
+package ma.fstt.notificationservice.repositories;
+
+import ma.fstt.notificationservice.dto.FeedVersion;
+import ma.fstt.notificationservice.entities.Notification;
+import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.Status;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stockage des notifications et de leurs destinataires utilisé par NotificationService
+ * (écriture en lots à l'ingestion, lecture des notifications récentes d'un utilisateur).
+ *
+ * Implémentation choisie par notification.store.type :
+ * - jpa (défaut) : repositories Spring Data
+ * - jdbc : requêtes SQL directes, destinataires insérés par lots JDBC
+ *
+ * Les deux implémentations participent à la transaction courante.
+ */
+public interface NotificationStore {
+
+    /**
+     * Persiste la notification ; id et createdAt sont renseignés au retour.
+     */
+    Notification saveNotification(Notification notification);
+
+    /**
+     * Persiste les destinataires d'une notification ; les identifiants sont renseignés au retour,
+     * croissants dans l'ordre de la liste.
+     */
+    List<UserNotification> saveUserNotifications(List<UserNotification> userNotifications);
+
+    /**
+     * Parmi userIds, les utilisateurs ayant déjà une ligne pour la notification (tous canaux confondus).
+     */
+    List<Long> findRecipientUserIds(Long notificationId, Collection<Long> userIds);
+
+    long countByUserIdAndStatus(Long userId, Status status);
+
+    List<UserNotification> findByUserIdOrderBySentAtDesc(Long userId);
+
+    List<UserNotification> findRecentByUserId(Long userId, int limit);
+
+    /**
+     * Empreinte du flux (plus grand identifiant, plus grand sentAt) ; champs null si le flux est vide.
+     */
+    FeedVersion findFeedVersion(Long userId);
+
+    List<UserNotification> findByUserIdAfterId(Long userId, Long lastSeenId, int limit);
+
+    List<UserNotification> findByUserIdSentAfter(Long userId, LocalDateTime lastSeenAt, int limit);
+
+    long countByUserIdAfterId(Long userId, Long lastSeenId);
+
+    long countByUserIdSentAfter(Long userId, LocalDateTime lastSeenAt);
+
+    /**
+     * Passe une notification utilisateur à READ.
+     *
+     * @return l'utilisateur concerné, vide si l'identifiant est inconnu
+     */
+    Optional<Long> markAsRead(Long userNotificationId);
+}
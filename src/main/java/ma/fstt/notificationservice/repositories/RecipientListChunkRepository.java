@@ -0,0 +1,25 @@
+package ma.fstt.notificationservice.repositories;
+
+import ma.fstt.notificationservice.entities.RecipientListChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface RecipientListChunkRepository extends JpaRepository<RecipientListChunk, Long> {
+
+    Optional<RecipientListChunk> findByListRefAndChunkIndex(String listRef, Integer chunkIndex);
+
+    boolean existsByListRef(String listRef);
+
+    /**
+     * Purge des listes expirées, sauf celles qu'un message DLQ non traité référence encore
+     * (son rejeu relira la liste).
+     */
+    @Modifying
+    @Query("DELETE FROM RecipientListChunk c WHERE c.createdAt < :before AND NOT EXISTS (" +
+            "SELECT 1 FROM DeadLetterQueue d WHERE d.processed = false AND d.recipientsRef = c.listRef)")
+    int deleteUnreferencedCreatedBefore(LocalDateTime before);
+}
@@ -0,0 +1,7 @@
+package ma.fstt.notificationservice.repositories;
+
+import ma.fstt.notificationservice.entities.UserContact;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UserContactRepository extends JpaRepository<UserContact, Long> {
+}
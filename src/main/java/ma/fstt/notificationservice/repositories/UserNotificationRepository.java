@@ -1,10 +1,22 @@
 package ma.fstt.notificationservice.repositories;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import ma.fstt.notificationservice.dto.FeedVersion;
 import ma.fstt.notificationservice.dto.NotificationDTO;
 import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.EventType;
 import ma.fstt.notificationservice.enums.Status;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 
@@ -17,9 +29,80 @@ public interface UserNotificationRepository extends JpaRepository<UserNotificati
      */
     List<UserNotification> findByUserIdOrderBySentAtDesc(Long userId);
 
+    /**
+     * Première page du flux (UserFeedCache).
+     */
+    List<UserNotification> findByUserIdOrderBySentAtDesc(Long userId, Pageable pageable);
+
     /**
      * OPTIONNEL : Récupère les notifications non lues uniquement
      */
+    @EntityGraph(attributePaths = "notification")
     List<UserNotification> findByUserIdAndStatusOrderBySentAtDesc(Long userId, Status status);
 
+    /**
+     * Delta de reconnexion : notifications postérieures au dernier identifiant vu.
+     */
+    List<UserNotification> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long lastSeenId, Pageable pageable);
+
+    /**
+     * Delta de reconnexion : notifications envoyées après le dernier instant vu.
+     */
+    List<UserNotification> findByUserIdAndSentAtAfterOrderBySentAtAsc(Long userId, LocalDateTime lastSeenAt, Pageable pageable);
+
+    /**
+     * Tailles des deltas de reconnexion, pour vérifier la couverture de l'anneau mémoire.
+     */
+    long countByUserIdAndIdGreaterThan(Long userId, Long lastSeenId);
+
+    long countByUserIdAndSentAtAfter(Long userId, LocalDateTime lastSeenAt);
+
+    /**
+     * Marque les lignes envoyées ; une ligne FAILED redélivrée par le relais redevient UNREAD.
+     */
+    @Modifying
+    @Query("UPDATE UserNotification un SET un.sentAt = :sentAt, un.status = CASE WHEN un.status = " +
+            "ma.fstt.notificationservice.enums.Status.FAILED THEN ma.fstt.notificationservice.enums.Status.UNREAD " +
+            "ELSE un.status END WHERE un.id IN :ids")
+    int markSent(List<Long> ids, LocalDateTime sentAt);
+
+    @Modifying
+    @Query("UPDATE UserNotification un SET un.status = :status WHERE un.id IN :ids")
+    int updateStatus(List<Long> ids, Status status);
+
+    /**
+     * Empreinte du flux d'un utilisateur (revalidation de UserFeedCache).
+     */
+    @Query("SELECT new ma.fstt.notificationservice.dto.FeedVersion(MAX(un.id), MAX(un.sentAt)) " +
+            "FROM UserNotification un WHERE un.userId = :userId")
+    FeedVersion findFeedVersion(Long userId);
+
+    /**
+     * Utilisateurs ayant déjà une ligne pour la notification (dédoublonnage entre lots à l'ingestion,
+     * index unique uk_un_notification_user_channel).
+     */
+    @Query("SELECT DISTINCT un.userId FROM UserNotification un " +
+            "WHERE un.notificationId = :notificationId AND un.userId IN :userIds")
+    List<Long> findRecipientUserIds(Long notificationId, Collection<Long> userIds);
+
+    /**
+     * Destinataires d'une tâche d'outbox encore non délivrés (jamais tentés ou en échec).
+     */
+    @Query("SELECT un FROM UserNotification un WHERE un.notificationId = :notificationId " +
+            "AND un.id BETWEEN :firstId AND :lastId AND un.sentAt IS NULL AND un.status IN :statuses")
+    List<UserNotification> findUndelivered(Long notificationId, Long firstId, Long lastId, Collection<Status> statuses);
+
+    /**
+     * Réclame un lot de notifications archivables pour un type d'événement (rétention).
+     * SKIP LOCKED : plusieurs instances archivent en parallèle des lignes distinctes ;
+     * seules les lignes user_notifications sont verrouillées (sous-requête sur notifications).
+     * Pas d'ORDER BY : un tri obligerait à lire (et verrouiller) toutes les lignes éligibles avant la limite.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT un FROM UserNotification un " +
+            "WHERE un.status = :status AND un.sentAt < :before " +
+            "AND un.notificationId IN (SELECT n.id FROM Notification n WHERE n.eventType = :eventType)")
+    List<UserNotification> claimArchivable(Status status, EventType eventType, LocalDateTime before, Pageable pageable);
+
 }
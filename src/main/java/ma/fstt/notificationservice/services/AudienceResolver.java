@@ -0,0 +1,22 @@
+package ma.fstt.notificationservice.services;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Résolution d'une audience (segment) en liste d'utilisateurs.
+ *
+ * Les implémentations doivent livrer les destinataires par lots afin de ne jamais
+ * matérialiser un segment complet en mémoire.
+ */
+public interface AudienceResolver {
+
+    /**
+     * Parcourt les destinataires de l'audience par lots d'au plus chunkSize userIds.
+     *
+     * @param audience référence du segment au format "TYPE:CLE" (ex: "PROPERTY:42")
+     * @param chunkSize taille maximale d'un lot
+     * @param chunkConsumer traitement appliqué à chaque lot
+     */
+    void forEachChunk(String audience, int chunkSize, Consumer<List<Long>> chunkConsumer);
+}
@@ -0,0 +1,94 @@
+package ma.fstt.notificationservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.exceptions.InvalidNotificationDataException;
+import ma.fstt.notificationservice.repositories.AudienceMemberRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Résolveur d'audience adossé à la table locale audience_members.
+ *
+ * - Expansion paginée par clé (userId croissant), un lot à la fois
+ * - Cache local des petits segments (tenant dans un seul lot) avec TTL
+ */
+@Service
+@Slf4j
+public class DatabaseAudienceResolver implements AudienceResolver {
+
+    private final AudienceMemberRepository audienceMemberRepository;
+    private final Cache<String, List<Long>> smallSegmentCache;
+
+    public DatabaseAudienceResolver(
+            AudienceMemberRepository audienceMemberRepository,
+            @Value("${notification.audience.cache-ttl-seconds:60}") long cacheTtlSeconds,
+            @Value("${notification.audience.cache-max-segments:1000}") long cacheMaxSegments) {
+        this.audienceMemberRepository = audienceMemberRepository;
+        this.smallSegmentCache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .maximumSize(cacheMaxSegments)
+                .build();
+    }
+
+    @Override
+    public void forEachChunk(String audience, int chunkSize, Consumer<List<Long>> chunkConsumer) {
+        String[] segment = parse(audience);
+
+        List<Long> cached = smallSegmentCache.getIfPresent(audience);
+        if (cached != null && cached.size() <= chunkSize) {
+            log.debug("Audience resolved from cache: audience={}, users={}", audience, cached.size());
+            if (!cached.isEmpty()) {
+                chunkConsumer.accept(cached);
+            }
+            return;
+        }
+
+        long afterUserId = Long.MIN_VALUE;
+        long total = 0;
+        boolean first = true;
+
+        while (true) {
+            List<Long> chunk = audienceMemberRepository.findUserIdsAfter(
+                    segment[0], segment[1], afterUserId, PageRequest.of(0, chunkSize));
+
+            if (first && chunk.size() < chunkSize) {
+                // Le segment tient dans un seul lot : on le garde en cache
+                smallSegmentCache.put(audience, List.copyOf(chunk));
+            }
+            first = false;
+
+            if (chunk.isEmpty()) {
+                break;
+            }
+
+            chunkConsumer.accept(chunk);
+            total += chunk.size();
+
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            afterUserId = chunk.get(chunk.size() - 1);
+        }
+
+        log.info("Audience expanded: audience={}, users={}", audience, total);
+    }
+
+    private String[] parse(String audience) {
+        int separator = audience == null ? -1 : audience.indexOf(':');
+        if (separator <= 0 || separator == audience.length() - 1) {
+            throw new InvalidNotificationDataException(
+                    String.format("Audience invalide (format attendu TYPE:CLE) : %s", audience));
+        }
+        return new String[]{
+                audience.substring(0, separator).trim().toUpperCase(),
+                audience.substring(separator + 1).trim()
+        };
+    }
+}
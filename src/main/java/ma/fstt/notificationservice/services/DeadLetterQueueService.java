@@ -1,7 +1,10 @@
 package ma.fstt.notificationservice.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
+import ma.fstt.notificationservice.enums.DlqReplayMode;
 import lombok.extern.slf4j.Slf4j;
 import ma.fstt.notificationservice.dto.NotificationEvent;
 import ma.fstt.notificationservice.entities.DeadLetterQueue;
@@ -10,8 +13,13 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.List;
 
 @Service
@@ -22,29 +30,88 @@ public class DeadLetterQueueService {
     private final DeadLetterQueueRepository dlqRepository;
     private final NotificationService notificationService;
     private final ObjectMapper objectMapper;
+    private final ObservationRegistry observationRegistry;
+    private final DeliveryHealthCounters healthCounters;
+    private final DlqReplayService replayService;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${dlq.max-retries:5}")
     private Integer maxRetries;
 
+    @Value("${dlq.retry.mode:IN_PROCESS}")
+    private DlqReplayMode retryMode;
+
+    // Nombre maximal de messages republiés par passage planifié (mode KAFKA)
+    @Value("${dlq.replay.max-per-run:10000}")
+    private int replayMaxPerRun;
+
     @Transactional
-    public void saveToDeadLetterQueue(String topic, Integer partition, Long offset,
+    public void saveToDeadLetterQueue(String topic, Integer partition, Long offset, String key,
                                       String payload, String errorMessage, String stackTrace) {
         DeadLetterQueue dlq = DeadLetterQueue.builder()
                 .topic(topic)
                 .kafkaPartition(partition)
                 .kafkaOffset(offset)
+                .kafkaKey(key)
                 .payload(payload)
+                .recipientsRef(recipientsRef(payload))
                 .errorMessage(errorMessage)
                 .stackTrace(stackTrace)
+                .errorFingerprint(fingerprint(errorMessage, stackTrace))
                 .retryCount(0)
                 .processed(false)
                 .build();
 
         dlqRepository.save(dlq);
+        healthCounters.dlqInserted();
         log.info("Message saved to DLQ: topic={}, partition={}, offset={}", topic, partition, offset);
     }
 
+    /**
+     * Échec d'un message republié par DlqReplayService : la ligne d'origine (header dlq-id) est
+     * réouverte avec son compteur de rejeux au lieu d'insérer une nouvelle ligne à retryCount = 0.
+     * Ligne introuvable (purgée entre-temps) : nouvelle ligne portant le compteur de rejeux.
+     */
+    @Transactional
+    public void saveReplayFailure(Long dlqId, int replayCount, String topic, Integer partition, Long offset,
+                                  String key, String payload, String errorMessage, String stackTrace) {
+        int reopened = dlqRepository.reopenAfterReplay(dlqId, replayCount, errorMessage, stackTrace,
+                fingerprint(errorMessage, stackTrace), LocalDateTime.now());
+        if (reopened > 0) {
+            healthCounters.dlqReopened();
+            log.info("Replayed DLQ message failed again: id={}, replayCount={}", dlqId, replayCount);
+            if (replayCount >= maxRetries) {
+                log.error("Message exceeded max retries: id={}, retries={}", dlqId, replayCount);
+            }
+            return;
+        }
+
+        dlqRepository.save(DeadLetterQueue.builder()
+                .topic(topic)
+                .kafkaPartition(partition)
+                .kafkaOffset(offset)
+                .kafkaKey(key)
+                .payload(payload)
+                .recipientsRef(recipientsRef(payload))
+                .errorMessage(errorMessage)
+                .stackTrace(stackTrace)
+                .errorFingerprint(fingerprint(errorMessage, stackTrace))
+                .retryCount(replayCount)
+                .processed(false)
+                .build());
+        healthCounters.dlqInserted();
+        log.warn("Replayed DLQ row not found, message saved again: dlqId={}, replayCount={}", dlqId, replayCount);
+    }
+
     @Scheduled(fixedDelayString = "${dlq.retry-interval:300000}") // 5 minutes par défaut
+    public void scheduledRetry() {
+        if (retryMode == DlqReplayMode.KAFKA) {
+            replayService.replay(DlqReplayService.Filter.all(replayMaxPerRun));
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> retryFailedMessages());
+    }
+
     @Transactional
     public void retryFailedMessages() {
         List<DeadLetterQueue> failedMessages =
@@ -64,12 +131,16 @@ public class DeadLetterQueueService {
                 NotificationEvent event = objectMapper.readValue(dlq.getPayload(), NotificationEvent.class);
 
                 // Réessayer le traitement
-                notificationService.processNotification(event);
+                Observation.createNotStarted("notification.dlq.retry", observationRegistry)
+                        .lowCardinalityKeyValue("event.type", String.valueOf(event.getEventType()))
+                        .highCardinalityKeyValue("dlq.id", String.valueOf(dlq.getId()))
+                        .observe(() -> notificationService.processNotification(event));
 
                 // Marquer comme traité
                 dlq.setProcessed(true);
                 dlq.setProcessedAt(LocalDateTime.now());
                 dlqRepository.save(dlq);
+                healthCounters.dlqReprocessed(true);
 
                 log.info("Successfully reprocessed message: id={}", dlq.getId());
 
@@ -80,6 +151,7 @@ public class DeadLetterQueueService {
                 dlq.setRetryCount(dlq.getRetryCount() + 1);
                 dlq.setErrorMessage(e.getMessage());
                 dlqRepository.save(dlq);
+                healthCounters.dlqReprocessed(false);
 
                 if (dlq.getRetryCount() >= maxRetries) {
                     log.error("Message exceeded max retries: id={}, retries={}",
@@ -89,12 +161,55 @@ public class DeadLetterQueueService {
         }
     }
 
+    /**
+     * Backlog DLQ servi depuis la mémoire (voir reconcileBacklog).
+     */
     public Long getUnprocessedCount() {
-        return dlqRepository.countByProcessedFalse();
+        return healthCounters.getDlqBacklog();
+    }
+
+    @Scheduled(fixedDelayString = "${dlq.backlog.reconcile-interval-ms:60000}")
+    @Transactional(readOnly = true)
+    public void reconcileBacklog() {
+        long unprocessed = dlqRepository.countByProcessedFalse();
+        long drift = unprocessed - healthCounters.getDlqBacklog();
+        healthCounters.reconcileDlqBacklog(unprocessed);
+        if (drift != 0) {
+            log.debug("DLQ backlog reconciled: unprocessed={}, drift={}", unprocessed, drift);
+        }
     }
 
+    @Transactional(readOnly = true)
     public List<DeadLetterQueue> getOldUnprocessedMessages(int daysOld) {
         LocalDateTime before = LocalDateTime.now().minusDays(daysOld);
         return dlqRepository.findOldUnprocessedMessages(before);
     }
+
+    /**
+     * Référence claim check du payload, conservée en colonne pour que la purge épargne la liste.
+     */
+    private String recipientsRef(String payload) {
+        try {
+            return objectMapper.readValue(payload, NotificationEvent.class).getRecipientsRef();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Empreinte d'erreur : première ligne de la stacktrace (classe + message), chiffres et identifiants
+     * hexadécimaux normalisés pour regrouper les échecs de même cause.
+     */
+    static String fingerprint(String errorMessage, String stackTrace) {
+        String source = stackTrace != null && !stackTrace.isBlank()
+                ? stackTrace.lines().findFirst().orElse("")
+                : String.valueOf(errorMessage);
+        String normalized = source.replaceAll("\\b[0-9a-fA-F-]{8,}\\b", "#").replaceAll("\\d+", "#");
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
\ No newline at end of file
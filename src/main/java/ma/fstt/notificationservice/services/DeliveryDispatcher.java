@@ -0,0 +1,236 @@
+package ma.fstt.notificationservice.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.enums.Priority;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ordonnancement des livraisons par priorité.
+ *
+ * - Une file bornée par priorité (HIGH / NORMAL)
+ * - Des workers qui vident les files de façon pondérée (high-weight tâches HIGH pour 1 NORMAL)
+ *   afin qu'une rafale informative ne retarde pas les confirmations de paiement
+ * - File pleine : la tâche est exécutée par l'appelant (contre-pression vers le consumer Kafka)
+ * - Bail d'outbox : les tâches en file ou en cours d'envoi sont détenues par ce dispatcher et leur
+ *   bail est prolongé périodiquement ; une file qui dépasse redelivery-delay-seconds ne provoque
+ *   donc pas de double envoi par le relais, qui ne reprend que les tâches d'une instance disparue
+ *
+ * Métriques : notification.delivery.queue.size (gauge), notification.delivery.queue.wait et
+ * notification.delivery.latency (timers), toutes taggées par priorité.
+ * Traçage : l'observation notification.delivery est rattachée à celle du thread soumetteur (record Kafka).
+ */
+@Service
+@Slf4j
+public class DeliveryDispatcher {
+
+    private final NotificationDeliveryService deliveryService;
+    private final DeliveryOutboxService outboxService;
+    private final ObservationRegistry observationRegistry;
+    private final Map<Priority, BlockingQueue<QueuedTask>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+    private final Map<Priority, Timer> latencyTimers = new EnumMap<>(Priority.class);
+    private final Semaphore available = new Semaphore(0);
+    // Tâches d'outbox en file ou en cours d'envoi -> nombre de soumissions
+    private final Map<Long, Integer> heldOutboxIds = new ConcurrentHashMap<>();
+    private final EnumSet<EventType> highPriorityEventTypes;
+    private final int highWeight;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public DeliveryDispatcher(
+            NotificationDeliveryService deliveryService,
+            DeliveryOutboxService outboxService,
+            MeterRegistry meterRegistry,
+            ObservationRegistry observationRegistry,
+            @Value("${notification.priority.high-event-types:PAYMENT_RECEIVED,KEY_DELIVERED}") List<EventType> highPriorityEventTypes,
+            @Value("${notification.delivery.queue-capacity.high:1000}") int highCapacity,
+            @Value("${notification.delivery.queue-capacity.normal:5000}") int normalCapacity,
+            @Value("${notification.delivery.high-weight:4}") int highWeight,
+            @Value("${notification.delivery.workers:4}") int workerCount,
+            Environment environment) {
+        this.deliveryService = deliveryService;
+        this.outboxService = outboxService;
+        this.observationRegistry = observationRegistry;
+        this.highPriorityEventTypes = highPriorityEventTypes.isEmpty()
+                ? EnumSet.noneOf(EventType.class)
+                : EnumSet.copyOf(highPriorityEventTypes);
+        this.highWeight = highWeight;
+        queues.put(Priority.HIGH, new ArrayBlockingQueue<>(highCapacity));
+        queues.put(Priority.NORMAL, new ArrayBlockingQueue<>(normalCapacity));
+
+        for (Priority priority : Priority.values()) {
+            BlockingQueue<QueuedTask> queue = queues.get(priority);
+            Gauge.builder("notification.delivery.queue.size", queue, BlockingQueue::size)
+                    .tag("priority", priority.name())
+                    .register(meterRegistry);
+            waitTimers.put(priority, Timer.builder("notification.delivery.queue.wait")
+                    .tag("priority", priority.name())
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry));
+            latencyTimers.put(priority, Timer.builder("notification.delivery.latency")
+                    .tag("priority", priority.name())
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry));
+        }
+
+        // Profil threads virtuels : les workers bloquants (JPA, SMTP, HTTP) ne mobilisent plus de thread plateforme
+        ThreadFactory threadFactory = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("delivery-worker-").getVirtualThreadFactory()
+                : runnable -> {
+                    Thread thread = new Thread(runnable, "delivery-worker-" + workers.size());
+                    thread.setDaemon(true);
+                    return thread;
+                };
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = threadFactory.newThread(this::runWorker);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    public Priority priorityOf(EventType eventType) {
+        return highPriorityEventTypes.contains(eventType) ? Priority.HIGH : Priority.NORMAL;
+    }
+
+    /**
+     * Soumet la tâche une fois la transaction courante validée (aucun envoi pour des lignes annulées).
+     */
+    public void submitAfterCommit(DeliveryTask task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(task);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(task);
+            }
+        });
+    }
+
+    public void submit(DeliveryTask task) {
+        if (task.outboxId() != null) {
+            heldOutboxIds.merge(task.outboxId(), 1, Integer::sum);
+        }
+        QueuedTask queued = new QueuedTask(task, observationRegistry.getCurrentObservation());
+        if (running && queues.get(task.priority()).offer(queued)) {
+            available.release();
+            return;
+        }
+        log.warn("Delivery queue full, delivering on caller thread: priority={}, recipients={}",
+                task.priority(), task.recipients().size());
+        execute(queued);
+    }
+
+    private void runWorker() {
+        int highServed = 0;
+        while (running || !isEmpty()) {
+            try {
+                if (!available.tryAcquire(1, TimeUnit.SECONDS)) {
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            QueuedTask queued = null;
+            if (highServed < highWeight) {
+                queued = queues.get(Priority.HIGH).poll();
+            }
+            if (queued == null) {
+                queued = queues.get(Priority.NORMAL).poll();
+                highServed = 0;
+            }
+            if (queued == null) {
+                queued = queues.get(Priority.HIGH).poll();
+            }
+            if (queued == null) {
+                continue;
+            }
+            DeliveryTask task = queued.task();
+            if (task.priority() == Priority.HIGH) {
+                highServed++;
+            }
+
+            waitTimers.get(task.priority()).record(System.nanoTime() - task.enqueuedAt(), TimeUnit.NANOSECONDS);
+            execute(queued);
+        }
+    }
+
+    private void execute(QueuedTask queued) {
+        DeliveryTask task = queued.task();
+        try {
+            Observation.createNotStarted("notification.delivery", observationRegistry)
+                    .parentObservation(queued.parent())
+                    .lowCardinalityKeyValue("priority", task.priority().name())
+                    .highCardinalityKeyValue("notification.id", String.valueOf(task.content().getId()))
+                    .observe(() -> deliveryService.deliver(task));
+        } catch (Exception e) {
+            log.error("Delivery task failed: notificationId={}, priority={}",
+                    task.content().getId(), task.priority(), e);
+        } finally {
+            if (task.outboxId() != null) {
+                heldOutboxIds.computeIfPresent(task.outboxId(), (id, count) -> count == 1 ? null : count - 1);
+            }
+            latencyTimers.get(task.priority()).record(System.nanoTime() - task.enqueuedAt(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Prolonge le bail des tâches détenues ; l'intervalle doit rester inférieur à
+     * notification.outbox.redelivery-delay-seconds.
+     */
+    @Scheduled(fixedDelayString = "${notification.outbox.lease-renew-interval:20000}")
+    public void renewOutboxLeases() {
+        if (heldOutboxIds.isEmpty()) {
+            return;
+        }
+        try {
+            outboxService.renewLeases(List.copyOf(heldOutboxIds.keySet()));
+        } catch (Exception e) {
+            log.warn("Outbox lease renewal failed: tasks={}", heldOutboxIds.size(), e);
+        }
+    }
+
+    private boolean isEmpty() {
+        return queues.values().stream().allMatch(BlockingQueue::isEmpty);
+    }
+
+    private record QueuedTask(DeliveryTask task, Observation parent) {
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+}
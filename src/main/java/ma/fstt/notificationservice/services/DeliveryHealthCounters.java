@@ -0,0 +1,121 @@
+package ma.fstt.notificationservice.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.fstt.notificationservice.dto.DeliveryHealthSnapshot;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.utils.RollingCounter;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indicateurs de santé DLQ / livraison tenus en mémoire (plus de COUNT(*) à chaque appel).
+ *
+ * - Backlog DLQ : incrémenté à l'insertion, décrémenté au retraitement, recalé périodiquement sur la base
+ * - Insertions DLQ, retraitements réussis / échoués, livraisons et échecs par canal : RollingCounter
+ *
+ * Métriques : notification.dlq.backlog (gauge), notification.health.rate (gauge par seconde sur 1 min,
+ * tags counter / channel, "none" hors canal).
+ */
+@Component
+public class DeliveryHealthCounters {
+
+    private static final Duration RATE_WINDOW = Duration.ofMinutes(1);
+
+    private final AtomicLong dlqBacklog = new AtomicLong();
+    private final RollingCounter dlqInserts = RollingCounter.withDefaultLevels();
+    private final RollingCounter reprocessSucceeded = RollingCounter.withDefaultLevels();
+    private final RollingCounter reprocessFailed = RollingCounter.withDefaultLevels();
+    private final Map<Channel, RollingCounter> channelDeliveries = new EnumMap<>(Channel.class);
+    private final Map<Channel, RollingCounter> channelFailures = new EnumMap<>(Channel.class);
+
+    public DeliveryHealthCounters(MeterRegistry meterRegistry) {
+        for (Channel channel : Channel.values()) {
+            channelDeliveries.put(channel, RollingCounter.withDefaultLevels());
+            channelFailures.put(channel, RollingCounter.withDefaultLevels());
+            registerRate(meterRegistry, "channel.deliveries", channel, channelDeliveries.get(channel));
+            registerRate(meterRegistry, "channel.failures", channel, channelFailures.get(channel));
+        }
+        Gauge.builder("notification.dlq.backlog", dlqBacklog, AtomicLong::get)
+                .description("Unprocessed DLQ messages (in-memory, reconciled with the database)")
+                .register(meterRegistry);
+        registerRate(meterRegistry, "dlq.inserts", null, dlqInserts);
+        registerRate(meterRegistry, "dlq.reprocess.succeeded", null, reprocessSucceeded);
+        registerRate(meterRegistry, "dlq.reprocess.failed", null, reprocessFailed);
+    }
+
+    public void dlqInserted() {
+        dlqBacklog.incrementAndGet();
+        dlqInserts.increment();
+    }
+
+    /**
+     * Message rejoué (compté comme retraité à l'acquittement Kafka) de nouveau en échec au traitement.
+     */
+    public void dlqReopened() {
+        dlqBacklog.incrementAndGet();
+        reprocessFailed.increment();
+    }
+
+    public void dlqReprocessed(boolean success) {
+        if (success) {
+            dlqBacklog.decrementAndGet();
+            reprocessSucceeded.increment();
+        } else {
+            reprocessFailed.increment();
+        }
+    }
+
+    /**
+     * Recalage sur le COUNT(*) de la base (messages insérés / traités par d'autres instances).
+     */
+    public void reconcileDlqBacklog(long unprocessedInDatabase) {
+        dlqBacklog.set(unprocessedInDatabase);
+    }
+
+    public void deliveries(Channel channel, int sent, int failed) {
+        channelDeliveries.get(channel).add(sent + failed);
+        if (failed > 0) {
+            channelFailures.get(channel).add(failed);
+        }
+    }
+
+    public long getDlqBacklog() {
+        return dlqBacklog.get();
+    }
+
+    public DeliveryHealthSnapshot snapshot(Duration window) {
+        Map<Channel, Long> deliveries = new EnumMap<>(Channel.class);
+        Map<Channel, Long> failures = new EnumMap<>(Channel.class);
+        Map<Channel, Double> failureRates = new EnumMap<>(Channel.class);
+        for (Channel channel : Channel.values()) {
+            long delivered = channelDeliveries.get(channel).sum(window);
+            long failed = channelFailures.get(channel).sum(window);
+            deliveries.put(channel, delivered);
+            failures.put(channel, failed);
+            failureRates.put(channel, delivered == 0 ? 0.0 : (double) failed / delivered);
+        }
+        return DeliveryHealthSnapshot.builder()
+                .windowSeconds(window.toSeconds())
+                .dlqBacklog(dlqBacklog.get())
+                .dlqInserts(dlqInserts.sum(window))
+                .reprocessSucceeded(reprocessSucceeded.sum(window))
+                .reprocessFailed(reprocessFailed.sum(window))
+                .channelDeliveries(deliveries)
+                .channelFailures(failures)
+                .channelFailureRates(failureRates)
+                .build();
+    }
+
+    private static void registerRate(MeterRegistry meterRegistry, String name, Channel channel, RollingCounter counter) {
+        Gauge.builder("notification.health.rate", counter, c -> c.ratePerSecond(RATE_WINDOW))
+                .tag("counter", name)
+                .tag("channel", channel != null ? channel.name() : "none")
+                .baseUnit("per_second")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,117 @@
+package ma.fstt.notificationservice.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.entities.DeliveryOutbox;
+import ma.fstt.notificationservice.enums.Priority;
+import ma.fstt.notificationservice.repositories.DeliveryOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Écriture et acquittement des tâches d'outbox.
+ *
+ * - record() est appelé dans la transaction qui persiste les destinataires ; le bail initial
+ *   (redelivery-delay-seconds) est ensuite prolongé par le DeliveryDispatcher tant que la tâche
+ *   est en file ou en cours d'envoi (renewLeases) : le relais ne reprend que les tâches perdues
+ *   avec leur instance
+ * - complete() met l'identifiant en attente ; les suppressions sont regroupées
+ *   en un DELETE ... WHERE id IN (...) périodique
+ * - retryLater() garde la tâche ouverte après un échec d'envoi et la reporte
+ *   (backoff exponentiel sur le nombre de tentatives du relais)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeliveryOutboxService {
+
+    private final DeliveryOutboxRepository outboxRepository;
+    private final Queue<Long> completed = new ConcurrentLinkedQueue<>();
+
+    // Délai avant que le relais ne reprenne une tâche non acquittée
+    @Value("${notification.outbox.redelivery-delay-seconds:60}")
+    private long redeliveryDelaySeconds;
+
+    @Value("${notification.outbox.delete-batch-size:1000}")
+    private int deleteBatchSize;
+
+    @Value("${notification.outbox.retry-backoff-seconds:30}")
+    private long retryBackoffSeconds;
+
+    @Value("${notification.outbox.max-retry-backoff-seconds:3600}")
+    private long maxRetryBackoffSeconds;
+
+    public Long record(Long notificationId, Long firstUserNotificationId, Long lastUserNotificationId,
+                       Priority priority) {
+        DeliveryOutbox outbox = DeliveryOutbox.builder()
+                .notificationId(notificationId)
+                .firstUserNotificationId(firstUserNotificationId)
+                .lastUserNotificationId(lastUserNotificationId)
+                .priority(priority)
+                .availableAt(LocalDateTime.now().plusSeconds(redeliveryDelaySeconds))
+                .attempts(0)
+                .build();
+        return outboxRepository.save(outbox).getId();
+    }
+
+    public void complete(Long outboxId) {
+        if (outboxId != null) {
+            completed.add(outboxId);
+        }
+    }
+
+    /**
+     * Reporte la tâche pour que le relais reprenne ses destinataires en échec.
+     * Appelé dans la transaction qui marque ces destinataires FAILED.
+     */
+    @Transactional
+    public void retryLater(Long outboxId) {
+        if (outboxId == null) {
+            return;
+        }
+        outboxRepository.findById(outboxId).ifPresent(outbox -> {
+            long delay = Math.min(maxRetryBackoffSeconds,
+                    retryBackoffSeconds << Math.min(outbox.getAttempts(), 20));
+            outbox.setAvailableAt(LocalDateTime.now().plusSeconds(delay));
+            log.info("Outbox task kept for retry: id={}, attempts={}, delaySeconds={}",
+                    outboxId, outbox.getAttempts(), delay);
+        });
+    }
+
+    /**
+     * Prolonge le bail des tâches détenues par ce dispatcher jusqu'à now + redelivery-delay-seconds.
+     */
+    @Transactional
+    public void renewLeases(Collection<Long> outboxIds) {
+        LocalDateTime leaseUntil = LocalDateTime.now().plusSeconds(redeliveryDelaySeconds);
+        List<Long> ids = new ArrayList<>(outboxIds);
+        for (int from = 0; from < ids.size(); from += deleteBatchSize) {
+            outboxRepository.extendLease(ids.subList(from, Math.min(from + deleteBatchSize, ids.size())), leaseUntil);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.outbox.delete-interval:1000}")
+    public void flushCompleted() {
+        List<Long> ids = new ArrayList<>(deleteBatchSize);
+        Long id;
+        while ((id = completed.poll()) != null) {
+            ids.add(id);
+            if (ids.size() == deleteBatchSize) {
+                outboxRepository.deleteAllByIdInBatch(ids);
+                ids = new ArrayList<>(deleteBatchSize);
+            }
+        }
+        if (!ids.isEmpty()) {
+            outboxRepository.deleteAllByIdInBatch(ids);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ma.fstt.notificationservice.services;
+
+import ma.fstt.notificationservice.dto.NotificationContent;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.Priority;
+
+import java.util.List;
+
+/**
+ * Lot de destinataires d'une notification à délivrer après commit.
+ *
+ * @param content    contenu partagé (déjà rendu)
+ * @param recipients destinataires du lot (ligne user_notifications + canal)
+ * @param priority   voie de livraison
+ * @param enqueuedAt instant de mise en file (System.nanoTime), pour la mesure de latence
+ * @param outboxId   tâche d'outbox à acquitter une fois la livraison effectuée
+ */
+public record DeliveryTask(NotificationContent content,
+                           List<Recipient> recipients,
+                           Priority priority,
+                           long enqueuedAt,
+                           Long outboxId) {
+
+    public record Recipient(Long userNotificationId, Long userId, Channel channel) {
+    }
+}
@@ -0,0 +1,296 @@
+package ma.fstt.notificationservice.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.dto.NotificationEvent;
+import ma.fstt.notificationservice.entities.DeadLetterQueue;
+import ma.fstt.notificationservice.repositories.DeadLetterQueueRepository;
+import ma.fstt.notificationservice.utils.TokenBucket;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rejeu de la DLQ vers Kafka (topic d'origine ou topic de rejeu).
+ *
+ * - Lots réclamés avec SKIP LOCKED dans une transaction courte qui pose un bail (replay_lease_until) :
+ *   aucun verrou n'est tenu pendant l'attente des acquittements Kafka
+ * - Débit plafonné par un TokenBucket, la reprise après incident est étalée sur le consumer group
+ * - Envois asynchrones, nombre d'envois en vol borné (sémaphore max-in-flight) : le lot suivant est réclamé
+ *   sans attendre les acquittements du précédent ; état DLQ mis à jour par lot d'issues reçues
+ * - Filtres optionnels : empreinte d'erreur, topic, intervalle de date d'échec
+ * - Le rejeu s'arrête au premier envoi en échec (broker indisponible) pour ne pas épuiser les tentatives
+ * - Seul un échec d'envoi consomme une tentative ; un envoi sans acquittement à la fin du rejeu (send-timeout-ms)
+ *   garde son bail et son issue tardive est appliquée au rejeu suivant (sans bail expiré, pas de double republication)
+ */
+@Service
+@Slf4j
+public class DlqReplayService {
+
+    public static final String DLQ_ID_HEADER = "dlq-id";
+    public static final String DLQ_REPLAY_COUNT_HEADER = "dlq-replay-count";
+
+    private final DeadLetterQueueRepository dlqRepository;
+    private final KafkaTemplate<String, NotificationEvent> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final DeliveryHealthCounters healthCounters;
+    private final RecipientListStore recipientListStore;
+    private final TokenBucket rateLimiter;
+    private final Semaphore inFlight;
+    private final Counter replayCounter;
+    private final int batchSize;
+    private final Queue<Settlement> settlements = new ConcurrentLinkedQueue<>();
+
+    @Value("${dlq.max-retries:5}")
+    private Integer maxRetries;
+
+    // Vide : republication sur le topic d'origine ; sinon consommé par NotificationConsumer (dlqReplayListener)
+    @Value("${dlq.replay.topic:}")
+    private String replayTopic;
+
+    @Value("${dlq.replay.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    // Doit couvrir send-timeout-ms et l'intervalle entre deux rejeux (dlq.retry-interval)
+    @Value("${dlq.replay.lease-ms:600000}")
+    private long leaseMs;
+
+    public DlqReplayService(DeadLetterQueueRepository dlqRepository,
+                            KafkaTemplate<String, NotificationEvent> kafkaTemplate,
+                            ObjectMapper objectMapper,
+                            TransactionTemplate transactionTemplate,
+                            DeliveryHealthCounters healthCounters,
+                            RecipientListStore recipientListStore,
+                            MeterRegistry meterRegistry,
+                            @Value("${dlq.replay.rate-per-second:100}") double ratePerSecond,
+                            @Value("${dlq.replay.batch-size:200}") int batchSize,
+                            @Value("${dlq.replay.max-in-flight:200}") int maxInFlight) {
+        this.dlqRepository = dlqRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.healthCounters = healthCounters;
+        this.recipientListStore = recipientListStore;
+        this.rateLimiter = new TokenBucket(ratePerSecond, Math.max(1, (int) ratePerSecond));
+        this.batchSize = batchSize;
+        // Plusieurs lots peuvent être en vol : la borne ne dépend pas de batch-size
+        this.inFlight = new Semaphore(Math.max(1, maxInFlight));
+        this.replayCounter = Counter.builder("notification.dlq.replay.sent")
+                .description("DLQ messages republished to Kafka and acknowledged")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rejoue les messages correspondant au filtre, par lots, dans la limite de filter.limit().
+     * Le lot suivant est réclamé sans attendre les acquittements du précédent : seul le sémaphore
+     * (max-in-flight) freine les envois ; les issues reçues sont appliquées entre deux réclamations.
+     *
+     * @return le nombre de messages republiés et acquittés avant la fin du rejeu
+     */
+    public int replay(Filter filter) {
+        int late = applySettlements();
+        if (late > 0) {
+            log.info("Applied late DLQ replay acks: count={}", late);
+        }
+        Run run = new Run();
+        int claimed = 0;
+        while (claimed < filter.limit() && !run.failed) {
+            int size = Math.min(batchSize, filter.limit() - claimed);
+            List<DeadLetterQueue> batch = transactionTemplate.execute(status -> claimBatch(filter, size));
+            if (batch == null || batch.isEmpty()) {
+                break;
+            }
+            claimed += batch.size();
+            sendBatch(batch, run);
+            applySettlements();
+            if (batch.size() < size) {
+                break;
+            }
+        }
+
+        // Fin du rejeu : attente des acquittements en vol, bornée par send-timeout-ms
+        try {
+            run.sends.awaitAdvanceInterruptibly(run.sends.arrive(), sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Ni rejoués ni en échec : le bail les écarte, l'acquittement tardif sera appliqué au prochain rejeu
+            log.warn("DLQ replay timed out waiting for acks: pending={}", run.sends.getUnarrivedParties());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        applySettlements();
+
+        int replayed = run.replayed.get();
+        if (replayed > 0) {
+            log.info("DLQ messages replayed to Kafka: count={}, filter={}", replayed, filter);
+        }
+        return replayed;
+    }
+
+    /**
+     * Réclame un lot (SKIP LOCKED) et pose un bail de rejeu : les verrous sont relâchés au commit,
+     * avant les envois, et le bail écarte ces lignes des autres réclamations jusqu'à leur acquittement.
+     */
+    private List<DeadLetterQueue> claimBatch(Filter filter, int size) {
+        LocalDateTime now = LocalDateTime.now();
+        List<DeadLetterQueue> batch = dlqRepository.claimReplayable(maxRetries, filter.errorFingerprint(),
+                filter.topic(), filter.from(), filter.to(), now, PageRequest.of(0, size));
+        if (!batch.isEmpty()) {
+            dlqRepository.markReplayClaimed(batch.stream().map(DeadLetterQueue::getId).toList(),
+                    now.plus(Duration.ofMillis(leaseMs)));
+        }
+        return batch;
+    }
+
+    /**
+     * Envois asynchrones du lot : le producer regroupe les records (linger / batch.size),
+     * le sémaphore borne l'en-vol ; chaque issue est déposée dans settlements.
+     */
+    private void sendBatch(List<DeadLetterQueue> batch, Run run) {
+        for (DeadLetterQueue dlq : batch) {
+            Long id = dlq.getId();
+            NotificationEvent event;
+            try {
+                // Liste de destinataires trop volumineuse : déposée hors message, seule la référence est publiée
+                event = recipientListStore.offloadIfOversized(
+                        objectMapper.readValue(dlq.getPayload(), NotificationEvent.class));
+            } catch (Exception e) {
+                settle(run, id, e);
+                continue;
+            }
+
+            rateLimiter.acquire(1);
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                settle(run, id, e);
+                continue;
+            }
+
+            run.sends.register();
+            try {
+                kafkaTemplate.send(toRecord(dlq, event)).whenComplete((result, error) -> {
+                    inFlight.release();
+                    settle(run, id, error);
+                    run.sends.arriveAndDeregister();
+                });
+            } catch (Exception e) {
+                inFlight.release();
+                settle(run, id, e);
+                run.sends.arriveAndDeregister();
+            }
+        }
+    }
+
+    /**
+     * Issue d'un envoi (thread I/O du producer : aucune écriture en base dans le callback) ;
+     * un échec arrête les réclamations du rejeu en cours.
+     */
+    private void settle(Run run, Long id, Throwable error) {
+        if (error != null) {
+            log.error("Failed to replay DLQ message: id={}", id, error);
+            run.failed = true;
+        } else {
+            run.replayed.incrementAndGet();
+        }
+        settlements.add(new Settlement(id, error));
+    }
+
+    /**
+     * Mise à jour groupée de l'état DLQ (un UPDATE ... WHERE id IN pour les rejoués, un par message d'erreur).
+     */
+    private void apply(List<Long> replayedIds, Map<String, List<Long>> failedIdsByError) {
+        if (!replayedIds.isEmpty()) {
+            dlqRepository.markReplayed(replayedIds, LocalDateTime.now());
+            replayedIds.forEach(id -> healthCounters.dlqReprocessed(true));
+            replayCounter.increment(replayedIds.size());
+        }
+        for (Map.Entry<String, List<Long>> entry : failedIdsByError.entrySet()) {
+            dlqRepository.markReplayFailed(entry.getValue(), entry.getKey());
+            entry.getValue().forEach(id -> healthCounters.dlqReprocessed(false));
+        }
+    }
+
+    /**
+     * Applique les issues reçues depuis le dernier passage, y compris celles arrivées
+     * après la fin d'un rejeu précédent.
+     *
+     * @return le nombre d'issues appliquées
+     */
+    private int applySettlements() {
+        List<Long> replayedIds = new ArrayList<>();
+        Map<String, List<Long>> failedIdsByError = new HashMap<>();
+        int count = 0;
+        for (Settlement settlement = settlements.poll(); settlement != null; settlement = settlements.poll()) {
+            count++;
+            if (settlement.error() == null) {
+                replayedIds.add(settlement.id());
+            } else {
+                failedIdsByError.computeIfAbsent(errorMessage(settlement.error()), m -> new ArrayList<>())
+                        .add(settlement.id());
+            }
+        }
+        if (count > 0) {
+            transactionTemplate.executeWithoutResult(status -> apply(replayedIds, failedIdsByError));
+        }
+        return count;
+    }
+
+    private static String errorMessage(Throwable error) {
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+
+    private ProducerRecord<String, NotificationEvent> toRecord(DeadLetterQueue dlq, NotificationEvent event) {
+        String topic = replayTopic.isBlank() ? dlq.getTopic() : replayTopic;
+        ProducerRecord<String, NotificationEvent> record = new ProducerRecord<>(topic, dlq.getKafkaKey(), event);
+        record.headers().add(DLQ_ID_HEADER, String.valueOf(dlq.getId()).getBytes(StandardCharsets.UTF_8));
+        record.headers().add(DLQ_REPLAY_COUNT_HEADER,
+                String.valueOf(dlq.getRetryCount() + 1).getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+
+    /**
+     * Critères de rejeu ; un critère null est ignoré.
+     */
+    public record Filter(String errorFingerprint, String topic, LocalDateTime from, LocalDateTime to, int limit) {
+
+        public static Filter all(int limit) {
+            return new Filter(null, null, null, null, limit);
+        }
+    }
+
+    private record Settlement(Long id, Throwable error) {
+    }
+
+    /**
+     * État d'un appel à replay : envois en vol (un participant du Phaser par envoi, plus l'appelant),
+     * échec observé, messages rejoués acquittés.
+     */
+    private static final class Run {
+
+        private final Phaser sends = new Phaser(1);
+        private final AtomicInteger replayed = new AtomicInteger();
+        private volatile boolean failed;
+    }
+}
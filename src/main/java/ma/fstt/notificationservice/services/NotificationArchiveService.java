@@ -0,0 +1,152 @@
+package ma.fstt.notificationservice.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.config.RetentionProperties;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.entities.ArchivedUserNotification;
+import ma.fstt.notificationservice.entities.Notification;
+import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.enums.Status;
+import ma.fstt.notificationservice.repositories.ArchivedUserNotificationRepository;
+import ma.fstt.notificationservice.repositories.NotificationRepository;
+import ma.fstt.notificationservice.repositories.UserNotificationRepository;
+import ma.fstt.notificationservice.services.NotificationTemplateService.RenderedNotification;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Job de rétention : déplace les notifications lues et anciennes vers la table d'archive.
+ *
+ * - Traitement par lots, une transaction par lot (verrous courts sur la table chaude)
+ * - Lots réclamés avec SKIP LOCKED : le job peut tourner sur toutes les instances sans collision
+ * - Durée de rétention configurable par EventType (RetentionProperties)
+ * - Contenu archivé en JSON compressé GZIP
+ * - Les notifications sans plus aucun destinataire actif sont ensuite purgées
+ *
+ * La table user_notifications ne contient ainsi que les données récentes,
+ * sur lesquelles portent les requêtes chaudes (compteur non lus, flux).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationArchiveService {
+
+    private final UserNotificationRepository userNotificationRepository;
+    private final NotificationRepository notificationRepository;
+    private final ArchivedUserNotificationRepository archiveRepository;
+    private final NotificationTemplateService templateService;
+    private final RetentionProperties retentionProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Scheduled(fixedDelayString = "${notification.retention.interval:3600000}") // 1 heure par défaut
+    public void archiveReadNotifications() {
+        if (!retentionProperties.isEnabled()) {
+            return;
+        }
+
+        int minDays = Integer.MAX_VALUE;
+        long total = 0;
+
+        for (EventType eventType : EventType.values()) {
+            int days = retentionProperties.daysFor(eventType);
+            minDays = Math.min(minDays, days);
+            total += archiveEventType(eventType, LocalDateTime.now().minusDays(days));
+        }
+
+        LocalDateTime orphanBefore = LocalDateTime.now().minusDays(minDays);
+        Integer purged = transactionTemplate.execute(status ->
+                notificationRepository.deleteOrphansCreatedBefore(orphanBefore));
+
+        if (total > 0 || (purged != null && purged > 0)) {
+            log.info("Retention run completed: archived={}, purgedNotifications={}", total, purged);
+        }
+    }
+
+    private long archiveEventType(EventType eventType, LocalDateTime before) {
+        long archived = 0;
+        while (true) {
+            Integer moved = transactionTemplate.execute(status -> archiveBatch(eventType, before));
+            if (moved == null || moved == 0) {
+                break;
+            }
+            archived += moved;
+            if (moved < retentionProperties.getBatchSize()) {
+                break;
+            }
+        }
+        if (archived > 0) {
+            log.info("Archived read notifications: eventType={}, before={}, count={}", eventType, before, archived);
+        }
+        return archived;
+    }
+
+    private int archiveBatch(EventType eventType, LocalDateTime before) {
+        List<UserNotification> batch = userNotificationRepository.claimArchivable(
+                Status.READ, eventType, before, PageRequest.of(0, retentionProperties.getBatchSize()));
+
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ArchivedUserNotification> archives = new ArrayList<>(batch.size());
+        List<Long> ids = new ArrayList<>(batch.size());
+
+        for (UserNotification un : batch) {
+            archives.add(ArchivedUserNotification.builder()
+                    .id(un.getId())
+                    .userId(un.getUserId())
+                    .notificationId(un.getNotification().getId())
+                    .eventType(eventType)
+                    .channel(un.getChannel())
+                    .sentAt(un.getSentAt())
+                    .archivedAt(now)
+                    .payload(compress(un))
+                    .build());
+            ids.add(un.getId());
+        }
+
+        archiveRepository.saveAll(archives);
+        userNotificationRepository.deleteAllByIdInBatch(ids);
+        return batch.size();
+    }
+
+    private byte[] compress(UserNotification un) {
+        Notification notification = un.getNotification();
+        RenderedNotification rendered = templateService.render(notification);
+
+        NotificationDTO dto = NotificationDTO.builder()
+                .id(un.getId())
+                .userId(un.getUserId())
+                .eventType(notification.getEventType())
+                .templateId(notification.getTemplateId())
+                .title(rendered.title())
+                .message(rendered.message())
+                .status(un.getStatus())
+                .sentAt(un.getSentAt())
+                .metadata(notification.getMetadata())
+                .build();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, dto);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to compress archived notification id=" + un.getId(), e);
+        }
+        return bytes.toByteArray();
+    }
+}
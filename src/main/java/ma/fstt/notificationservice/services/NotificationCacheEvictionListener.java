@@ -0,0 +1,28 @@
+package ma.fstt.notificationservice.services;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import ma.fstt.notificationservice.entities.Notification;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA invalidant le cache de contenu lorsqu'une notification est modifiée
+ * (ex: NotificationEventMapper.updateEntityFromDto suivi d'un flush) ou supprimée.
+ */
+@Component
+public class NotificationCacheEvictionListener {
+
+    private final NotificationContentCache contentCache;
+
+    // @Lazy : le listener est créé par l'EntityManagerFactory dont dépend le cache
+    public NotificationCacheEvictionListener(@Lazy NotificationContentCache contentCache) {
+        this.contentCache = contentCache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void evict(Notification notification) {
+        contentCache.evict(notification.getId());
+    }
+}
@@ -0,0 +1,230 @@
+package ma.fstt.notificationservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.channels.ChannelSender;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.enums.SlowConsumerPolicy;
+import ma.fstt.notificationservice.enums.Status;
+import ma.fstt.notificationservice.repositories.UserNotificationRepository;
+import ma.fstt.notificationservice.services.NotificationTemplateService.RenderedNotification;
+import ma.fstt.notificationservice.utils.TokenBucket;
+import ma.fstt.notificationservice.websocket.SlowConsumerRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Étage de limitation et de regroupement des envois par (userId, canal).
+ *
+ * - Un seau à jetons par (userId, canal) : tant qu'il reste des jetons, le message part immédiatement
+ * - Au-delà, les messages sont retenus par EventType et fusionnés en un résumé
+ *   ("12 nouvelles notifications") émis à la fin de la fenêtre
+ * - Les lignes retenues restent non envoyées (sentAt vide) jusqu'à l'envoi réussi du résumé, qui les
+ *   marque envoyées : après un redémarrage ou un résumé en échec, le relais d'outbox les reprend.
+ *   window-ms doit rester inférieur à notification.outbox.redelivery-delay-seconds
+ * - Politique COALESCE : un utilisateur dont la session WebSocket est lente ne reçoit que des résumés
+ * - Le texte du résumé est rendu par le NotificationTemplateService (modèle DIGEST, langue du message)
+ * - État par clé sans verrou (TokenBucket CAS, files concurrentes), mémoire bornée (Caffeine maximumSize) ;
+ *   une clé évincée avec des messages en attente est résumée au flush suivant plutôt que perdue
+ *
+ * Les lignes user_notifications restent persistées individuellement : seul l'envoi est regroupé.
+ */
+@Service
+@Slf4j
+public class NotificationCoalescer {
+
+    private final List<ChannelSender> channelSenders;
+    private final SlowConsumerRegistry slowConsumerRegistry;
+    private final NotificationTemplateService templateService;
+    private final UserNotificationRepository userNotificationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Cache<CoalesceKey, KeyState> states;
+    private final Queue<CoalesceKey> pendingKeys = new ConcurrentLinkedQueue<>();
+    private final Queue<Map.Entry<CoalesceKey, KeyState>> evictedStates = new ConcurrentLinkedQueue<>();
+    private final Counter coalescedCounter;
+    private final Counter digestCounter;
+
+    @Value("${notification.coalescing.enabled:true}")
+    private boolean enabled;
+
+    private final double ratePerSecond;
+    private final int burst;
+
+    public NotificationCoalescer(
+            List<ChannelSender> channelSenders,
+            SlowConsumerRegistry slowConsumerRegistry,
+            NotificationTemplateService templateService,
+            UserNotificationRepository userNotificationRepository,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${notification.coalescing.rate-per-minute:30}") double ratePerMinute,
+            @Value("${notification.coalescing.burst:10}") int burst,
+            @Value("${notification.coalescing.max-keys:100000}") long maxKeys) {
+        this.channelSenders = channelSenders;
+        this.slowConsumerRegistry = slowConsumerRegistry;
+        this.templateService = templateService;
+        this.userNotificationRepository = userNotificationRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.ratePerSecond = ratePerMinute / 60.0;
+        this.burst = burst;
+        this.states = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .evictionListener((CoalesceKey key, KeyState state, RemovalCause cause) -> {
+                    if (key != null && state != null && state.hasPending()) {
+                        evictedStates.add(Map.entry(key, state));
+                    }
+                })
+                .build();
+        this.coalescedCounter = Counter.builder("notification.coalescing.coalesced")
+                .description("Messages merged into a digest instead of being sent individually")
+                .register(meterRegistry);
+        this.digestCounter = Counter.builder("notification.coalescing.digests")
+                .description("Digest messages sent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Filtre les messages d'un canal : renvoie ceux à envoyer immédiatement,
+     * les autres étant différés dans un résumé (leur ligne reste non envoyée jusque-là).
+     */
+    public List<NotificationDTO> admit(Channel channel, List<NotificationDTO> messages) {
+        if (!enabled) {
+            return messages;
+        }
+
+        List<NotificationDTO> admitted = new ArrayList<>(messages.size());
+        for (NotificationDTO message : messages) {
+            CoalesceKey key = new CoalesceKey(message.getUserId(), channel);
+            KeyState state = states.get(key, k -> new KeyState(new TokenBucket(ratePerSecond, burst)));
+
+            boolean slowConsumer = channel == Channel.PUSH
+                    && slowConsumerRegistry.getPolicy() == SlowConsumerPolicy.COALESCE
+                    && slowConsumerRegistry.isSlowUser(message.getUserId());
+
+            if (!slowConsumer && state.bucket.tryAcquire()) {
+                admitted.add(message);
+            } else {
+                PendingKey pendingKey = new PendingKey(message.getEventType(),
+                        NotificationTemplateService.localeOf(message.getTemplateId()));
+                state.pending.computeIfAbsent(pendingKey, k -> new ConcurrentLinkedQueue<>())
+                        .add(message.getId());
+                if (state.queued.compareAndSet(false, true)) {
+                    pendingKeys.add(key);
+                }
+                coalescedCounter.increment();
+            }
+        }
+        return admitted;
+    }
+
+    /**
+     * Émet un résumé par (userId, canal, EventType) pour les messages différés de la fenêtre écoulée,
+     * y compris ceux des clés évincées depuis le dernier passage. Les lignes d'un résumé envoyé
+     * sont marquées envoyées ; celles d'un résumé en échec restent au relais d'outbox.
+     */
+    @Scheduled(fixedDelayString = "${notification.coalescing.window-ms:10000}")
+    public void flushDigests() {
+        Map<Channel, List<NotificationDTO>> digestsByChannel = new EnumMap<>(Channel.class);
+        Map<NotificationDTO, List<Long>> rowsByDigest = new IdentityHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        CoalesceKey key;
+        while ((key = pendingKeys.poll()) != null) {
+            KeyState state = states.getIfPresent(key);
+            if (state == null) {
+                continue;
+            }
+            state.queued.set(false);
+            collectDigests(key, state, digestsByChannel, rowsByDigest, now);
+        }
+
+        Map.Entry<CoalesceKey, KeyState> evicted;
+        while ((evicted = evictedStates.poll()) != null) {
+            collectDigests(evicted.getKey(), evicted.getValue(), digestsByChannel, rowsByDigest, now);
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        digestsByChannel.forEach((channel, digests) -> {
+            for (ChannelSender sender : channelSenders) {
+                if (sender.getChannel() == channel) {
+                    Set<NotificationDTO> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+                    failed.addAll(sender.send(digests).unsent());
+                    digests.stream()
+                            .filter(digest -> !failed.contains(digest))
+                            .forEach(digest -> sentIds.addAll(rowsByDigest.get(digest)));
+                    digestCounter.increment(digests.size() - failed.size());
+                    log.info("Digests sent: channel={}, digests={}, failed={}", channel, digests.size(), failed.size());
+                }
+            }
+        });
+
+        if (!sentIds.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> userNotificationRepository.markSent(sentIds, now));
+        }
+    }
+
+    private void collectDigests(CoalesceKey key, KeyState state, Map<Channel, List<NotificationDTO>> digestsByChannel,
+                                Map<NotificationDTO, List<Long>> rowsByDigest, LocalDateTime now) {
+        for (Map.Entry<PendingKey, Queue<Long>> entry : state.pending.entrySet()) {
+            List<Long> rows = new ArrayList<>();
+            Long rowId;
+            while ((rowId = entry.getValue().poll()) != null) {
+                rows.add(rowId);
+            }
+            int count = rows.size();
+            if (count == 0) {
+                continue;
+            }
+            EventType eventType = entry.getKey().eventType();
+            RenderedNotification rendered = templateService.renderDigest(eventType, entry.getKey().locale(), count);
+            NotificationDTO digest = NotificationDTO.builder()
+                    .userId(key.userId())
+                    .eventType(eventType)
+                    .title(rendered.title())
+                    .message(rendered.message())
+                    .status(Status.UNREAD)
+                    .sentAt(now)
+                    .metadata(Map.of("digest", "true", "count", String.valueOf(count)))
+                    .build();
+            digestsByChannel.computeIfAbsent(key.channel(), c -> new ArrayList<>()).add(digest);
+            rowsByDigest.put(digest, rows);
+        }
+    }
+
+    private record CoalesceKey(Long userId, Channel channel) {
+    }
+
+    private record PendingKey(EventType eventType, String locale) {
+    }
+
+    private static final class KeyState {
+        private final TokenBucket bucket;
+        // Lignes user_notifications retenues, par (EventType, langue)
+        private final Map<PendingKey, Queue<Long>> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        private KeyState(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+
+        private boolean hasPending() {
+            return pending.values().stream().anyMatch(rows -> !rows.isEmpty());
+        }
+    }
+}
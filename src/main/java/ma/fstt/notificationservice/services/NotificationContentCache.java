@@ -0,0 +1,97 @@
+package ma.fstt.notificationservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.dto.NotificationContent;
+import ma.fstt.notificationservice.entities.Notification;
+import ma.fstt.notificationservice.repositories.NotificationRepository;
+import ma.fstt.notificationservice.services.NotificationTemplateService.RenderedNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache applicatif (Caffeine) du contenu des notifications.
+ *
+ * - Une notification diffusée à N utilisateurs n'est chargée qu'une fois pour tous les flux
+ * - Les absences sont chargées en une seule requête (findAllById)
+ * - Éviction par taille et TTL, statistiques exposées dans Micrometer (cache "notification.content")
+ * - Invalidation sur mise à jour via NotificationCacheEvictionListener
+ */
+@Service
+@Slf4j
+public class NotificationContentCache {
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationTemplateService templateService;
+    private final Cache<Long, NotificationContent> cache;
+
+    public NotificationContentCache(
+            NotificationRepository notificationRepository,
+            NotificationTemplateService templateService,
+            MeterRegistry meterRegistry,
+            @Value("${notification.content-cache.max-size:50000}") long maxSize,
+            @Value("${notification.content-cache.ttl-minutes:60}") long ttlMinutes) {
+        this.notificationRepository = notificationRepository;
+        this.templateService = templateService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "notification.content");
+    }
+
+    /**
+     * Contenu des notifications demandées ; les absences sont chargées en lot.
+     */
+    public Map<Long, NotificationContent> getAll(Collection<Long> notificationIds) {
+        return cache.getAll(notificationIds, this::loadAll);
+    }
+
+    /**
+     * Alimente le cache à partir d'une entité déjà chargée (ex: juste après persistance).
+     */
+    public NotificationContent put(Notification notification) {
+        NotificationContent content = toContent(notification);
+        cache.put(notification.getId(), content);
+        return content;
+    }
+
+    public void evict(Long notificationId) {
+        cache.invalidate(notificationId);
+        log.debug("Notification content evicted from cache: id={}", notificationId);
+    }
+
+    private Map<Long, NotificationContent> loadAll(Set<? extends Long> notificationIds) {
+        Map<Long, NotificationContent> loaded = new HashMap<>();
+        for (Notification notification : notificationRepository.findAllById(Set.copyOf(notificationIds))) {
+            loaded.put(notification.getId(), toContent(notification));
+        }
+        return loaded;
+    }
+
+    private NotificationContent toContent(Notification notification) {
+        RenderedNotification rendered = templateService.render(notification);
+        return NotificationContent.builder()
+                .id(notification.getId())
+                .eventType(notification.getEventType())
+                .templateId(notification.getTemplateId())
+                .title(rendered.title())
+                .message(rendered.message())
+                .metadata(notification.getMetadata() != null
+                        ? Collections.unmodifiableMap(new LinkedHashMap<>(notification.getMetadata()))
+                        : null)
+                .build();
+    }
+}
@@ -0,0 +1,148 @@
+package ma.fstt.notificationservice.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.channels.ChannelSender;
+import ma.fstt.notificationservice.channels.SendResult;
+import ma.fstt.notificationservice.dto.NotificationContent;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.Status;
+import ma.fstt.notificationservice.repositories.UserNotificationRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Livraison d'un lot de destinataires sur leurs canaux, puis mise à jour groupée des statuts.
+ *
+ * - Regroupement par canal et délégation au ChannelSender correspondant
+ * - Passage par le NotificationCoalescer (débit par utilisateur / résumés) : les lignes retenues pour un
+ *   résumé restent non envoyées et la tâche d'outbox reste ouverte ; le relais l'acquitte une fois toutes
+ *   ses lignes envoyées, ou reprend celles d'un résumé jamais parti
+ * - Statuts mis à jour en deux requêtes UPDATE ... WHERE id IN (...) par lot
+ * - Tâche d'outbox acquittée si tout est parti, sinon reportée pour que le relais reprenne les échecs
+ *   temporaires ; les rejets définitifs (canal non configuré, contact manquant) passent FAILED sans relance
+ * - Flux en cache (UserFeedCache) et anneau de reprise (RecentNotificationBuffer)
+ *   mis à jour une fois les statuts validés
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationDeliveryService {
+
+    private final List<ChannelSender> channelSenders;
+    private final NotificationCoalescer coalescer;
+    private final UserNotificationRepository userNotificationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final DeliveryOutboxService outboxService;
+    private final UserFeedVersionTracker versionTracker;
+    private final UserFeedCache feedCache;
+    private final RecentNotificationBuffer recentBuffer;
+    private final DeliveryHealthCounters healthCounters;
+
+    public void deliver(DeliveryTask task) {
+        NotificationContent content = task.content();
+        LocalDateTime sentAt = LocalDateTime.now();
+
+        Map<Channel, List<NotificationDTO>> messagesByChannel = new EnumMap<>(Channel.class);
+        for (DeliveryTask.Recipient recipient : task.recipients()) {
+            messagesByChannel.computeIfAbsent(recipient.channel(), c -> new ArrayList<>())
+                    .add(NotificationDTO.builder()
+                            .id(recipient.userNotificationId())
+                            .userId(recipient.userId())
+                            .eventType(content.getEventType())
+                            .templateId(content.getTemplateId())
+                            .title(content.getTitle())
+                            .message(content.getMessage())
+                            .status(Status.UNREAD)
+                            .sentAt(sentAt)
+                            .metadata(content.getMetadata())
+                            .build());
+        }
+
+        Set<Long> failedIds = new HashSet<>();
+        Set<Long> rejectedIds = new HashSet<>();
+        Set<Long> coalescedIds = new HashSet<>();
+        messagesByChannel.forEach((channel, messages) -> {
+            ChannelSender sender = senderFor(channel);
+            // Au-delà du débit autorisé par utilisateur, les messages sont regroupés en résumé
+            List<NotificationDTO> toSend = coalescer.admit(channel, messages);
+            if (toSend.size() < messages.size()) {
+                Set<Long> admittedIds = new HashSet<>();
+                toSend.forEach(message -> admittedIds.add(message.getId()));
+                messages.stream()
+                        .map(NotificationDTO::getId)
+                        .filter(id -> !admittedIds.contains(id))
+                        .forEach(coalescedIds::add);
+            }
+            SendResult result = sender != null ? sender.send(toSend) : SendResult.rejected(toSend);
+            result.failed().forEach(message -> failedIds.add(message.getId()));
+            result.rejected().forEach(message -> rejectedIds.add(message.getId()));
+            healthCounters.deliveries(channel, toSend.size() - result.failureCount(), result.failureCount());
+        });
+
+        List<Long> sentIds = new ArrayList<>(task.recipients().size());
+        for (DeliveryTask.Recipient recipient : task.recipients()) {
+            if (failedIds.contains(recipient.userNotificationId())) {
+                log.error("Failed to send notification userId={} channel={}",
+                        recipient.userId(), recipient.channel());
+            } else if (rejectedIds.contains(recipient.userNotificationId())) {
+                log.error("Notification rejected, not retried: userId={} channel={}",
+                        recipient.userId(), recipient.channel());
+            } else if (!coalescedIds.contains(recipient.userNotificationId())) {
+                sentIds.add(recipient.userNotificationId());
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sentIds.isEmpty()) {
+                userNotificationRepository.markSent(sentIds, sentAt);
+            }
+            if (!failedIds.isEmpty() || !rejectedIds.isEmpty()) {
+                List<Long> unsentIds = new ArrayList<>(failedIds);
+                unsentIds.addAll(rejectedIds);
+                userNotificationRepository.updateStatus(unsentIds, Status.FAILED);
+            }
+            if (!failedIds.isEmpty()) {
+                outboxService.retryLater(task.outboxId());
+            } else if (!coalescedIds.isEmpty() && task.outboxId() != null) {
+                // Lignes en attente du résumé : la tâche reste ouverte, bail prolongé au-delà de la fenêtre
+                outboxService.renewLeases(List.of(task.outboxId()));
+            }
+        });
+
+        if (failedIds.isEmpty() && coalescedIds.isEmpty()) {
+            outboxService.complete(task.outboxId());
+        }
+
+        // Flux en cache : sentAt renseigné, ou statut FAILED, avant de réveiller les clients en attente
+        List<NotificationDTO> delivered = new ArrayList<>(task.recipients().size());
+        messagesByChannel.values().forEach(messages -> messages.forEach(message -> delivered.add(
+                failedIds.contains(message.getId()) || rejectedIds.contains(message.getId())
+                        ? message.toBuilder().status(Status.FAILED).sentAt(null).build()
+                        : coalescedIds.contains(message.getId()) ? message.toBuilder().sentAt(null).build() : message)));
+        feedCache.applyDelivery(delivered);
+        delivered.forEach(recentBuffer::append);
+        task.recipients().stream()
+                .map(DeliveryTask.Recipient::userId)
+                .distinct()
+                .forEach(versionTracker::bump);
+
+        log.info("Notifications sent: notificationId={}, priority={}, recipients={}, coalesced={}, failed={}, rejected={}",
+                content.getId(), task.priority(), task.recipients().size(), coalescedIds.size(), failedIds.size(),
+                rejectedIds.size());
+    }
+
+    private ChannelSender senderFor(Channel channel) {
+        for (ChannelSender sender : channelSenders) {
+            if (sender.getChannel() == channel) {
+                return sender;
+            }
+        }
+        log.warn("No sender registered for channel={}", channel);
+        return null;
+    }
+}
@@ -0,0 +1,60 @@
+package ma.fstt.notificationservice.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Calcul du delta à rejouer lors d'une reconnexion client.
+ *
+ * - Anneau mémoire (RecentNotificationBuffer) en priorité, sans accès base, quand le dernier élément
+ *   vu est couvert par l'anneau (plancher de couverture tenu à jour à l'insertion et à l'éviction)
+ * - Repli sur une requête par plage indexée (userId, id) ou (userId, sentAt), bornée
+ * - L'anneau ne voit que les livraisons de cette instance : si les livraisons d'un même utilisateur
+ *   sont réparties entre instances, notification.replay.verify-count=true confirme chaque delta
+ *   servi de mémoire par un comptage indexé
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class NotificationReplayService {
+
+    private final RecentNotificationBuffer recentBuffer;
+    private final NotificationService notificationService;
+
+    @Value("${notification.replay.max-items:200}")
+    private int maxItems;
+
+    @Value("${notification.replay.verify-count:false}")
+    private boolean verifyCount;
+
+    public List<NotificationDTO> replaySince(Long userId, Long lastSeenId) {
+        Optional<List<NotificationDTO>> buffered = recentBuffer.since(userId, lastSeenId);
+        if (buffered.isPresent() && (!verifyCount
+                || buffered.get().size() == notificationService.countNotificationsSince(userId, lastSeenId))) {
+            log.debug("Replay served from memory: userId={}, items={}", userId, buffered.get().size());
+            return buffered.get();
+        }
+        List<NotificationDTO> delta = notificationService.getNotificationsSince(userId, lastSeenId, maxItems);
+        log.info("Replay served from database: userId={}, lastSeenId={}, items={}", userId, lastSeenId, delta.size());
+        return delta;
+    }
+
+    public List<NotificationDTO> replaySince(Long userId, LocalDateTime lastSeenAt) {
+        Optional<List<NotificationDTO>> buffered = recentBuffer.since(userId, lastSeenAt);
+        if (buffered.isPresent() && (!verifyCount
+                || buffered.get().size() == notificationService.countNotificationsSince(userId, lastSeenAt))) {
+            log.debug("Replay served from memory: userId={}, items={}", userId, buffered.get().size());
+            return buffered.get();
+        }
+        List<NotificationDTO> delta = notificationService.getNotificationsSince(userId, lastSeenAt, maxItems);
+        log.info("Replay served from database: userId={}, lastSeenAt={}, items={}", userId, lastSeenAt, delta.size());
+        return delta;
+    }
+}
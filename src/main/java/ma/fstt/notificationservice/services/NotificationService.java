@@ -1,23 +1,34 @@
 package ma.fstt.notificationservice.services;
 
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.config.ReplicaRoutingDataSource;
+import ma.fstt.notificationservice.dto.NotificationContent;
 import ma.fstt.notificationservice.dto.NotificationDTO;
 import ma.fstt.notificationservice.dto.NotificationEvent;
 import ma.fstt.notificationservice.entities.Notification;
 import ma.fstt.notificationservice.entities.UserNotification;
 import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.Priority;
 import ma.fstt.notificationservice.enums.Status;
 import ma.fstt.notificationservice.exceptions.InvalidNotificationDataException;
-import ma.fstt.notificationservice.exceptions.NotificationSendException;
-import ma.fstt.notificationservice.repositories.NotificationRepository;
-import ma.fstt.notificationservice.repositories.UserNotificationRepository;
+import ma.fstt.notificationservice.repositories.NotificationStore;
+import ma.fstt.notificationservice.services.NotificationTemplateService.RenderedNotification;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,30 +36,134 @@ import java.util.stream.Collectors;
 @Slf4j
 public class NotificationService {
 
-    private final NotificationRepository notificationRepository;
-    private final UserNotificationRepository userNotificationRepository;
-    private final PushNotificationService pushNotificationService;
+    private final NotificationStore notificationStore;
+    private final DeliveryDispatcher deliveryDispatcher;
+    private final DeliveryOutboxService outboxService;
+    private final UserFeedVersionTracker versionTracker;
+    private final AudienceResolver audienceResolver;
+    private final RecipientListStore recipientListStore;
+    private final NotificationTemplateService templateService;
+    private final NotificationContentCache contentCache;
+    private final UserFeedCache feedCache;
+    private final EntityManager entityManager;
+
+    @Value("${notification.audience.chunk-size:500}")
+    private int audienceChunkSize;
 
     @Transactional
     public void processNotification(NotificationEvent event) {
 
-        if (event == null || event.getUserIds() == null || event.getUserIds().isEmpty()) {
+        if (event == null || !hasRecipients(event)) {
             throw new InvalidNotificationDataException("L'événement de notification ou les utilisateurs sont invalides.");
         }
 
-        log.info("Processing notification event: type={}, users={}",
-                event.getEventType(), event.getUserIds().size());
+        log.info("Processing notification event: type={}, users={}, audience={}, recipientsRef={}",
+                event.getEventType(),
+                event.getUserIds() != null ? event.getUserIds().size() : 0,
+                event.getAudience(),
+                event.getRecipientsRef());
+
+        Notification notification = buildNotification(event);
+
+        notificationStore.saveNotification(notification);
+        NotificationContent content = contentCache.put(notification);
+
+        // Un utilisateur présent dans plusieurs lots ou sources (userIds, liste déposée, audience) ne reçoit
+        // qu'une ligne par canal : doublons écartés dans le lot, puis par une lecture indexée des lignes déjà
+        // persistées pour cette notification dès le deuxième lot. Mémoire bornée par la taille d'un lot ;
+        // la contrainte unique (notification_id, user_id, channel) reste le dernier garde-fou
+        AtomicBoolean persisted = new AtomicBoolean();
+
+        // Destinataires explicites, découpés en lots
+        if (event.getUserIds() != null) {
+            List<Long> userIds = event.getUserIds();
+            for (int from = 0; from < userIds.size(); from += audienceChunkSize) {
+                int to = Math.min(from + audienceChunkSize, userIds.size());
+                processChunk(event, notification, content, unseen(notification, userIds.subList(from, to), persisted));
+            }
+        }
+
+        // Liste déposée hors message (claim check), relue fragment par fragment
+        if (event.getRecipientsRef() != null && !event.getRecipientsRef().isBlank()) {
+            recipientListStore.forEachChunk(event.getRecipientsRef(),
+                    chunk -> processChunk(event, notification, content, unseen(notification, chunk, persisted)));
+        }
+
+        // Destinataires du segment, expansés paresseusement par lots
+        if (event.getAudience() != null && !event.getAudience().isBlank()) {
+            audienceResolver.forEachChunk(event.getAudience(), audienceChunkSize,
+                    chunk -> processChunk(event, notification, content, unseen(notification, chunk, persisted)));
+        }
+    }
+
+    /**
+     * UserIds du lot sans doublon ni ligne déjà persistée pour la notification ;
+     * persisted : un lot précédent a écrit des lignes (sinon aucune lecture en base).
+     */
+    private List<Long> unseen(Notification notification, List<Long> chunk, AtomicBoolean persisted) {
+        Set<Long> inChunk = new LinkedHashSet<>(chunk.size());
+        for (Long userId : chunk) {
+            if (userId != null) {
+                inChunk.add(userId);
+            }
+        }
+        if (persisted.get() && !inChunk.isEmpty()) {
+            notificationStore.findRecipientUserIds(notification.getId(), inChunk).forEach(inChunk::remove);
+        }
+        if (!inChunk.isEmpty()) {
+            persisted.set(true);
+        }
+        return new ArrayList<>(inChunk);
+    }
+
+    /**
+     * Construit l'entité Notification : si un modèle existe pour le type d'événement et que
+     * l'événement ne fournit pas de texte (ou un texte identique au rendu du modèle),
+     * seul l'identifiant du modèle est persisté.
+     */
+    private Notification buildNotification(NotificationEvent event) {
+        Optional<String> templateId = templateService
+                .resolveTemplateId(event.getEventType(), event.getLocale())
+                .filter(id -> matchesTemplate(event, id));
 
-        Notification notification = Notification.builder()
+        return Notification.builder()
                 .eventType(event.getEventType())
-                .title(event.getTitle())
-                .message(event.getMessage())
+                .templateId(templateId.orElse(null))
+                .title(templateId.isPresent() ? null : event.getTitle())
+                .message(templateId.isPresent() ? null : event.getMessage())
                 .metadata(event.getMetadata())
+                .userNotifications(new ArrayList<>())
                 .build();
+    }
+
+    private boolean matchesTemplate(NotificationEvent event, String templateId) {
+        if (event.getTitle() == null && event.getMessage() == null) {
+            return true;
+        }
+        RenderedNotification rendered = templateService.render(templateId, event.getMetadata());
+        return Objects.equals(rendered.title(), event.getTitle())
+                && Objects.equals(rendered.message(), event.getMessage());
+    }
 
+    /**
+     * Un événement est valide s'il cible des utilisateurs explicites, une liste déposée ou une audience.
+     */
+    public static boolean hasRecipients(NotificationEvent event) {
+        boolean hasUsers = event.getUserIds() != null && !event.getUserIds().isEmpty();
+        boolean hasRecipientsRef = event.getRecipientsRef() != null && !event.getRecipientsRef().isBlank();
+        boolean hasAudience = event.getAudience() != null && !event.getAudience().isBlank();
+        return hasUsers || hasRecipientsRef || hasAudience;
+    }
+
+    /**
+     * Persiste un lot de destinataires et planifie sa livraison après commit, puis libère le contexte de persistance
+     * pour que la mémoire reste bornée quelle que soit la taille de l'audience.
+     */
+    private void processChunk(NotificationEvent event, Notification notification,
+                              NotificationContent content, List<Long> userIds) {
         List<UserNotification> userNotifications = new ArrayList<>();
 
-        for (Long userId : event.getUserIds()) {
+        for (Long userId : userIds) {
             for (Channel channel : event.getChannels()) {
 
                 UserNotification un = UserNotification.builder()
@@ -62,81 +177,151 @@ public class NotificationService {
             }
         }
 
-        notification.setUserNotifications(userNotifications);
-        notificationRepository.save(notification);
+        if (userNotifications.isEmpty()) {
+            return;
+        }
+
+        notificationStore.saveUserNotifications(userNotifications);
 
-        try {
-            sendNotifications(event, userNotifications);
-        } catch (Exception e) {
-            throw new NotificationSendException("Erreur lors de l'envoi des notifications.", e);
+        // Tâche d'outbox dans la même transaction : la livraison sera reprise en cas de crash
+        Priority priority = deliveryDispatcher.priorityOf(content.getEventType());
+        List<DeliveryTask.Recipient> recipients = new ArrayList<>(userNotifications.size());
+        List<NotificationDTO> created = new ArrayList<>(userNotifications.size());
+        long firstId = Long.MAX_VALUE;
+        long lastId = Long.MIN_VALUE;
+        for (UserNotification un : userNotifications) {
+            recipients.add(new DeliveryTask.Recipient(un.getId(), un.getUserId(), un.getChannel()));
+            created.add(convertToDTO(un, content));
+            firstId = Math.min(firstId, un.getId());
+            lastId = Math.max(lastId, un.getId());
         }
+        Long outboxId = outboxService.record(notification.getId(), firstId, lastId, priority);
+
+        // Livraison après commit, dans la voie correspondant à la priorité de l'événement
+        deliveryDispatcher.submitAfterCommit(new DeliveryTask(
+                content, recipients, priority, System.nanoTime(), outboxId));
+        // Flux en cache des destinataires concernés, mis à jour après commit
+        feedCache.upsertAfterCommit(created);
+
+        entityManager.flush();
+        entityManager.clear();
     }
 
+    @Transactional(readOnly = true)
     public Long countUnreadByUserId(Long userId) {
-        return userNotificationRepository.countByUserIdAndStatus(userId, Status.UNREAD);
+        return readOwnWrites(userId, () -> notificationStore.countByUserIdAndStatus(userId, Status.UNREAD));
     }
 
     /**
      * ✅ MÉTHODE AJOUTÉE : Récupère toutes les notifications d'un utilisateur
      */
+    @Transactional(readOnly = true)
     public List<NotificationDTO> getNotificationsByUserId(Long userId) {
         log.info("Fetching notifications for userId={}", userId);
 
-        List<UserNotification> userNotifications = userNotificationRepository
-                .findByUserIdOrderBySentAtDesc(userId);
+        List<UserNotification> userNotifications = readOwnWrites(userId,
+                () -> notificationStore.findByUserIdOrderBySentAtDesc(userId));
 
-        return userNotifications.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return toDTOs(userNotifications);
     }
 
     /**
-     * ✅ MÉTHODE AJOUTÉE : Convertit UserNotification en NotificationDTO
+     * Les limit notifications les plus récentes d'un utilisateur : servies depuis UserFeedCache
+     * lorsque limit ne dépasse pas la taille de page en cache (aucune transaction ni connexion sur un hit,
+     * hors revalidation périodique par l'empreinte du flux).
      */
-    private NotificationDTO convertToDTO(UserNotification userNotification) {
-        Notification notification = userNotification.getNotification();
+    public List<NotificationDTO> getRecentNotifications(Long userId, int limit) {
+        if (limit <= feedCache.getPageSize()) {
+            return feedCache.firstPage(userId, limit,
+                    id -> toDTOs(readOwnWrites(id, () -> notificationStore.findRecentByUserId(id, feedCache.getPageSize()))),
+                    id -> readOwnWrites(id, () -> notificationStore.findFeedVersion(id)));
+        }
+        return toDTOs(readOwnWrites(userId, () -> notificationStore.findRecentByUserId(userId, limit)));
+    }
 
-        return NotificationDTO.builder()
-                .id(userNotification.getId())
-                .userId(userNotification.getUserId())
-                .eventType(notification.getEventType())
-                .title(notification.getTitle())
-                .message(notification.getMessage())
-                .status(userNotification.getStatus())
-                .sentAt(userNotification.getSentAt())
-                .metadata(notification.getMetadata()) // ✅ CORRECTION : Récupérer les metadata de la BDD
-                .build();
+    /**
+     * Lectures versionnées par ETag / long-poll : sur le primaire si l'utilisateur vient de changer,
+     * pour que la réponse associée au nouvel ETag contienne bien ce changement.
+     */
+    private <T> T readOwnWrites(Long userId, Supplier<T> read) {
+        return versionTracker.changedRecently(userId) ? ReplicaRoutingDataSource.readFromPrimary(read) : read.get();
     }
 
-    private void sendNotifications(NotificationEvent event, List<UserNotification> userNotifications) {
+    /**
+     * Notifications postérieures au dernier identifiant vu par le client (reprise après reconnexion).
+     */
+    @Transactional(readOnly = true)
+    public List<NotificationDTO> getNotificationsSince(Long userId, Long lastSeenId, int limit) {
+        return toDTOs(notificationStore.findByUserIdAfterId(userId, lastSeenId, limit));
+    }
 
-        for (UserNotification un : userNotifications) {
-            try {
-                if (un.getChannel() == Channel.PUSH) {
-                    // ✅ CORRECTION : Passer les metadata de l'événement
-                    pushNotificationService.sendPushNotification(un, event.getMetadata());
-                }
+    /**
+     * Notifications envoyées après le dernier instant vu par le client (reprise après reconnexion).
+     */
+    @Transactional(readOnly = true)
+    public List<NotificationDTO> getNotificationsSince(Long userId, LocalDateTime lastSeenAt, int limit) {
+        return toDTOs(notificationStore.findByUserIdSentAfter(userId, lastSeenAt, limit));
+    }
 
-                un.setStatus(Status.UNREAD);
-                un.setSentAt(LocalDateTime.now());
+    /**
+     * Nombre de notifications postérieures au dernier identifiant vu (contrôle de l'anneau de reprise).
+     */
+    @Transactional(readOnly = true)
+    public long countNotificationsSince(Long userId, Long lastSeenId) {
+        return notificationStore.countByUserIdAfterId(userId, lastSeenId);
+    }
 
-                log.info("Notification sent: userId={}, channel={}", un.getUserId(), un.getChannel());
+    @Transactional(readOnly = true)
+    public long countNotificationsSince(Long userId, LocalDateTime lastSeenAt) {
+        return notificationStore.countByUserIdSentAfter(userId, lastSeenAt);
+    }
+
+    private List<NotificationDTO> toDTOs(List<UserNotification> userNotifications) {
+        // Contenu partagé résolu via le cache : une seule requête pour les absences
+        Map<Long, NotificationContent> contents = contentCache.getAll(userNotifications.stream()
+                .map(UserNotification::getNotificationId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
 
-            } catch (Exception e) {
-                un.setStatus(Status.FAILED);
-                log.error("Failed to send notification userId={} channel={}", un.getUserId(), un.getChannel(), e);
+        List<NotificationDTO> dtos = new ArrayList<>(userNotifications.size());
+        for (UserNotification un : userNotifications) {
+            NotificationContent content = un.getNotificationId() != null
+                    ? contents.get(un.getNotificationId())
+                    : null;
+            if (content == null) {
+                // Notification purgée ou orpheline : la ligne est ignorée plutôt que de faire échouer tout le flux
+                log.warn("Notification content missing, row skipped: userNotificationId={}, notificationId={}",
+                        un.getId(), un.getNotificationId());
+                continue;
             }
+            dtos.add(convertToDTO(un, content));
         }
+        return dtos;
+    }
 
-        userNotificationRepository.saveAll(userNotifications);
+    /**
+     * ✅ MÉTHODE AJOUTÉE : Convertit UserNotification en NotificationDTO
+     */
+    private NotificationDTO convertToDTO(UserNotification userNotification, NotificationContent content) {
+        return NotificationDTO.builder()
+                .id(userNotification.getId())
+                .userId(userNotification.getUserId())
+                .eventType(content.getEventType())
+                .templateId(content.getTemplateId())
+                .title(content.getTitle())
+                .message(content.getMessage())
+                .status(userNotification.getStatus())
+                .sentAt(userNotification.getSentAt())
+                .metadata(content.getMetadata())
+                .build();
     }
 
     @Transactional
     public void markAsRead(Long userNotificationId) {
-        userNotificationRepository.findById(userNotificationId)
-                .ifPresent(userNotification -> {
-                    userNotification.setStatus(Status.READ);
-                    userNotificationRepository.save(userNotification); // ✅ AJOUTÉ : Sauvegarder explicitement
+        notificationStore.markAsRead(userNotificationId)
+                .ifPresent(userId -> {
+                    feedCache.updateStatusAfterCommit(userId, userNotificationId, Status.READ);
+                    versionTracker.bumpAfterCommit(userId);
                     log.info("Notification marked as read: id={}", userNotificationId);
                 });
     }
@@ -0,0 +1,201 @@
+package ma.fstt.notificationservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.entities.Notification;
+import ma.fstt.notificationservice.enums.EventType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Registre des modèles de notification, indexé par EventType et langue.
+ *
+ * - Les modèles sont compilés une seule fois au démarrage (segments littéraux / variables)
+ * - Les rendus sont mis en cache (LRU borné) par identifiant de modèle + paramètres
+ * - Seul l'identifiant du modèle est persisté, les paramètres étant les metadata
+ */
+@Service
+@Slf4j
+public class NotificationTemplateService {
+
+    private static final String TEMPLATES_LOCATION = "notification-templates.properties";
+    private static final String DIGEST_TEMPLATE = "DIGEST";
+
+    private final Map<String, CompiledTemplate> templates;
+    private final Cache<RenderKey, RenderedNotification> renderCache;
+    private final String defaultLocale;
+
+    public NotificationTemplateService(
+            @Value("${notification.templates.default-locale:fr}") String defaultLocale,
+            @Value("${notification.templates.render-cache-size:10000}") long renderCacheSize) {
+        this.defaultLocale = defaultLocale;
+        this.templates = loadTemplates();
+        this.renderCache = Caffeine.newBuilder()
+                .maximumSize(renderCacheSize)
+                .build();
+        log.info("Notification templates loaded: count={}", templates.size());
+    }
+
+    /**
+     * Identifiant du modèle applicable à un type d'événement et une langue,
+     * avec repli sur la langue par défaut.
+     */
+    public Optional<String> resolveTemplateId(EventType eventType, String locale) {
+        if (eventType == null) {
+            return Optional.empty();
+        }
+        String requested = templateId(eventType, locale != null ? locale : defaultLocale);
+        if (templates.containsKey(requested)) {
+            return Optional.of(requested);
+        }
+        String fallback = templateId(eventType, defaultLocale);
+        return templates.containsKey(fallback) ? Optional.of(fallback) : Optional.empty();
+    }
+
+    /**
+     * Rend un modèle avec les paramètres donnés (résultat mis en cache).
+     */
+    public RenderedNotification render(String templateId, Map<String, String> params) {
+        CompiledTemplate template = templates.get(templateId);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown notification template: " + templateId);
+        }
+        Map<String, String> safeParams = params != null ? params : Collections.emptyMap();
+        return renderCache.get(new RenderKey(templateId, Collections.unmodifiableMap(new HashMap<>(safeParams))),
+                key -> template.render(key.params()));
+    }
+
+    /**
+     * Titre et message d'une notification, qu'elle soit basée sur un modèle ou non.
+     */
+    public RenderedNotification render(Notification notification) {
+        if (notification.getTemplateId() == null) {
+            return new RenderedNotification(notification.getTitle(), notification.getMessage());
+        }
+        return render(notification.getTemplateId(), notification.getMetadata());
+    }
+
+    /**
+     * Résumé de {@code count} notifications différées d'un même type, dans la langue demandée
+     * (repli sur la langue par défaut). Le libellé du type est le titre de son propre modèle.
+     */
+    public RenderedNotification renderDigest(EventType eventType, String locale, int count) {
+        String effectiveLocale = locale != null ? locale : defaultLocale;
+        String digestId = templates.containsKey(templateId(DIGEST_TEMPLATE, effectiveLocale))
+                ? templateId(DIGEST_TEMPLATE, effectiveLocale)
+                : templateId(DIGEST_TEMPLATE, defaultLocale);
+        String eventLabel = resolveTemplateId(eventType, effectiveLocale)
+                .map(id -> render(id, Map.of()).title())
+                .orElse(eventType.name());
+        return render(digestId, Map.of("count", String.valueOf(count), "eventLabel", eventLabel));
+    }
+
+    /**
+     * Langue d'un identifiant de modèle ({@code <EVENT_TYPE>.<locale>}), ou null.
+     */
+    public static String localeOf(String templateId) {
+        if (templateId == null) {
+            return null;
+        }
+        int dot = templateId.lastIndexOf('.');
+        return dot < 0 ? null : templateId.substring(dot + 1);
+    }
+
+    private static String templateId(EventType eventType, String locale) {
+        return templateId(eventType.name(), locale);
+    }
+
+    private static String templateId(String name, String locale) {
+        return name + "." + locale.toLowerCase(Locale.ROOT);
+    }
+
+    private static Map<String, CompiledTemplate> loadTemplates() {
+        Properties properties;
+        try {
+            properties = PropertiesLoaderUtils.loadProperties(
+                    new EncodedResource(
+                            new ClassPathResource(TEMPLATES_LOCATION), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load " + TEMPLATES_LOCATION, e);
+        }
+
+        Map<String, CompiledTemplate> compiled = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            if (!key.endsWith(".title")) {
+                continue;
+            }
+            String id = key.substring(0, key.length() - ".title".length());
+            String message = properties.getProperty(id + ".message");
+            if (message == null) {
+                log.warn("Template without message ignored: id={}", id);
+                continue;
+            }
+            compiled.put(id, new CompiledTemplate(
+                    TemplateText.compile(properties.getProperty(key)),
+                    TemplateText.compile(message)));
+        }
+        return Map.copyOf(compiled);
+    }
+
+    /**
+     * Titre et message rendus.
+     */
+    public record RenderedNotification(String title, String message) {
+    }
+
+    private record RenderKey(String templateId, Map<String, String> params) {
+    }
+
+    private record CompiledTemplate(TemplateText title, TemplateText message) {
+
+        RenderedNotification render(Map<String, String> params) {
+            return new RenderedNotification(title.render(params), message.render(params));
+        }
+    }
+
+    /**
+     * Texte pré-découpé en segments : les indices pairs sont littéraux, les impairs des noms de variables.
+     */
+    private record TemplateText(List<String> segments) {
+
+        static TemplateText compile(String text) {
+            List<String> segments = new ArrayList<>();
+            int cursor = 0;
+            while (true) {
+                int open = text.indexOf('{', cursor);
+                int close = open < 0 ? -1 : text.indexOf('}', open);
+                if (open < 0 || close < 0) {
+                    segments.add(text.substring(cursor));
+                    break;
+                }
+                segments.add(text.substring(cursor, open));
+                segments.add(text.substring(open + 1, close));
+                cursor = close + 1;
+            }
+            return new TemplateText(List.copyOf(segments));
+        }
+
+        String render(Map<String, String> params) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < segments.size(); i++) {
+                String segment = segments.get(i);
+                if (i % 2 == 0) {
+                    sb.append(segment);
+                } else {
+                    String value = params.get(segment);
+                    sb.append(value != null ? value : "{" + segment + "}");
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ma.fstt.notificationservice.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.dto.NotificationContent;
+import ma.fstt.notificationservice.entities.DeliveryOutbox;
+import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.Status;
+import ma.fstt.notificationservice.repositories.DeliveryOutboxRepository;
+import ma.fstt.notificationservice.repositories.UserNotificationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Relais de l'outbox : reprise des livraisons non acquittées (at-least-once).
+ *
+ * - Réclamation par lots avec SKIP LOCKED, puis prolongation du bail (availableAt)
+ * - Rechargement des seuls destinataires encore non délivrés de la plage (UNREAD ou FAILED, sentAt vide)
+ * - Remise au DeliveryDispatcher dans la voie d'origine
+ *
+ * Le chemin nominal (soumission après commit) acquitte la tâche avant que le relais ne la voie ;
+ * la table ne contient donc en régime normal que les tâches en cours, indexées sur available_at.
+ * Tant qu'une tâche est en file ou en cours d'envoi, son dispatcher en prolonge le bail : seules les
+ * tâches d'une instance arrêtée deviennent réclamables.
+ * Une livraison partiellement en échec laisse la tâche ouverte, reportée avec un backoff exponentiel,
+ * jusqu'à max-attempts.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private static final List<Status> RETRYABLE_STATUSES = List.of(Status.UNREAD, Status.FAILED);
+
+    private final DeliveryOutboxRepository outboxRepository;
+    private final UserNotificationRepository userNotificationRepository;
+    private final NotificationContentCache contentCache;
+    private final DeliveryDispatcher deliveryDispatcher;
+    private final DeliveryOutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${notification.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${notification.outbox.lease-seconds:120}")
+    private long leaseSeconds;
+
+    @Value("${notification.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Scheduled(fixedDelayString = "${notification.outbox.poll-interval:5000}")
+    public void relay() {
+        List<DeliveryOutbox> claimed;
+        do {
+            claimed = transactionTemplate.execute(status -> claimBatch());
+            if (claimed == null || claimed.isEmpty()) {
+                return;
+            }
+            log.info("Outbox tasks claimed for redelivery: count={}", claimed.size());
+            claimed.forEach(this::redeliver);
+        } while (claimed.size() == batchSize);
+    }
+
+    private List<DeliveryOutbox> claimBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<DeliveryOutbox> batch = outboxRepository.findClaimable(now, PageRequest.of(0, batchSize));
+        List<DeliveryOutbox> claimed = new ArrayList<>(batch.size());
+
+        for (DeliveryOutbox outbox : batch) {
+            if (outbox.getAttempts() >= maxAttempts) {
+                log.error("Outbox task exceeded max attempts, dropped: id={}, notificationId={}, attempts={}",
+                        outbox.getId(), outbox.getNotificationId(), outbox.getAttempts());
+                outboxRepository.delete(outbox);
+                continue;
+            }
+            outbox.setAttempts(outbox.getAttempts() + 1);
+            outbox.setAvailableAt(now.plusSeconds(leaseSeconds));
+            claimed.add(outbox);
+        }
+        return claimed;
+    }
+
+    private void redeliver(DeliveryOutbox outbox) {
+        List<UserNotification> undelivered = userNotificationRepository.findUndelivered(
+                outbox.getNotificationId(),
+                outbox.getFirstUserNotificationId(),
+                outbox.getLastUserNotificationId(),
+                RETRYABLE_STATUSES);
+
+        NotificationContent content = contentCache.getAll(List.of(outbox.getNotificationId()))
+                .get(outbox.getNotificationId());
+
+        if (undelivered.isEmpty() || content == null) {
+            outboxService.complete(outbox.getId());
+            return;
+        }
+
+        List<DeliveryTask.Recipient> recipients = undelivered.stream()
+                .map(un -> new DeliveryTask.Recipient(un.getId(), un.getUserId(), un.getChannel()))
+                .collect(Collectors.toList());
+
+        deliveryDispatcher.submit(new DeliveryTask(
+                content, recipients, outbox.getPriority(), System.nanoTime(), outbox.getId()));
+    }
+}
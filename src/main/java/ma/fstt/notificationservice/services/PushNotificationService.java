@@ -3,16 +3,14 @@ package ma.fstt.notificationservice.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ma.fstt.notificationservice.dto.NotificationDTO;
-import ma.fstt.notificationservice.entities.UserNotification;
 import ma.fstt.notificationservice.exceptions.WebSocketException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
-
 /**
- * Service d'envoi de notifications Push via WebSocket.
+ * Service d'envoi de notifications Push via WebSocket (STOMP) et Server-Sent Events.
  *
  * Gestion des erreurs:
  * - Try/catch local pour capturer toutes les exceptions WebSocket
@@ -27,34 +25,35 @@ import java.util.Map;
 public class PushNotificationService {
 
     private final SimpMessagingTemplate messagingTemplate;
+    private final SseConnectionRegistry sseConnectionRegistry;
+
+    // false : le push ne contient que templateId + metadata, le client rend le texte lui-même
+    @Value("${notification.templates.push-rendered:true}")
+    private boolean pushRendered;
 
     /**
      * Envoie une notification push via WebSocket.
      *
      * @throws WebSocketException si l'envoi échoue
      */
-    public void sendPushNotification(UserNotification userNotification, Map<String, String> metadata) {
-        Long userId = userNotification.getUserId();
+    public void sendPushNotification(NotificationDTO notification) {
+        Long userId = notification.getUserId();
         String destination = "/topic/notifications/" + userId;
 
         try {
             log.info("📤 Sending push notification: userId={}, destination={}", userId, destination);
 
-            NotificationDTO dto = NotificationDTO.builder()
-                    .id(userNotification.getId())
-                    .userId(userId)
-                    .eventType(userNotification.getNotification().getEventType())
-                    .title(userNotification.getNotification().getTitle())
-                    .message(userNotification.getNotification().getMessage())
-                    .status(userNotification.getStatus())
-                    .sentAt(userNotification.getSentAt())
-                    .metadata(metadata)
-                    .build();
+            NotificationDTO dto = notification;
+            if (notification.getTemplateId() != null && !pushRendered) {
+                // Le client rend lui-même le modèle à partir de templateId + metadata
+                dto = notification.toBuilder().title(null).message(null).build();
+            }
 
             messagingTemplate.convertAndSend(destination, dto);
+            sseConnectionRegistry.send(userId, dto);
 
             log.info("✅ Push notification sent successfully: userId={}, notificationId={}",
-                    userId, userNotification.getId());
+                    userId, notification.getId());
 
         } catch (MessagingException e) {
             log.error("❌ WebSocket messaging error: userId={}, destination={}, error={}",
@@ -0,0 +1,130 @@
+package ma.fstt.notificationservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Anneau en mémoire des dernières notifications délivrées, par utilisateur.
+ *
+ * Alimenté par NotificationDeliveryService pour toutes les lignes traitées (tous canaux,
+ * envoyées, regroupées ou en échec), rangées par identifiant quel que soit l'ordre d'arrivée.
+ * Sert à rejouer le delta manqué lors d'une reconnexion sans relire les lignes en base.
+ *
+ * Couverture suivie par l'anneau lui-même : plancher (identifiant et sentAt) donné par la plus
+ * ancienne ligne conservée, puis relevé à chaque éviction. Un delta n'est servi que si le dernier élément vu par
+ * le client est au niveau du plancher ou au-dessus ; sinon NotificationReplayService lit la base.
+ */
+@Component
+public class RecentNotificationBuffer {
+
+    private final Cache<Long, Ring> rings;
+    private final int capacity;
+
+    public RecentNotificationBuffer(
+            @Value("${notification.replay.buffer-size:50}") int capacity,
+            @Value("${notification.replay.max-users:100000}") long maxUsers,
+            @Value("${notification.replay.ttl-minutes:30}") long ttlMinutes) {
+        this.capacity = capacity;
+        this.rings = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    public void append(NotificationDTO notification) {
+        if (notification.getId() == null) {
+            return; // résumés et broadcasts ne sont pas rejouables
+        }
+        rings.get(notification.getUserId(), userId -> new Ring(capacity)).put(notification);
+    }
+
+    /**
+     * Notifications d'identifiant strictement supérieur à lastSeenId,
+     * si l'anneau remonte au moins jusqu'à lastSeenId.
+     */
+    public Optional<List<NotificationDTO>> since(Long userId, long lastSeenId) {
+        Ring ring = rings.getIfPresent(userId);
+        return ring == null ? Optional.empty() : ring.since(lastSeenId);
+    }
+
+    /**
+     * Notifications envoyées strictement après lastSeenAt, si l'anneau remonte au moins jusqu'à lastSeenAt.
+     */
+    public Optional<List<NotificationDTO>> since(Long userId, LocalDateTime lastSeenAt) {
+        Ring ring = rings.getIfPresent(userId);
+        return ring == null ? Optional.empty() : ring.since(lastSeenAt);
+    }
+
+    /**
+     * Lignes d'un utilisateur rangées par identifiant.
+     *
+     * - Tant que rien n'a été évincé, l'anneau couvre tout ce qui suit sa plus petite ligne
+     * - Après une éviction, plancher relevé : identifiant évincé le plus haut (evictedId)
+     *   et plus grand sentAt évincé (evictedAt)
+     * - Une ligne arrivée en retard sous evictedId n'est pas conservée : elle ne peut appartenir
+     *   à aucun delta servi depuis l'anneau
+     */
+    private static final class Ring {
+        private final int capacity;
+        private final TreeMap<Long, NotificationDTO> items = new TreeMap<>();
+        private Long evictedId;
+        private LocalDateTime evictedAt;
+
+        private Ring(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void put(NotificationDTO notification) {
+            if (evictedId != null && notification.getId() <= evictedId) {
+                return;
+            }
+            // Une redélivraison (relais d'outbox) remplace la version précédente de la ligne
+            items.put(notification.getId(), notification);
+            if (items.size() > capacity) {
+                NotificationDTO evicted = items.pollFirstEntry().getValue();
+                evictedId = evicted.getId();
+                if (evicted.getSentAt() != null && (evictedAt == null || evicted.getSentAt().isAfter(evictedAt))) {
+                    evictedAt = evicted.getSentAt();
+                }
+            }
+        }
+
+        synchronized Optional<List<NotificationDTO>> since(long lastSeenId) {
+            long floorId = evictedId != null ? evictedId : items.isEmpty() ? Long.MAX_VALUE : items.firstKey();
+            if (lastSeenId < floorId) {
+                return Optional.empty();
+            }
+            return Optional.of(new ArrayList<>(items.tailMap(lastSeenId, false).values()));
+        }
+
+        synchronized Optional<List<NotificationDTO>> since(LocalDateTime lastSeenAt) {
+            LocalDateTime floorAt = evictedAt != null ? evictedAt : items.values().stream()
+                    .map(NotificationDTO::getSentAt)
+                    .filter(Objects::nonNull)
+                    .min(Comparator.naturalOrder())
+                    .orElse(null);
+            if (floorAt == null || lastSeenAt.isBefore(floorAt)) {
+                return Optional.empty();
+            }
+            List<NotificationDTO> delta = new ArrayList<>();
+            for (NotificationDTO item : items.values()) {
+                if (item.getSentAt() != null && item.getSentAt().isAfter(lastSeenAt)) {
+                    delta.add(item);
+                }
+            }
+            return Optional.of(delta);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package ma.fstt.notificationservice.services;
+
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.dto.NotificationEvent;
+import ma.fstt.notificationservice.entities.RecipientListChunk;
+import ma.fstt.notificationservice.exceptions.InvalidNotificationDataException;
+import ma.fstt.notificationservice.repositories.RecipientListChunkRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Claim check des listes de destinataires volumineuses.
+ *
+ * - Côté producer : au-delà de notification.claim-check.threshold userIds, la liste est déposée
+ *   dans recipient_list_chunks (transaction propre, validée avant l'envoi) et l'événement ne porte
+ *   plus que recipientsRef
+ * - Côté consumer : la liste est relue fragment par fragment, jamais désérialisée en un seul tableau
+ * - Les listes ne sont pas supprimées après traitement (rejeu DLQ possible) mais purgées après rétention,
+ *   sauf si un message DLQ non traité les référence encore (dead_letter_queue.recipients_ref)
+ */
+@Service
+@Slf4j
+public class RecipientListStore {
+
+    // Borne imposée par la colonne user_ids (varbinary(16000), 8 octets par userId)
+    private static final int MAX_CHUNK_SIZE = 2000;
+
+    private final RecipientListChunkRepository chunkRepository;
+    private final TransactionTemplate requiresNew;
+
+    @Value("${notification.claim-check.threshold:10000}")
+    private int threshold;
+
+    @Value("${notification.claim-check.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${notification.claim-check.retention-hours:72}")
+    private long retentionHours;
+
+    public RecipientListStore(RecipientListChunkRepository chunkRepository,
+                              PlatformTransactionManager transactionManager) {
+        this.chunkRepository = chunkRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Remplace les userIds d'un événement trop volumineux par une référence vers la liste déposée.
+     * L'événement d'origine n'est pas modifié.
+     */
+    public NotificationEvent offloadIfOversized(NotificationEvent event) {
+        if (event.getUserIds() == null || event.getUserIds().size() <= threshold) {
+            return event;
+        }
+        String ref = store(event.getUserIds());
+        NotificationEvent offloaded = NotificationEvent.builder()
+                .eventType(event.getEventType())
+                .recipientsRef(ref)
+                .audience(event.getAudience())
+                .title(event.getTitle())
+                .message(event.getMessage())
+                .channels(event.getChannels())
+                .metadata(event.getMetadata())
+                .locale(event.getLocale())
+                .build();
+        log.info("Recipient list offloaded: ref={}, users={}", ref, event.getUserIds().size());
+        return offloaded;
+    }
+
+    /**
+     * Dépose la liste par fragments, dans une transaction validée avant le retour :
+     * la référence n'est jamais publiée avant que la liste soit lisible.
+     */
+    public String store(List<Long> userIds) {
+        String ref = UUID.randomUUID().toString();
+        int size = Math.min(chunkSize, MAX_CHUNK_SIZE);
+        requiresNew.executeWithoutResult(status -> {
+            List<RecipientListChunk> chunks = new ArrayList<>();
+            for (int from = 0, index = 0; from < userIds.size(); from += size, index++) {
+                List<Long> slice = userIds.subList(from, Math.min(from + size, userIds.size()));
+                chunks.add(RecipientListChunk.builder()
+                        .listRef(ref)
+                        .chunkIndex(index)
+                        .userCount(slice.size())
+                        .userIds(encode(slice))
+                        .build());
+            }
+            chunkRepository.saveAll(chunks);
+        });
+        return ref;
+    }
+
+    /**
+     * Parcourt la liste référencée un fragment à la fois (une requête par fragment).
+     */
+    public void forEachChunk(String ref, Consumer<List<Long>> chunkConsumer) {
+        long total = 0;
+        int index = 0;
+        while (true) {
+            Optional<RecipientListChunk> chunk = chunkRepository.findByListRefAndChunkIndex(ref, index);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            List<Long> userIds = decode(chunk.get().getUserIds());
+            if (userIds.size() != chunk.get().getUserCount()) {
+                throw new InvalidNotificationDataException(String.format(
+                        "Fragment de liste de destinataires incohérent : %s[%d], %d userIds pour %d attendus",
+                        ref, index, userIds.size(), chunk.get().getUserCount()));
+            }
+            chunkConsumer.accept(userIds);
+            total += userIds.size();
+            index++;
+        }
+        if (index == 0) {
+            throw new InvalidNotificationDataException(
+                    String.format("Liste de destinataires introuvable ou expirée : %s", ref));
+        }
+        log.info("Recipient list expanded: ref={}, chunks={}, users={}", ref, index, total);
+    }
+
+    @Scheduled(fixedDelayString = "${notification.claim-check.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        LocalDateTime before = LocalDateTime.now().minusHours(retentionHours);
+        Integer purged = requiresNew.execute(status -> chunkRepository.deleteUnreferencedCreatedBefore(before));
+        if (purged != null && purged > 0) {
+            log.info("Expired recipient list chunks purged: count={}", purged);
+        }
+    }
+
+    static byte[] encode(List<Long> userIds) {
+        ByteBuffer buffer = ByteBuffer.allocate(userIds.size() * Long.BYTES);
+        userIds.forEach(buffer::putLong);
+        return buffer.array();
+    }
+
+    static List<Long> decode(byte[] bytes) {
+        if (bytes.length % Long.BYTES != 0) {
+            throw new InvalidNotificationDataException(String.format(
+                    "Fragment de liste de destinataires invalide : %d octets (multiple de %d attendu)",
+                    bytes.length, Long.BYTES));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        List<Long> userIds = new ArrayList<>(bytes.length / Long.BYTES);
+        while (buffer.hasRemaining()) {
+            userIds.add(buffer.getLong());
+        }
+        return userIds;
+    }
+}
@@ -0,0 +1,248 @@
+package ma.fstt.notificationservice.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Flux Server-Sent Events ouverts, par utilisateur.
+ *
+ * - Les SseEmitter reposent sur le traitement asynchrone des servlets : aucun thread n'est
+ *   retenu par une connexion inactive
+ * - Alimenté par PushNotificationService, au même titre que le broker STOMP
+ * - Un commentaire keep-alive périodique détecte les connexions mortes et traverse les proxys
+ * - Le flux est enregistré avant le calcul du delta à rejouer : les notifications poussées
+ *   pendant ce calcul sont mises en attente puis envoyées après le delta, sans doublon d'identifiant
+ * - Les écritures passent par une file par flux, vidée sur un pool dédié (sse-writer) : un client
+ *   lent ne bloque ni le worker de livraison ni les autres flux ; au-delà de max-pending événements
+ *   en attente, son flux est fermé (le client reprend avec Last-Event-ID)
+ */
+@Component
+@Slf4j
+public class SseConnectionRegistry {
+
+    private final Map<Long, Set<SseStream>> streamsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private final Executor writer;
+
+    @Value("${notification.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${notification.sse.max-pending:1000}")
+    private int maxPending = 1000;
+
+    @Autowired
+    public SseConnectionRegistry(MeterRegistry meterRegistry,
+                                 Environment environment,
+                                 @Value("${notification.sse.writer-threads:8}") int writerThreads) {
+        this(meterRegistry, Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("sse-writer-")
+                : Executors.newFixedThreadPool(writerThreads, runnable -> {
+                    Thread thread = new Thread(runnable, "sse-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    SseConnectionRegistry(MeterRegistry meterRegistry, Executor writer) {
+        this.writer = writer;
+        Gauge.builder("notification.sse.streams", openStreams, AtomicInteger::get)
+                .description("Open Server-Sent Events streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ouvre un flux pour l'utilisateur : enregistrement, puis envoi du delta à rejouer,
+     * puis des notifications reçues entre-temps.
+     */
+    public SseEmitter open(Long userId, Supplier<List<NotificationDTO>> replay) {
+        SseStream stream = new SseStream(userId, new SseEmitter(timeoutMs));
+        // Ajout et retrait dans compute : un retrait concurrent ne peut pas supprimer l'ensemble
+        // entre sa lecture et l'ajout de ce flux
+        streamsByUser.compute(userId, (id, streams) -> {
+            Set<SseStream> set = streams != null ? streams : ConcurrentHashMap.newKeySet();
+            set.add(stream);
+            return set;
+        });
+        openStreams.incrementAndGet();
+
+        stream.emitter.onCompletion(stream::close);
+        stream.emitter.onTimeout(stream::close);
+        stream.emitter.onError(e -> stream.close());
+
+        try {
+            stream.replay(replay.get());
+        } catch (RuntimeException e) {
+            log.error("SSE replay failed: userId={}", userId, e);
+            stream.emitter.completeWithError(e);
+        }
+        return stream.emitter;
+    }
+
+    public void send(Long userId, NotificationDTO notification) {
+        Set<SseStream> streams = streamsByUser.get(userId);
+        if (streams == null) {
+            return;
+        }
+        for (SseStream stream : streams) {
+            stream.push(notification);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.sse.keepalive-ms:20000}")
+    public void keepAlive() {
+        for (Set<SseStream> streams : streamsByUser.values()) {
+            for (SseStream stream : streams) {
+                stream.enqueue(SseEmitter.event().comment("keepalive"));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (writer instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder event(NotificationDTO notification) {
+        SseEmitter.SseEventBuilder event = SseEmitter.event()
+                .name("notification")
+                .data(notification);
+        if (notification.getId() != null) {
+            event.id(String.valueOf(notification.getId()));
+        }
+        return event;
+    }
+
+    /**
+     * Flux d'un client : tant que le delta n'est pas envoyé, les notifications en direct sont mises
+     * en attente ; les identifiants rejoués ne sont plus renvoyés ensuite. Les événements sont écrits
+     * dans l'ordre par une seule tâche de vidage à la fois.
+     */
+    private final class SseStream {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final Set<Long> replayedIds = new HashSet<>();
+        private final Queue<SseEmitter.SseEventBuilder> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger outboundSize = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private List<NotificationDTO> pending = new ArrayList<>();
+
+        private SseStream(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void push(NotificationDTO notification) {
+            synchronized (this) {
+                if (pending != null) {
+                    pending.add(notification);
+                    return;
+                }
+                if (notification.getId() != null && replayedIds.contains(notification.getId())) {
+                    return;
+                }
+            }
+            enqueue(event(notification));
+        }
+
+        void replay(List<NotificationDTO> replay) {
+            List<NotificationDTO> live;
+            synchronized (this) {
+                live = pending;
+                pending = null;
+                for (NotificationDTO notification : replay) {
+                    if (notification.getId() != null) {
+                        replayedIds.add(notification.getId());
+                    }
+                    outbound.add(event(notification));
+                    outboundSize.incrementAndGet();
+                }
+            }
+            for (NotificationDTO notification : live) {
+                push(notification);
+            }
+            scheduleDrain();
+            log.debug("SSE stream opened: userId={}, replayed={}, bufferedLive={}", userId, replay.size(), live.size());
+        }
+
+        void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            if (outboundSize.incrementAndGet() > maxPending) {
+                log.warn("SSE client too slow, stream closed: userId={}, pending={}", userId, outboundSize.get());
+                close();
+                emitter.complete();
+                return;
+            }
+            outbound.add(event);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!outbound.isEmpty() && draining.compareAndSet(false, true)) {
+                writer.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            SseEmitter.SseEventBuilder event;
+            while ((event = outbound.poll()) != null) {
+                outboundSize.decrementAndGet();
+                if (closed.get()) {
+                    continue;
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    log.debug("SSE stream closed while sending: userId={}", userId);
+                    close();
+                    emitter.completeWithError(e);
+                }
+            }
+            draining.set(false);
+            // Événement ajouté après le dernier poll mais avant la remise à false
+            scheduleDrain();
+        }
+
+        void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            streamsByUser.computeIfPresent(userId, (id, set) -> {
+                set.remove(this);
+                return set.isEmpty() ? null : set;
+            });
+            openStreams.decrementAndGet();
+        }
+    }
+}
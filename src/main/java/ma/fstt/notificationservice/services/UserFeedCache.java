@@ -0,0 +1,293 @@
+package ma.fstt.notificationservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import ma.fstt.notificationservice.dto.FeedVersion;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.enums.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Première page du flux de chaque utilisateur, en mémoire.
+ *
+ * - Par utilisateur, les pageSize notifications les plus récentes, dans l'ordre du flux en base
+ *   (sentAt décroissant, non envoyées en dernier), sous forme de liste immuable remplacée à chaque mise à jour
+ * - Mémoire globale bornée par poids (estimation en octets des DTO), éviction Caffeine
+ * - Chargé au premier accès, puis mis à jour après commit : création (processNotification),
+ *   envoi (sentAt / FAILED) et lecture (markAsRead) ; seuls les flux déjà en cache sont modifiés
+ * - Revalidé au plus toutes les revalidate-ms par une requête d'empreinte (max(id), max(sentAt)) :
+ *   une création ou un envoi fait par une autre instance provoque un rechargement
+ * - Rechargé au plus tard ttl-seconds après son chargement, même s'il est mis à jour entre-temps :
+ *   borne l'écart avec la base pour ce que l'empreinte ne voit pas (lecture ou échec sur une autre
+ *   instance, mises à jour manquées). Même valeur par défaut que notification.etag.ttl-seconds,
+ *   qui borne déjà la visibilité de ces changements entre instances
+ * - Statistiques hit/miss/éviction exposées dans Micrometer (cache "notification.feed")
+ */
+@Service
+public class UserFeedCache {
+
+    // Ordre de findByUserIdOrderBySentAtDesc : NULL considéré comme la plus petite valeur
+    static final Comparator<NotificationDTO> FEED_ORDER = Comparator
+            .comparing(NotificationDTO::getSentAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(NotificationDTO::getId)
+            .reversed();
+
+    private final Cache<Long, Feed> feeds;
+    private final int pageSize;
+    private final long revalidateNanos;
+    private final Ticker ticker;
+
+    @Autowired
+    public UserFeedCache(
+            MeterRegistry meterRegistry,
+            @Value("${notification.feed-cache.page-size:20}") int pageSize,
+            @Value("${notification.feed-cache.max-weight-bytes:67108864}") long maxWeightBytes,
+            @Value("${notification.feed-cache.ttl-seconds:30}") long ttlSeconds,
+            @Value("${notification.feed-cache.revalidate-ms:5000}") long revalidateMs) {
+        this(meterRegistry, pageSize, maxWeightBytes, ttlSeconds, revalidateMs, Ticker.systemTicker());
+    }
+
+    UserFeedCache(MeterRegistry meterRegistry, int pageSize, long maxWeightBytes, long ttlSeconds,
+                  long revalidateMs, Ticker ticker) {
+        this.pageSize = pageSize;
+        this.revalidateNanos = TimeUnit.MILLISECONDS.toNanos(revalidateMs);
+        this.ticker = ticker;
+        this.feeds = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((Long userId, Feed feed) -> feed.weight())
+                .expireAfter(expireAfterLoad(Duration.ofSeconds(ttlSeconds)))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, feeds, "notification.feed");
+    }
+
+    // Délai compté depuis le chargement : les mises à jour (merge, statut) ne le prolongent pas
+    private static Expiry<Long, Feed> expireAfterLoad(Duration ttl) {
+        long ttlNanos = ttl.toNanos();
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(Long userId, Feed feed, long currentTime) {
+                return ttlNanos;
+            }
+
+            @Override
+            public long expireAfterUpdate(Long userId, Feed feed, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+
+            @Override
+            public long expireAfterRead(Long userId, Feed feed, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Les limit notifications les plus récentes (limit ≤ pageSize) ; en cas d'absence, loader
+     * doit renvoyer les pageSize premières notifications du flux et versionLoader l'empreinte du flux en base.
+     */
+    public List<NotificationDTO> firstPage(Long userId, int limit, Function<Long, List<NotificationDTO>> loader,
+                                           Function<Long, FeedVersion> versionLoader) {
+        Feed feed = feeds.get(userId, id -> load(id, loader, versionLoader));
+        if (ticker.read() - feed.validatedAt() >= revalidateNanos) {
+            feed = revalidate(userId, feed, loader, versionLoader);
+        }
+        List<NotificationDTO> items = feed.items();
+        return items.subList(0, Math.min(limit, items.size()));
+    }
+
+    private Feed load(Long userId, Function<Long, List<NotificationDTO>> loader,
+                      Function<Long, FeedVersion> versionLoader) {
+        // Empreinte lue avant la page : une écriture intercalée coûte au pire un rechargement de plus
+        FeedVersion version = versionLoader.apply(userId);
+        return Feed.loaded(loader.apply(userId), pageSize).validated(version, ticker.read());
+    }
+
+    /**
+     * Empreinte inchangée : la page reste servie (sans prolonger son ttl) ; sinon elle est rechargée.
+     * Une écriture locale change aussi l'empreinte et provoque un rechargement, sans incidence sur l'exactitude.
+     */
+    private Feed revalidate(Long userId, Feed feed, Function<Long, List<NotificationDTO>> loader,
+                            Function<Long, FeedVersion> versionLoader) {
+        FeedVersion current = versionLoader.apply(userId);
+        if (current.equals(feed.version())) {
+            Feed validated = feed.validated(current, ticker.read());
+            feeds.asMap().computeIfPresent(userId, (id, cached) -> cached == feed ? validated : cached);
+            return validated;
+        }
+        feeds.invalidate(userId);
+        return feeds.get(userId, id -> load(id, loader, versionLoader));
+    }
+
+    /**
+     * Applique les notifications créées ou modifiées une fois la transaction courante validée.
+     */
+    public void upsertAfterCommit(Collection<NotificationDTO> notifications) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            upsert(notifications);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                upsert(notifications);
+            }
+        });
+    }
+
+    public void upsert(Collection<NotificationDTO> notifications) {
+        Map<Long, List<NotificationDTO>> byUser = notifications.stream()
+                .filter(notification -> notification.getId() != null)
+                .collect(Collectors.groupingBy(NotificationDTO::getUserId));
+        byUser.forEach((userId, updates) ->
+                feeds.asMap().computeIfPresent(userId, (id, feed) -> feed.merge(updates, pageSize, REPLACE)));
+    }
+
+    /**
+     * Résultat d'une livraison (sentAt renseigné, ou statut FAILED). Une entrée déjà en cache ne reprend
+     * que ces champs, comme markSent / updateStatus en base : un statut READ est conservé et une ligne
+     * FAILED livrée redevient UNREAD.
+     */
+    public void applyDelivery(Collection<NotificationDTO> delivered) {
+        Map<Long, List<NotificationDTO>> byUser = delivered.stream()
+                .filter(notification -> notification.getId() != null)
+                .collect(Collectors.groupingBy(NotificationDTO::getUserId));
+        byUser.forEach((userId, updates) ->
+                feeds.asMap().computeIfPresent(userId, (id, feed) -> feed.merge(updates, pageSize, DELIVERY)));
+    }
+
+    /**
+     * Met à jour le statut d'une notification du flux (ex: READ) après commit.
+     */
+    public void updateStatusAfterCommit(Long userId, Long userNotificationId, Status status) {
+        Runnable update = () -> feeds.asMap().computeIfPresent(userId,
+                (id, feed) -> feed.withStatus(userNotificationId, status));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    // Création : la ligne reçue remplace l'entrée
+    static final BinaryOperator<NotificationDTO> REPLACE = (cached, update) -> update;
+
+    // Livraison : seuls sentAt et l'échec sont repris de la ligne reçue
+    static final BinaryOperator<NotificationDTO> DELIVERY = (cached, update) -> {
+        if (update.getStatus() == Status.FAILED) {
+            return cached.toBuilder().status(Status.FAILED).build();
+        }
+        return cached.toBuilder()
+                .sentAt(update.getSentAt())
+                .status(cached.getStatus() == Status.FAILED ? Status.UNREAD : cached.getStatus())
+                .build();
+    };
+
+    /**
+     * Flux d'un utilisateur. complete : le flux entier tient dans items (aucune ligne plus ancienne en base) ;
+     * version : empreinte en base lors de la dernière validation, à l'instant validatedAt (ticker).
+     */
+    record Feed(List<NotificationDTO> items, boolean complete, int weight, FeedVersion version, long validatedAt) {
+
+        static Feed loaded(List<NotificationDTO> loaded, int pageSize) {
+            List<NotificationDTO> items = loaded.stream()
+                    .map(item -> item.toBuilder().build())
+                    .sorted(FEED_ORDER)
+                    .limit(pageSize)
+                    .toList();
+            return of(items, loaded.size() < pageSize);
+        }
+
+        static Feed of(List<NotificationDTO> items, boolean complete) {
+            int weight = 64;
+            for (NotificationDTO item : items) {
+                weight += weigh(item);
+            }
+            return new Feed(items, complete, weight, null, 0);
+        }
+
+        Feed validated(FeedVersion version, long validatedAt) {
+            return new Feed(items, complete, weight, version, validatedAt);
+        }
+
+        /**
+         * @param combine (entrée en cache, ligne reçue) → entrée fusionnée, pour une ligne déjà présente
+         */
+        Feed merge(List<NotificationDTO> updates, int pageSize, BinaryOperator<NotificationDTO> combine) {
+            Map<Long, NotificationDTO> byId = new LinkedHashMap<>();
+            items.forEach(item -> byId.put(item.getId(), item));
+            updates.forEach(update -> byId.merge(update.getId(), update.toBuilder().build(), combine));
+
+            NotificationDTO boundary = items.isEmpty() ? null : items.get(items.size() - 1);
+            List<NotificationDTO> merged = new ArrayList<>(byId.size());
+            for (NotificationDTO item : byId.values()) {
+                // Flux incomplet : une nouvelle ligne classée après la dernière connue peut être
+                // précédée en base par des lignes absentes du cache
+                if (complete || boundary == null || FEED_ORDER.compare(item, boundary) <= 0) {
+                    merged.add(item);
+                }
+            }
+            merged.sort(FEED_ORDER);
+
+            boolean stillComplete = complete && merged.size() <= pageSize;
+            return of(List.copyOf(merged.subList(0, Math.min(pageSize, merged.size()))), stillComplete)
+                    .validated(version, validatedAt);
+        }
+
+        Feed withStatus(Long userNotificationId, Status status) {
+            List<NotificationDTO> updated = new ArrayList<>(items.size());
+            boolean found = false;
+            for (NotificationDTO item : items) {
+                if (item.getId().equals(userNotificationId)) {
+                    updated.add(item.toBuilder().status(status).build());
+                    found = true;
+                } else {
+                    updated.add(item);
+                }
+            }
+            return found ? new Feed(List.copyOf(updated), complete, weight, version, validatedAt) : this;
+        }
+
+        // Estimation grossière : en-tête d'objet et champs, chaînes en UTF-16, entrées de metadata
+        private static int weigh(NotificationDTO item) {
+            int weight = 96;
+            weight += 2 * length(item.getTitle()) + 2 * length(item.getMessage()) + 2 * length(item.getTemplateId());
+            if (item.getMetadata() != null) {
+                for (Map.Entry<String, String> entry : item.getMetadata().entrySet()) {
+                    weight += 48 + 2 * length(entry.getKey()) + 2 * length(entry.getValue());
+                }
+            }
+            return weight;
+        }
+
+        private static int length(String value) {
+            return value != null ? value.length() : 0;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package ma.fstt.notificationservice.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tampons de version par utilisateur, incrémentés à chaque nouvelle notification ou lecture.
+ *
+ * - Exposés en ETag : un If-None-Match identique reçoit 304 sans accès à la base
+ * - Chaque entrée expire ttl après sa création et reçoit alors un nouveau jeton aléatoire :
+ *   les modifications faites sur une autre instance sont donc visibles au plus tard après ttl
+ * - Un utilisateur modifié depuis moins de read-your-writes-seconds est lu sur le primaire :
+ *   un client réveillé par un nouvel ETag ne relit pas l'état antérieur sur un réplica en retard
+ * - Les requêtes long-poll s'inscrivent comme écouteurs du prochain changement de l'utilisateur ;
+ *   elles se désinscrivent à l'expiration, et l'entrée de l'utilisateur disparaît avec son dernier écouteur
+ * - Les écouteurs (qui relisent le compteur en base) sont exécutés sur un pool dédié,
+ *   jamais sur le thread qui incrémente (worker de livraison, afterCommit d'une lecture)
+ */
+@Component
+public class UserFeedVersionTracker {
+
+    private final Cache<Long, Version> versions;
+    private final Cache<Long, Boolean> recentChanges;
+    private final Map<Long, Set<Runnable>> listeners = new ConcurrentHashMap<>();
+    private final Executor listenerExecutor;
+
+    @Autowired
+    public UserFeedVersionTracker(
+            @Value("${notification.etag.ttl-seconds:30}") long ttlSeconds,
+            @Value("${notification.etag.max-users:200000}") long maxUsers,
+            @Value("${notification.long-poll.wakeup-threads:4}") int wakeupThreads,
+            @Value("${notification.datasource.replicas.read-your-writes-seconds:10}") long readYourWritesSeconds,
+            Environment environment) {
+        this(listenerExecutor(wakeupThreads, environment), ttlSeconds, maxUsers, readYourWritesSeconds);
+    }
+
+    UserFeedVersionTracker(Executor listenerExecutor, long ttlSeconds, long maxUsers, long readYourWritesSeconds) {
+        this.listenerExecutor = listenerExecutor;
+        this.recentChanges = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(readYourWritesSeconds))
+                .maximumSize(maxUsers)
+                .build();
+        this.versions = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxUsers)
+                .build();
+    }
+
+    /**
+     * Version courante de l'utilisateur, au format ETag (sans le préfixe de représentation).
+     */
+    public String currentVersion(Long userId) {
+        return versions.get(userId, id -> new Version()).toString();
+    }
+
+    /**
+     * Incrémente la version une fois la transaction courante validée, pour qu'un client réveillé
+     * relise l'état committé.
+     */
+    public void bumpAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bump(userId);
+            }
+        });
+    }
+
+    public void bump(Long userId) {
+        recentChanges.put(userId, Boolean.TRUE);
+        Version version = versions.getIfPresent(userId);
+        if (version != null) {
+            version.counter.incrementAndGet();
+        }
+        Set<Runnable> waiting = listeners.remove(userId);
+        if (waiting != null) {
+            waiting.forEach(listenerExecutor::execute);
+        }
+    }
+
+    /**
+     * Vrai si l'utilisateur a changé depuis moins que la fenêtre de lecture de ses écritures.
+     */
+    public boolean changedRecently(Long userId) {
+        return recentChanges.getIfPresent(userId) != null;
+    }
+
+    /**
+     * Exécute listener (une seule fois) au prochain changement de l'utilisateur.
+     *
+     * @return action de désinscription, à appeler si l'attente se termine autrement
+     */
+    public Runnable onNextChange(Long userId, Runnable listener) {
+        Runnable registered = listener::run;
+        listeners.compute(userId, (id, set) -> {
+            Set<Runnable> waiting = set != null ? set : ConcurrentHashMap.newKeySet();
+            waiting.add(registered);
+            return waiting;
+        });
+        return () -> listeners.computeIfPresent(userId, (id, set) -> {
+            set.remove(registered);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * Nombre d'utilisateurs ayant au moins un écouteur en attente.
+     */
+    int waitingUsers() {
+        return listeners.size();
+    }
+
+    private static Executor listenerExecutor(int threads, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return new VirtualThreadTaskExecutor("long-poll-");
+        }
+        AtomicInteger index = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "long-poll-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final class Version {
+        private final String token = UUID.randomUUID().toString().substring(0, 8);
+        private final AtomicLong counter = new AtomicLong();
+
+        @Override
+        public String toString() {
+            return token + "-" + counter.get();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package ma.fstt.notificationservice.utils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Compteur sur fenêtres glissantes à plusieurs niveaux de granularité, sans verrou.
+ *
+ * Chaque niveau est un anneau de buckets (AtomicLongArray) horodatés par leur numéro de période :
+ * un bucket périmé est recyclé par le premier thread qui y écrit (CAS sur l'horodatage).
+ * Les lectures choisissent le niveau le plus fin couvrant la fenêtre demandée.
+ */
+public class RollingCounter {
+
+    private final LongSupplier clock;
+    private final Level[] levels;
+
+    /**
+     * @param levels niveaux (largeur d'un bucket, nombre de buckets), du plus fin au plus large
+     */
+    public RollingCounter(Level... levels) {
+        this(System::currentTimeMillis, levels);
+    }
+
+    /**
+     * @param clock horloge en millisecondes (injectable pour les tests)
+     */
+    RollingCounter(LongSupplier clock, Level... levels) {
+        if (levels.length == 0) {
+            throw new IllegalArgumentException("At least one level is required");
+        }
+        this.clock = clock;
+        this.levels = levels.clone();
+    }
+
+    /**
+     * Niveaux par défaut : 1 min (buckets de 1 s), 15 min (buckets de 10 s), 1 h (buckets de 1 min).
+     */
+    public static RollingCounter withDefaultLevels() {
+        return new RollingCounter(
+                new Level(Duration.ofSeconds(1), 60),
+                new Level(Duration.ofSeconds(10), 90),
+                new Level(Duration.ofMinutes(1), 60));
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        long now = clock.getAsLong();
+        for (Level level : levels) {
+            level.add(now, delta);
+        }
+    }
+
+    /**
+     * Total sur la fenêtre, arrondie au bucket supérieur du niveau utilisé
+     * et plafonnée à la couverture du niveau le plus large.
+     */
+    public long sum(Duration window) {
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+        long now = clock.getAsLong();
+        return levelFor(window).sum(now, window.toMillis());
+    }
+
+    public double ratePerSecond(Duration window) {
+        return sum(window) / (double) Math.max(1, window.toSeconds());
+    }
+
+    private Level levelFor(Duration window) {
+        for (Level level : levels) {
+            if (level.span() >= window.toMillis()) {
+                return level;
+            }
+        }
+        return levels[levels.length - 1];
+    }
+
+    public static final class Level {
+
+        // Horodatage réservé pendant la remise à zéro d'un bucket
+        private static final long RESETTING = -1;
+
+        private final long bucketMillis;
+        private final int size;
+        private final AtomicLongArray periods;
+        private final AtomicLongArray counts;
+
+        public Level(Duration bucketWidth, int buckets) {
+            this.bucketMillis = bucketWidth.toMillis();
+            this.size = buckets;
+            this.periods = new AtomicLongArray(buckets);
+            this.counts = new AtomicLongArray(buckets);
+        }
+
+        long span() {
+            return bucketMillis * size;
+        }
+
+        void add(long nowMillis, long delta) {
+            long period = nowMillis / bucketMillis;
+            int index = (int) (period % size);
+            while (true) {
+                long current = periods.get(index);
+                if (current == period) {
+                    counts.addAndGet(index, delta);
+                    return;
+                }
+                if (current != RESETTING && current < period
+                        && periods.compareAndSet(index, current, RESETTING)) {
+                    counts.set(index, delta);
+                    periods.set(index, period);
+                    return;
+                }
+                if (current > period) {
+                    // Écriture tardive d'un thread préempté : le bucket a déjà été recyclé
+                    return;
+                }
+                Thread.onSpinWait();
+            }
+        }
+
+        long sum(long nowMillis, long windowMillis) {
+            long period = nowMillis / bucketMillis;
+            long oldest = period - Math.min(size, Math.max(1, (windowMillis + bucketMillis - 1) / bucketMillis)) + 1;
+            long total = 0;
+            for (int i = 0; i < size; i++) {
+                long bucketPeriod = periods.get(i);
+                if (bucketPeriod >= oldest && bucketPeriod <= period) {
+                    total += counts.get(i);
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ma.fstt.notificationservice.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Seau à jetons sans verrou (CAS sur un seul AtomicLong).
+ *
+ * L'état encode l'instant (en nanosecondes) auquel le seau sera de nouveau plein :
+ * consommer n jetons revient à avancer cet instant de n * intervalle.
+ */
+public class TokenBucket {
+
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * @param permitsPerSecond débit soutenu
+     * @param burst capacité maximale du seau
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond and burst must be positive");
+        }
+        this.nanosPerToken = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = nanosPerToken * burst;
+        this.fullAt = new AtomicLong(System.nanoTime() - burstNanos);
+    }
+
+    /**
+     * Consomme des jetons s'ils sont disponibles, sans attendre.
+     */
+    public boolean tryAcquire(int permits) {
+        long cost = nanosPerToken * permits;
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long base = Math.max(current, now - burstNanos);
+            long next = base + cost;
+            if (next > now) {
+                return false;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Réserve des jetons et attend le temps nécessaire à leur disponibilité.
+     */
+    public void acquire(int permits) {
+        long cost = nanosPerToken * permits;
+        long waitNanos;
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long base = Math.max(current, now - burstNanos);
+            long next = base + cost;
+            if (fullAt.compareAndSet(current, next)) {
+                waitNanos = next - now;
+                break;
+            }
+        }
+        if (waitNanos > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+
+    /**
+     * Délai avant qu'un jeton soit disponible (0 si immédiat).
+     */
+    public long nanosUntilAvailable() {
+        long now = System.nanoTime();
+        long base = Math.max(fullAt.get(), now - burstNanos);
+        return Math.max(0, base + nanosPerToken - now);
+    }
+}
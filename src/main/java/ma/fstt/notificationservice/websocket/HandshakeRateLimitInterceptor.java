@@ -0,0 +1,67 @@
+package ma.fstt.notificationservice.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.utils.TokenBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contrôle d'admission des handshakes WebSocket.
+ *
+ * Au-delà du débit autorisé (tempête de reconnexions après un déploiement), le handshake est refusé
+ * avec 503 et un en-tête Retry-After légèrement aléatoire pour étaler les nouvelles tentatives.
+ */
+@Component
+@Slf4j
+public class HandshakeRateLimitInterceptor implements HandshakeInterceptor {
+
+    private final TokenBucket bucket;
+    private final int retryJitterSeconds;
+    private final Counter rejectedCounter;
+
+    public HandshakeRateLimitInterceptor(
+            MeterRegistry meterRegistry,
+            @Value("${websocket.handshake.rate-per-second:200}") double ratePerSecond,
+            @Value("${websocket.handshake.burst:400}") int burst,
+            @Value("${websocket.handshake.retry-jitter-seconds:10}") int retryJitterSeconds) {
+        this.bucket = new TokenBucket(ratePerSecond, burst);
+        this.retryJitterSeconds = retryJitterSeconds;
+        this.rejectedCounter = Counter.builder("websocket.handshake.rejected")
+                .description("WebSocket handshakes rejected by admission control")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (bucket.tryAcquire()) {
+            return true;
+        }
+
+        long waitSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(bucket.nanosUntilAvailable()));
+        long retryAfter = waitSeconds + ThreadLocalRandom.current().nextInt(retryJitterSeconds + 1);
+
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set("Retry-After", String.valueOf(retryAfter));
+        rejectedCounter.increment();
+        log.debug("WebSocket handshake rejected: remote={}, retryAfter={}s", request.getRemoteAddress(), retryAfter);
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+        // rien à faire
+    }
+}
@@ -0,0 +1,139 @@
+package ma.fstt.notificationservice.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ma.fstt.notificationservice.enums.SlowConsumerPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Comptabilité des tampons de sortie par session WebSocket et détection des clients lents.
+ *
+ * - Chaque session est enveloppée par SlowConsumerSubProtocolWebSocketHandler dans un tampon borné
+ *   (limites websocket.transport.*)
+ * - Un balayage périodique marque lentes les sessions dont le tampon dépasse le seuil
+ *   ou dont l'envoi en cours dure trop longtemps
+ * - Les utilisateurs abonnés via une session lente sont exposés à l'étage de regroupement
+ *
+ * Métriques : websocket.sessions.slow (gauge), websocket.messages.dropped (compteur).
+ */
+@Component
+@Slf4j
+public class SlowConsumerRegistry {
+
+    private final Map<String, TrackedSession> sessions = new ConcurrentHashMap<>();
+    private final Set<String> slowSessions = ConcurrentHashMap.newKeySet();
+    private final Set<Long> slowUsers = ConcurrentHashMap.newKeySet();
+    private final Counter droppedCounter;
+
+    @Getter
+    private final SlowConsumerPolicy policy;
+
+    @Getter
+    private final int bufferSizeLimit;
+
+    @Getter
+    private final int sendTimeLimitMs;
+
+    private final double slowThresholdRatio;
+
+    public SlowConsumerRegistry(
+            MeterRegistry meterRegistry,
+            @Value("${websocket.slow-consumer.policy:DROP_OLDEST}") SlowConsumerPolicy policy,
+            @Value("${websocket.transport.send-buffer-size-limit:524288}") int bufferSizeLimit,
+            @Value("${websocket.transport.send-time-limit-ms:15000}") int sendTimeLimitMs,
+            @Value("${websocket.slow-consumer.slow-threshold-ratio:0.5}") double slowThresholdRatio) {
+        this.policy = policy;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.slowThresholdRatio = slowThresholdRatio;
+        this.droppedCounter = Counter.builder("websocket.messages.dropped")
+                .description("Outbound messages dropped for slow WebSocket sessions")
+                .register(meterRegistry);
+        Gauge.builder("websocket.sessions.slow", slowSessions, Set::size)
+                .description("WebSocket sessions currently flagged as slow consumers")
+                .register(meterRegistry);
+    }
+
+    public void register(ConcurrentWebSocketSessionDecorator session) {
+        sessions.put(session.getId(), new TrackedSession(session));
+    }
+
+    public void unregister(String sessionId) {
+        sessions.remove(sessionId);
+        slowSessions.remove(sessionId);
+    }
+
+    public void recordDropped() {
+        droppedCounter.increment();
+    }
+
+    public boolean isSlowUser(Long userId) {
+        return slowUsers.contains(userId);
+    }
+
+    /**
+     * Associe la session à l'utilisateur ciblé par l'abonnement /topic/notifications/{userId}.
+     */
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        TrackedSession tracked = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (tracked == null || destination == null || !destination.startsWith("/topic/notifications/")) {
+            return;
+        }
+        try {
+            tracked.userIds.add(Long.parseLong(destination.substring("/topic/notifications/".length())));
+        } catch (NumberFormatException e) {
+            // broadcast ou destination non nominative
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${websocket.slow-consumer.scan-interval-ms:1000}")
+    public void scan() {
+        long bufferThreshold = (long) (bufferSizeLimit * slowThresholdRatio);
+        long timeThreshold = (long) (sendTimeLimitMs * slowThresholdRatio);
+        Set<Long> currentSlowUsers = ConcurrentHashMap.newKeySet();
+
+        for (TrackedSession tracked : sessions.values()) {
+            ConcurrentWebSocketSessionDecorator session = tracked.session;
+            boolean slow = session.getBufferSize() > bufferThreshold
+                    || session.getTimeSinceSendStarted() > timeThreshold;
+
+            if (slow) {
+                if (slowSessions.add(session.getId())) {
+                    log.warn("Slow WebSocket consumer detected: sessionId={}, users={}, buffer={}B, sendingFor={}ms",
+                            session.getId(), tracked.userIds, session.getBufferSize(), session.getTimeSinceSendStarted());
+                }
+                currentSlowUsers.addAll(tracked.userIds);
+            } else if (slowSessions.remove(session.getId())) {
+                log.info("WebSocket consumer recovered: sessionId={}", session.getId());
+            }
+        }
+
+        slowUsers.retainAll(currentSlowUsers);
+        slowUsers.addAll(currentSlowUsers);
+    }
+
+    private static final class TrackedSession {
+        private final ConcurrentWebSocketSessionDecorator session;
+        private final Set<Long> userIds = ConcurrentHashMap.newKeySet();
+
+        private TrackedSession(ConcurrentWebSocketSessionDecorator session) {
+            this.session = session;
+        }
+    }
+}
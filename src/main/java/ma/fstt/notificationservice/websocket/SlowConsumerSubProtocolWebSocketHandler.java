@@ -0,0 +1,81 @@
+package ma.fstt.notificationservice.websocket;
+
+import ma.fstt.notificationservice.enums.SlowConsumerPolicy;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator.OverflowStrategy;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.io.IOException;
+
+/**
+ * SubProtocolWebSocketHandler dont le tampon de sortie par session applique la politique
+ * de client lent configurée.
+ *
+ * Spring enveloppe déjà chaque session dans un ConcurrentWebSocketSessionDecorator
+ * (limites setSendTimeLimit / setSendBufferSizeLimit du transport) ; on remplace ce décorateur
+ * au lieu d'en ajouter un second, afin de choisir la stratégie de débordement et de
+ * l'enregistrer auprès du SlowConsumerRegistry.
+ *
+ * Un client lent ne bloque ainsi que son propre tampon : les threads du canal sortant
+ * reviennent immédiatement et le reste de la diffusion conserve sa latence.
+ */
+public class SlowConsumerSubProtocolWebSocketHandler extends SubProtocolWebSocketHandler {
+
+    private final SlowConsumerRegistry registry;
+
+    public SlowConsumerSubProtocolWebSocketHandler(MessageChannel clientInboundChannel,
+                                                   SubscribableChannel clientOutboundChannel,
+                                                   SlowConsumerRegistry registry) {
+        super(clientInboundChannel, clientOutboundChannel);
+        this.registry = registry;
+    }
+
+    @Override
+    protected WebSocketSession decorateSession(WebSocketSession session) {
+        OverflowStrategy strategy = registry.getPolicy() == SlowConsumerPolicy.DISCONNECT
+                ? OverflowStrategy.TERMINATE
+                : OverflowStrategy.DROP;
+
+        ConcurrentWebSocketSessionDecorator decorated = new AccountingSessionDecorator(
+                session, getSendTimeLimit(), getSendBufferSizeLimit(), strategy, registry);
+        registry.register(decorated);
+        return decorated;
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        registry.unregister(session.getId());
+        super.afterConnectionClosed(session, closeStatus);
+    }
+
+    /**
+     * Compte les messages abandonnés lorsque le tampon déborde (stratégie DROP).
+     */
+    private static final class AccountingSessionDecorator extends ConcurrentWebSocketSessionDecorator {
+
+        private final SlowConsumerRegistry registry;
+        private final OverflowStrategy strategy;
+
+        private AccountingSessionDecorator(WebSocketSession session, int sendTimeLimit, int bufferSizeLimit,
+                                           OverflowStrategy strategy, SlowConsumerRegistry registry) {
+            super(session, sendTimeLimit, bufferSizeLimit, strategy);
+            this.registry = registry;
+            this.strategy = strategy;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            boolean overflow = strategy == OverflowStrategy.DROP
+                    && getBufferSize() + message.getPayloadLength() > getBufferSizeLimit();
+            super.sendMessage(message);
+            if (overflow) {
+                registry.recordDropped();
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+-- Segments d'audience résolus localement
+create table audience_members (
+    id bigint generated by default as identity,
+    user_id bigint not null,
+    segment_type varchar(50) not null,
+    segment_key varchar(100) not null,
+    primary key (id)
+);
@@ -0,0 +1,4 @@
+-- Identifiant de modèle : titre et message ne sont plus stockés lorsqu'un modèle s'applique
+alter table notifications add column template_id varchar(100);
+alter table notifications alter column title set null;
+alter table notifications alter column message set null;
@@ -0,0 +1,10 @@
+-- Metadata sérialisées en JSON dans notifications.metadata : reprise de notification_metadata puis suppression
+alter table notifications add column metadata TEXT;
+
+update notifications n
+   set metadata = (select cast(json_objectagg(key m.meta_key value m.meta_value) as varchar)
+                     from notification_metadata m
+                    where m.notification_id = n.id)
+ where exists (select 1 from notification_metadata m where m.notification_id = n.id);
+
+drop table notification_metadata;
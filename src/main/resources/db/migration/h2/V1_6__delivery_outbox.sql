@@ -0,0 +1,15 @@
+-- Outbox de livraison relayée par SKIP LOCKED
+create table delivery_outbox (
+    attempts integer not null,
+    available_at timestamp(6) not null,
+    created_at timestamp(6) not null,
+    first_user_notification_id bigint not null,
+    id bigint generated by default as identity,
+    last_user_notification_id bigint not null,
+    notification_id bigint not null,
+    priority enum ('HIGH','NORMAL') not null,
+    primary key (id)
+);
+
+create index idx_outbox_available_at
+   on delivery_outbox (available_at);
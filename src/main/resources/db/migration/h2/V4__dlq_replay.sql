@@ -0,0 +1,7 @@
+-- Rejeu DLQ vers Kafka : clé d'origine, empreinte d'erreur et horodatage du rejeu
+alter table dead_letter_queue add column kafka_key varchar(255);
+alter table dead_letter_queue add column error_fingerprint varchar(64);
+alter table dead_letter_queue add column replayed_at timestamp(6);
+
+create index idx_dlq_processed_fingerprint
+   on dead_letter_queue (processed, error_fingerprint);
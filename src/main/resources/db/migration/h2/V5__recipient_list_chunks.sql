@@ -0,0 +1,18 @@
+-- Claim check : listes de destinataires volumineuses déposées hors du message Kafka
+create table recipient_list_chunks (
+    id bigint generated by default as identity,
+    list_ref varchar(36) not null,
+    chunk_index integer not null,
+    user_count integer not null,
+    user_ids varbinary(16000) not null,
+    created_at timestamp(6) not null,
+    primary key (id)
+);
+
+-- findByListRefAndChunkIndex
+create unique index idx_recipient_chunk_ref_index
+   on recipient_list_chunks (list_ref, chunk_index);
+
+-- purge des listes expirées
+create index idx_recipient_chunk_created_at
+   on recipient_list_chunks (created_at);
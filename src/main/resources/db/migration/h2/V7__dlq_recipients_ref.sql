@@ -0,0 +1,9 @@
+-- Listes de destinataires référencées par la DLQ : la purge du claim check les épargne tant que le message n'est pas traité
+alter table dead_letter_queue add column recipients_ref varchar(36);
+
+update dead_letter_queue
+   set recipients_ref = regexp_substr(payload, '"recipientsRef":"([^"]{1,36})"', 1, 1, '', 1)
+ where processed = false;
+
+create index idx_dlq_processed_recipients_ref
+   on dead_letter_queue (processed, recipients_ref);
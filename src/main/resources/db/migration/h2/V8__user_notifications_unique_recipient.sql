@@ -0,0 +1,4 @@
+-- Une ligne par destinataire et canal : dédoublonnage entre lots à l'ingestion (findRecipientUserIds)
+-- et garde-fou contre une double insertion
+create unique index uk_un_notification_user_channel
+   on user_notifications (notification_id, user_id, channel);
@@ -0,0 +1,10 @@
+-- Metadata sérialisées en JSON dans notifications.metadata : reprise de notification_metadata puis suppression
+alter table notifications add column metadata TEXT;
+
+update notifications n
+   join (select notification_id, json_objectagg(meta_key, meta_value) as metadata
+           from notification_metadata
+          group by notification_id) m on m.notification_id = n.id
+   set n.metadata = m.metadata;
+
+drop table notification_metadata;
@@ -0,0 +1,12 @@
+-- Archive des notifications lues anciennes (payload : NotificationDTO compressé)
+create table user_notifications_archive (
+    archived_at datetime(6) not null,
+    id bigint not null,
+    notification_id bigint not null,
+    sent_at datetime(6),
+    user_id bigint not null,
+    channel enum ('EMAIL','PUSH','SMS') not null,
+    event_type enum ('CONTRACT_CREATED','KEY_DELIVERED','PAYMENT_RECEIVED','RENTAL_REQUEST_ACCEPTED','RENTAL_REQUEST_CREATED','RENTAL_REQUEST_REJECTED') not null,
+    payload mediumblob not null,
+    primary key (id)
+) engine=InnoDB;
@@ -0,0 +1,7 @@
+-- Coordonnées des destinataires pour les canaux email et SMS
+create table user_contacts (
+    user_id bigint not null,
+    phone_number varchar(30),
+    email varchar(255),
+    primary key (user_id)
+) engine=InnoDB;
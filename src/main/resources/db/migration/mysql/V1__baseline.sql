@@ -0,0 +1,53 @@
+-- Schéma d'avant Flyway (tel que généré par ddl-auto) ; les bases existantes sont baselinées en V1,
+-- les évolutions suivantes sont appliquées par les migrations V1_1 et au-delà
+
+create table dead_letter_queue (
+    kafka_partition integer not null,
+    processed bit not null,
+    retry_count integer not null,
+    failed_at datetime(6) not null,
+    id bigint not null auto_increment,
+    kafka_offset bigint not null,
+    processed_at datetime(6),
+    error_message TEXT not null,
+    payload TEXT not null,
+    stack_trace TEXT,
+    topic varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table notification_metadata (
+    notification_id bigint not null,
+    meta_value varchar(255),
+    meta_key varchar(255) not null,
+    primary key (notification_id, meta_key)
+) engine=InnoDB;
+
+create table notifications (
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    message varchar(1000) not null,
+    title varchar(255) not null,
+    event_type enum ('CONTRACT_CREATED','KEY_DELIVERED','PAYMENT_RECEIVED','RENTAL_REQUEST_ACCEPTED','RENTAL_REQUEST_CREATED','RENTAL_REQUEST_REJECTED') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table user_notifications (
+    id bigint not null auto_increment,
+    notification_id bigint not null,
+    sent_at datetime(6),
+    user_id bigint not null,
+    channel enum ('EMAIL','PUSH','SMS') not null,
+    status enum ('FAILED','READ','UNREAD') not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table notification_metadata
+   add constraint FKgbk0mb5ryjwvv6ovjbkrjrhc1
+   foreign key (notification_id)
+   references notifications (id);
+
+alter table user_notifications
+   add constraint FKovvx0ab3h8s9lrm6fppuadn7d
+   foreign key (notification_id)
+   references notifications (id);
@@ -0,0 +1,29 @@
+-- Index alignés sur les requêtes des repositories (mêmes noms que les @Index des entités)
+
+-- countByUserIdAndStatus (couvrant), findByUserIdAndStatusOrderBySentAtDesc
+create index idx_un_user_status_sent
+   on user_notifications (user_id, status, sent_at);
+
+-- findByUserIdOrderBySentAtDesc, findByUserIdAndSentAtAfterOrderBySentAtAsc
+create index idx_un_user_sent
+   on user_notifications (user_id, sent_at);
+
+-- claimArchivable
+create index idx_un_status_sent
+   on user_notifications (status, sent_at);
+
+-- findByProcessedFalseAndRetryCountLessThan, countByProcessedFalse (couvrant)
+create index idx_dlq_processed_retry
+   on dead_letter_queue (processed, retry_count);
+
+-- findOldUnprocessedMessages
+create index idx_dlq_processed_failed_at
+   on dead_letter_queue (processed, failed_at);
+
+-- findUserIdsAfter (pagination par clé, couvrant)
+create index idx_audience_segment_user
+   on audience_members (segment_type, segment_key, user_id);
+
+-- deleteOrphansCreatedBefore
+create index idx_notifications_created_at
+   on notifications (created_at);
@@ -0,0 +1,3 @@
+-- Le @Lob sans longueur avait été créé en TINYBLOB (255 octets) : trop petit pour un NotificationDTO compressé
+alter table user_notifications_archive
+   modify payload mediumblob not null;
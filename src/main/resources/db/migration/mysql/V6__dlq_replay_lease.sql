@@ -0,0 +1,2 @@
+-- Bail de rejeu DLQ : une ligne envoyée vers Kafka n'est plus réclamée tant que son acquittement est attendu
+alter table dead_letter_queue add column replay_lease_until datetime(6);
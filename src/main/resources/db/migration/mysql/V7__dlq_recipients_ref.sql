@@ -0,0 +1,11 @@
+-- Listes de destinataires référencées par la DLQ : la purge du claim check les épargne tant que le message n'est pas traité
+alter table dead_letter_queue add column recipients_ref varchar(36);
+
+update dead_letter_queue
+   set recipients_ref = json_unquote(json_extract(payload, '$.recipientsRef'))
+ where processed = false
+   and json_valid(payload)
+   and json_type(json_extract(payload, '$.recipientsRef')) = 'STRING';
+
+create index idx_dlq_processed_recipients_ref
+   on dead_letter_queue (processed, recipients_ref);
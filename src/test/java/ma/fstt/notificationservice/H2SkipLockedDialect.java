@@ -0,0 +1,25 @@
+package ma.fstt.notificationservice;
+
+import org.hibernate.dialect.H2Dialect;
+
+/**
+ * Dialecte H2 des tests : H2 2.x accepte FOR UPDATE SKIP LOCKED, que H2Dialect n'émet pas.
+ * Permet de vérifier sur H2 les réclamations concurrentes (timeout de verrou -2) utilisées avec MySQL.
+ */
+public class H2SkipLockedDialect extends H2Dialect {
+
+    @Override
+    public boolean supportsSkipLocked() {
+        return true;
+    }
+
+    @Override
+    public String getForUpdateSkipLockedString() {
+        return " for update skip locked";
+    }
+
+    @Override
+    public String getForUpdateSkipLockedString(String aliases) {
+        return getForUpdateSkipLockedString();
+    }
+}
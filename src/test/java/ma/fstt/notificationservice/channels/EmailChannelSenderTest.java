@@ -0,0 +1,123 @@
+package ma.fstt.notificationservice.channels;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.mail.internet.MimeMessage;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.entities.UserContact;
+import ma.fstt.notificationservice.repositories.UserContactRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Envoi SMTP réel vers un serveur GreenMail embarqué.
+ */
+class EmailChannelSenderTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    private final UserContactRepository userContactRepository = mock(UserContactRepository.class);
+
+    private EmailChannelSender sender;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+
+        ObjectProvider<JavaMailSender> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(mailSender);
+
+        sender = new EmailChannelSender(provider, userContactRepository, new SimpleMeterRegistry(),
+                ObservationRegistry.NOOP, 2, 1000, 2);
+        ReflectionTestUtils.setField(sender, "from", "no-reply@estate-rental.local");
+    }
+
+    @Test
+    void deliversEveryMessageOfTheBatch() throws Exception {
+        when(userContactRepository.findAllById(any())).thenReturn(List.of(
+                contact(1L, "alice@example.com"), contact(2L, "bob@example.com"), contact(3L, "carol@example.com")));
+
+        SendResult result = sender.send(List.of(message(1L), message(2L), message(3L)));
+
+        assertThat(result.failureCount()).isZero();
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(3);
+        assertThat(received[0].getSubject()).isEqualTo("Paiement reçu");
+        assertThat(received).extracting(message -> message.getAllRecipients()[0].toString())
+                .containsExactlyInAnyOrder("alice@example.com", "bob@example.com", "carol@example.com");
+    }
+
+    @Test
+    void rejectsRecipientsWithoutEmailOrText() {
+        when(userContactRepository.findAllById(any())).thenReturn(List.of(
+                contact(1L, "alice@example.com"), contact(3L, "carol@example.com")));
+
+        SendResult result = sender.send(List.of(message(1L), message(2L), message(3L).toBuilder().message(null).build()));
+
+        assertThat(result.failed()).isEmpty();
+        assertThat(result.rejected()).extracting(NotificationDTO::getUserId).containsExactly(2L, 3L);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+    }
+
+    @Test
+    void rejectsEverythingWhenSmtpIsNotConfigured() {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<JavaMailSender> provider = mock(ObjectProvider.class);
+        EmailChannelSender unconfigured = new EmailChannelSender(provider, userContactRepository,
+                new SimpleMeterRegistry(), ObservationRegistry.NOOP, 10, 1000, 2);
+
+        SendResult result = unconfigured.send(List.of(message(1L)));
+
+        assertThat(result.failed()).isEmpty();
+        assertThat(result.rejected()).extracting(NotificationDTO::getUserId).containsExactly(1L);
+    }
+
+    @Test
+    void reportsWholeBatchAsFailedWhenServerIsUnreachable() {
+        JavaMailSenderImpl unreachable = new JavaMailSenderImpl();
+        unreachable.setHost("localhost");
+        unreachable.setPort(1);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<JavaMailSender> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(unreachable);
+        EmailChannelSender offline = new EmailChannelSender(provider, userContactRepository,
+                new SimpleMeterRegistry(), ObservationRegistry.NOOP, 10, 1000, 2);
+        when(userContactRepository.findAllById(any())).thenReturn(List.of(contact(1L, "alice@example.com")));
+
+        assertThat(offline.send(List.of(message(1L))).failed()).extracting(NotificationDTO::getUserId).containsExactly(1L);
+    }
+
+    private static UserContact contact(Long userId, String email) {
+        UserContact contact = new UserContact();
+        contact.setUserId(userId);
+        contact.setEmail(email);
+        return contact;
+    }
+
+    private static NotificationDTO message(Long userId) {
+        return NotificationDTO.builder()
+                .id(userId)
+                .userId(userId)
+                .title("Paiement reçu")
+                .message("Votre paiement a été reçu.")
+                .build();
+    }
+}
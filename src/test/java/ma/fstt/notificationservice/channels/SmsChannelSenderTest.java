@@ -0,0 +1,141 @@
+package ma.fstt.notificationservice.channels;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.entities.UserContact;
+import ma.fstt.notificationservice.repositories.UserContactRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Envoi vers une passerelle SMS simulée (serveur HTTP embarqué du JDK).
+ */
+class SmsChannelSenderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UserContactRepository userContactRepository = mock(UserContactRepository.class);
+    private final List<JsonNode> requests = new CopyOnWriteArrayList<>();
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private final AtomicInteger responseStatus = new AtomicInteger(200);
+
+    private HttpServer gateway;
+    private SmsChannelSender sender;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gateway = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        gateway.createContext("/sms/batch", exchange -> {
+            requests.add(objectMapper.readTree(exchange.getRequestBody()));
+            authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            exchange.sendResponseHeaders(responseStatus.get(), -1);
+            exchange.close();
+        });
+        gateway.start();
+
+        sender = new SmsChannelSender(userContactRepository, objectMapper, new SimpleMeterRegistry(),
+                ObservationRegistry.NOOP, 2, 1000, 2);
+        ReflectionTestUtils.setField(sender, "gatewayUrl",
+                "http://localhost:" + gateway.getAddress().getPort() + "/sms/batch");
+        ReflectionTestUtils.setField(sender, "apiKey", "secret");
+        ReflectionTestUtils.setField(sender, "timeoutMs", 5000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.stop(0);
+    }
+
+    @Test
+    void sendsOneGatewayCallPerBatch() {
+        when(userContactRepository.findAllById(any())).thenAnswer(invocation -> contactsFor(invocation.getArgument(0)));
+
+        SendResult result = sender.send(List.of(message(1L), message(2L), message(3L)));
+
+        assertThat(result.failureCount()).isZero();
+        assertThat(requests).hasSize(2);
+        assertThat(requests.get(0).get("messages")).hasSize(2);
+        assertThat(requests.get(0).get("messages").get(0).get("text").asText()).isEqualTo("Votre paiement a été reçu.");
+        assertThat(authorizations).containsOnly("Bearer secret");
+    }
+
+    @Test
+    void reportsBatchAsFailedWhenGatewayRejectsIt() {
+        responseStatus.set(503);
+        when(userContactRepository.findAllById(any())).thenAnswer(invocation -> contactsFor(invocation.getArgument(0)));
+
+        SendResult result = sender.send(List.of(message(1L), message(2L)));
+
+        assertThat(result.failed()).extracting(NotificationDTO::getUserId).containsExactly(1L, 2L);
+        assertThat(result.rejected()).isEmpty();
+    }
+
+    @Test
+    void rejectsRecipientsWithoutPhoneNumber() {
+        when(userContactRepository.findAllById(any())).thenReturn(contactsFor(List.of(1L)));
+
+        SendResult result = sender.send(List.of(message(1L), message(2L)));
+
+        assertThat(result.failed()).isEmpty();
+        assertThat(result.rejected()).extracting(NotificationDTO::getUserId).containsExactly(2L);
+        assertThat(requests).hasSize(1);
+        assertThat(requests.get(0).get("messages")).hasSize(1);
+    }
+
+    @Test
+    void rejectsMessagesWithoutTextAndSendsTheRestOfTheBatch() {
+        when(userContactRepository.findAllById(any())).thenAnswer(invocation -> contactsFor(invocation.getArgument(0)));
+
+        SendResult result = sender.send(List.of(message(1L).toBuilder().message(null).build(), message(2L)));
+
+        assertThat(result.failed()).isEmpty();
+        assertThat(result.rejected()).extracting(NotificationDTO::getUserId).containsExactly(1L);
+        assertThat(requests).singleElement().satisfies(request -> assertThat(request.get("messages")).hasSize(1));
+    }
+
+    @Test
+    void rejectsEverythingWhenGatewayIsNotConfigured() {
+        ReflectionTestUtils.setField(sender, "gatewayUrl", "");
+
+        SendResult result = sender.send(List.of(message(1L)));
+
+        assertThat(result.failed()).isEmpty();
+        assertThat(result.rejected()).extracting(NotificationDTO::getUserId).containsExactly(1L);
+    }
+
+    private static List<UserContact> contactsFor(Iterable<Long> userIds) {
+        List<UserContact> contacts = new ArrayList<>();
+        for (Long userId : userIds) {
+            UserContact contact = new UserContact();
+            contact.setUserId(userId);
+            contact.setPhoneNumber("+21260000000" + userId);
+            contacts.add(contact);
+        }
+        return contacts;
+    }
+
+    private static NotificationDTO message(Long userId) {
+        return NotificationDTO.builder()
+                .id(userId)
+                .userId(userId)
+                .title("Paiement reçu")
+                .message("Votre paiement a été reçu.")
+                .build();
+    }
+}
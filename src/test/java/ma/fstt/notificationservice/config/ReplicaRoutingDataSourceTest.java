@@ -0,0 +1,90 @@
+package ma.fstt.notificationservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routage du profil replicas-local, avec deux bases H2 distinctes pour distinguer primaire et réplica.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReplicaRoutingDataSource routing;
+
+    @AfterEach
+    void close() {
+        routing.close();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplicaAndWritesToPrimary() {
+        DataSource dataSource = dataSource("");
+
+        assertThat(currentDatabase(dataSource, true)).isEqualTo("ROUTING_REPLICA");
+        assertThat(currentDatabase(dataSource, false)).isEqualTo("ROUTING_PRIMARY");
+        assertThat(reads("replica")).isEqualTo(1);
+    }
+
+    @Test
+    void pinnedReadsGoToPrimary() {
+        DataSource dataSource = dataSource("");
+
+        String database = ReplicaRoutingDataSource.readFromPrimary(() -> currentDatabase(dataSource, true));
+
+        assertThat(database).isEqualTo("ROUTING_PRIMARY");
+        assertThat(reads("primary-pinned")).isEqualTo(1);
+        assertThat(ReplicaRoutingDataSource.isReadingFromPrimary()).isFalse();
+        assertThat(currentDatabase(dataSource, true)).isEqualTo("ROUTING_REPLICA");
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        DataSource dataSource = dataSource("SELECT 60");
+
+        assertThat(currentDatabase(dataSource, true)).isEqualTo("ROUTING_PRIMARY");
+        assertThat(reads("primary-fallback")).isEqualTo(1);
+    }
+
+    private DataSource dataSource(String lagQuery) {
+        DataSourceProperties dataSourceProperties = new DataSourceProperties();
+        dataSourceProperties.setUrl("jdbc:h2:mem:routing_primary;DB_CLOSE_DELAY=-1");
+        dataSourceProperties.setUsername("sa");
+        dataSourceProperties.setPassword("");
+
+        ReplicaProperties.Node node = new ReplicaProperties.Node();
+        node.setUrl("jdbc:h2:mem:routing_replica;DB_CLOSE_DELAY=-1");
+        ReplicaProperties replicaProperties = new ReplicaProperties();
+        replicaProperties.setEnabled(true);
+        replicaProperties.setNodes(List.of(node));
+        replicaProperties.setLagQuery(lagQuery);
+
+        ReplicaDataSourceConfig config = new ReplicaDataSourceConfig();
+        routing = config.replicaRoutingDataSource(dataSourceProperties, replicaProperties,
+                new MockEnvironment(), meterRegistry);
+        routing.afterPropertiesSet();
+        return config.dataSource(routing);
+    }
+
+    private static String currentDatabase(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT DATABASE()", String.class));
+    }
+
+    private double reads(String target) {
+        return meterRegistry.get("notification.datasource.reads").tag("target", target).counter().count();
+    }
+}
@@ -0,0 +1,194 @@
+package ma.fstt.notificationservice.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ma.fstt.notificationservice.entities.Notification;
+import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.enums.Status;
+import ma.fstt.notificationservice.repositories.NotificationStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Comparaison threads de plateforme / threads virtuels : bench.concurrency clients HTTP lisent en boucle
+ * le flux complet d'un utilisateur (GET /api/notifications/user/{id}, requête en base à chaque appel).
+ * Mesures : requêtes/s, latence p50 / p99, maximum observé de hikaricp.connections.pending, pics du tas
+ * (jvm.memory.used / jvm.memory.committed, area=heap) et des threads de plateforme vivants (jvm.threads.live,
+ * qui ne compte pas les threads virtuels), échantillonnés toutes les 10 ms pendant la mesure.
+ *
+ * Exécution (lancer les deux et comparer) :
+ *   mvn test -Pbenchmark -Dtest=VirtualThreadBenchmarkTest -Dbench.concurrency=400
+ *   mvn test -Pbenchmark,virtual-threads -Dtest=VirtualThreadBenchmarkTest -Dbench.concurrency=400
+ *     -Dspring.profiles.active=prod,virtual-threads   (JDK 21 requis)
+ * Autres paramètres : bench.requests (total), bench.users, bench.feed-size (notifications par utilisateur).
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.kafka.bootstrap-servers=localhost:9092",
+        "spring.kafka.consumer.group-id=bench",
+        "spring.kafka.topics.notification=notifications-bench",
+        "spring.kafka.topics.notification-priority=notifications-bench-priority",
+        "spring.kafka.listener.auto-startup=false"
+})
+class VirtualThreadBenchmarkTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private NotificationStore notificationStore;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM user_notifications");
+        jdbcTemplate.update("DELETE FROM notifications");
+    }
+
+    @Test
+    void feedReadThroughput() throws Exception {
+        int concurrency = Integer.getInteger("bench.concurrency", 400);
+        int requests = Integer.getInteger("bench.requests", 20_000);
+        int users = Integer.getInteger("bench.users", 1000);
+        int feedSize = Integer.getInteger("bench.feed-size", 20);
+        seed(users, feedSize);
+
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        // Préchauffage : JIT, pool JDBC, caches de contenu
+        runLoad(httpClient, concurrency, Math.min(requests, 5000), users, new long[Math.min(requests, 5000)]);
+
+        DoubleAccumulator maxPending = new DoubleAccumulator(Math::max, 0);
+        DoubleAccumulator maxHeapUsed = new DoubleAccumulator(Math::max, 0);
+        DoubleAccumulator maxHeapCommitted = new DoubleAccumulator(Math::max, 0);
+        DoubleAccumulator maxLiveThreads = new DoubleAccumulator(Math::max, 0);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            meterRegistry.find("hikaricp.connections.pending").gauges().stream()
+                    .mapToDouble(Gauge::value)
+                    .forEach(maxPending::accumulate);
+            maxHeapUsed.accumulate(sum("jvm.memory.used", "area", "heap"));
+            maxHeapCommitted.accumulate(sum("jvm.memory.committed", "area", "heap"));
+            maxLiveThreads.accumulate(sum("jvm.threads.live"));
+        }, 0, 10, TimeUnit.MILLISECONDS);
+
+        long[] latencies = new long[requests];
+        long started = System.nanoTime();
+        int failures = runLoad(httpClient, concurrency, requests, users, latencies);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        sampler.shutdownNow();
+
+        Arrays.sort(latencies);
+        System.out.printf("Feed reads: threading=%s, concurrency=%d, requests=%d, failures=%d, seconds=%.2f, "
+                        + "req/s=%.0f, latencyP50Ms=%.1f, latencyP99Ms=%.1f, maxPendingConnections=%.0f, "
+                        + "maxHeapUsedMb=%.0f, maxHeapCommittedMb=%.0f, maxLivePlatformThreads=%.0f%n",
+                Threading.VIRTUAL.isActive(environment) ? "virtual" : "platform", concurrency, requests, failures,
+                seconds, requests / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99),
+                maxPending.get(), maxHeapUsed.get() / (1024 * 1024), maxHeapCommitted.get() / (1024 * 1024),
+                maxLiveThreads.get());
+        assertThat(failures).isZero();
+    }
+
+    private int runLoad(HttpClient httpClient, int concurrency, int requests, int users, long[] latencies)
+            throws InterruptedException {
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int c = 0; c < concurrency; c++) {
+            clients.execute(() -> {
+                for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(
+                            "http://localhost:" + port + "/api/notifications/user/" + (i % users + 1))).build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - start;
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(10, TimeUnit.MINUTES);
+        return failures.get();
+    }
+
+    private void seed(int users, int feedSize) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int n = 0; n < feedSize; n++) {
+                Notification notification = notificationStore.saveNotification(Notification.builder()
+                        .eventType(EventType.PAYMENT_RECEIVED)
+                        .title("Bench " + n)
+                        .message("Bench notification " + n)
+                        .build());
+                LocalDateTime at = LocalDateTime.now().minusMinutes(feedSize - n);
+                List<UserNotification> recipients = new ArrayList<>(users);
+                LongStream.rangeClosed(1, users).forEach(userId -> recipients.add(UserNotification.builder()
+                        .notification(notification)
+                        .userId(userId)
+                        .channel(Channel.PUSH)
+                        .status(Status.UNREAD)
+                        .sentAt(at)
+                        .build()));
+                notificationStore.saveUserNotifications(recipients);
+            }
+        });
+    }
+
+    /**
+     * Somme des jauges du nom donné (un pool mémoire par jauge pour jvm.memory.*).
+     */
+    private double sum(String name, String... tags) {
+        return meterRegistry.find(name).tags(tags).gauges().stream()
+                .mapToDouble(Gauge::value)
+                .sum();
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+}
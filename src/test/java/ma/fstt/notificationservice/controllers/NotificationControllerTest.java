@@ -0,0 +1,83 @@
+package ma.fstt.notificationservice.controllers;
+
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.services.DeadLetterQueueService;
+import ma.fstt.notificationservice.services.DeliveryHealthCounters;
+import ma.fstt.notificationservice.services.DlqReplayService;
+import ma.fstt.notificationservice.services.NotificationReplayService;
+import ma.fstt.notificationservice.services.NotificationService;
+import ma.fstt.notificationservice.services.SseConnectionRegistry;
+import ma.fstt.notificationservice.services.UserFeedVersionTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationControllerTest {
+
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final UserFeedVersionTracker versionTracker = mock(UserFeedVersionTracker.class);
+    private final NotificationController controller = new NotificationController(notificationService,
+            mock(DeadLetterQueueService.class), mock(NotificationReplayService.class), mock(SseConnectionRegistry.class),
+            versionTracker, mock(DeliveryHealthCounters.class), mock(DlqReplayService.class));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(controller, "maxLongPollTimeoutMs", 60_000L);
+        when(versionTracker.currentVersion(7L)).thenReturn("3");
+        when(versionTracker.onNextChange(eq(7L), any())).thenReturn(() -> { });
+    }
+
+    @Test
+    void feedPollAnswersOnNextChangeWhenETagIsCurrent() {
+        List<NotificationDTO> feed = List.of(NotificationDTO.builder().id(1L).userId(7L).build());
+        when(notificationService.getRecentNotifications(7L, 20)).thenReturn(feed);
+
+        DeferredResult<ResponseEntity<List<NotificationDTO>>> result =
+                controller.pollUserNotifications(7L, 20, "\"feed-20-3\"", 30_000);
+        assertThat(result.hasResult()).isFalse();
+
+        ArgumentCaptor<Runnable> listener = ArgumentCaptor.forClass(Runnable.class);
+        verify(versionTracker).onNextChange(eq(7L), listener.capture());
+        when(versionTracker.currentVersion(7L)).thenReturn("4");
+        listener.getValue().run();
+
+        @SuppressWarnings("unchecked")
+        ResponseEntity<List<NotificationDTO>> response = (ResponseEntity<List<NotificationDTO>>) result.getResult();
+        assertThat(response.getBody()).isEqualTo(feed);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"feed-20-4\"");
+    }
+
+    @Test
+    void feedPollAnswersImmediatelyWhenETagIsStale() {
+        when(notificationService.getNotificationsByUserId(7L)).thenReturn(List.of());
+
+        DeferredResult<ResponseEntity<List<NotificationDTO>>> result =
+                controller.pollUserNotifications(7L, null, "\"feed-2\"", 30_000);
+
+        assertThat(result.hasResult()).isTrue();
+    }
+
+    @Test
+    void longPollTimeoutIsClampedToConfiguredMaximum() {
+        assertThat(timeoutOf(controller.pollUnreadNotificationsCount(7L, "\"count-3\"", 0))).isEqualTo(60_000L);
+        assertThat(timeoutOf(controller.pollUnreadNotificationsCount(7L, "\"count-3\"", -1))).isEqualTo(60_000L);
+        assertThat(timeoutOf(controller.pollUserNotifications(7L, null, "\"feed-3\"", Long.MAX_VALUE))).isEqualTo(60_000L);
+        assertThat(timeoutOf(controller.pollUserNotifications(7L, null, "\"feed-3\"", 5_000))).isEqualTo(5_000L);
+    }
+
+    private static Object timeoutOf(DeferredResult<?> result) {
+        return ReflectionTestUtils.getField(result, "timeoutValue");
+    }
+}
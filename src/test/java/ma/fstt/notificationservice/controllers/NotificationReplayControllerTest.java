@@ -0,0 +1,34 @@
+package ma.fstt.notificationservice.controllers;
+
+import ma.fstt.notificationservice.dto.ErrorResponse;
+import ma.fstt.notificationservice.exceptions.InvalidNotificationDataException;
+import ma.fstt.notificationservice.services.NotificationReplayService;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class NotificationReplayControllerTest {
+
+    private final NotificationReplayService replayService = mock(NotificationReplayService.class);
+    private final NotificationReplayController controller = new NotificationReplayController(replayService);
+
+    @Test
+    void rejectsMalformedLastSeenAtAsClientError() {
+        assertThatThrownBy(() -> controller.replay(7L, null, "yesterday"))
+                .isInstanceOfSatisfying(InvalidNotificationDataException.class, ex -> {
+                    SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+                    headers.setDestination("/app/notifications/7/replay");
+
+                    ErrorResponse error = controller.handleInvalidReplayRequest(ex, headers);
+
+                    assertThat(error.getStatus()).isEqualTo(400);
+                    assertThat(error.getErrorCode()).isEqualTo("INVALID_NOTIFICATION_DATA");
+                    assertThat(error.getPath()).isEqualTo("/app/notifications/7/replay");
+                });
+        verifyNoInteractions(replayService);
+    }
+}
@@ -0,0 +1,84 @@
+package ma.fstt.notificationservice.kafka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import ma.fstt.notificationservice.dto.NotificationEvent;
+import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.services.DeadLetterQueueService;
+import ma.fstt.notificationservice.services.DlqReplayService;
+import ma.fstt.notificationservice.services.NotificationService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationConsumerTest {
+
+    @Mock
+    private NotificationService notificationService;
+    @Mock
+    private DeadLetterQueueService dlqService;
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    private NotificationConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        consumer = new NotificationConsumer(notificationService, dlqService, new ObjectMapper(),
+                ObservationRegistry.NOOP, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void failedReplayReopensOriginalDlqRow() {
+        NotificationEvent event = event();
+        doThrow(new IllegalStateException("boom")).when(notificationService).processNotification(event);
+        ConsumerRecord<String, NotificationEvent> record = new ConsumerRecord<>("notifications", 0, 12L, "k", event);
+        record.headers().add(DlqReplayService.DLQ_ID_HEADER, "42".getBytes(StandardCharsets.UTF_8));
+        record.headers().add(DlqReplayService.DLQ_REPLAY_COUNT_HEADER, "3".getBytes(StandardCharsets.UTF_8));
+
+        consumer.consumeNotification(record, acknowledgment);
+
+        verify(dlqService).saveReplayFailure(eq(42L), eq(3), eq("notifications"), eq(0), eq(12L), eq("k"),
+                anyString(), eq("boom"), anyString());
+        verify(dlqService, never()).saveToDeadLetterQueue(any(), any(), any(), any(), any(), any(), any());
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void failedLiveMessageIsInsertedInDlq() {
+        NotificationEvent event = event();
+        doThrow(new IllegalStateException("boom")).when(notificationService).processNotification(event);
+
+        consumer.consumeNotification(new ConsumerRecord<>("notifications", 0, 12L, "k", event), acknowledgment);
+
+        verify(dlqService).saveToDeadLetterQueue(eq("notifications"), eq(0), eq(12L), eq("k"),
+                anyString(), eq("boom"), anyString());
+        verify(dlqService, never()).saveReplayFailure(anyLong(), anyInt(), any(), any(), any(), any(), any(), any(), any());
+        verify(acknowledgment).acknowledge();
+    }
+
+    private static NotificationEvent event() {
+        NotificationEvent event = new NotificationEvent();
+        event.setEventType(EventType.PAYMENT_RECEIVED);
+        event.setUserIds(List.of(7L));
+        return event;
+    }
+}
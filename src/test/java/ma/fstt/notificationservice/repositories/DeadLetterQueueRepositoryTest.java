@@ -0,0 +1,87 @@
+package ma.fstt.notificationservice.repositories;
+
+import ma.fstt.notificationservice.entities.DeadLetterQueue;
+import ma.fstt.notificationservice.services.NotificationContentCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.dialect=ma.fstt.notificationservice.H2SkipLockedDialect"
+})
+class DeadLetterQueueRepositoryTest {
+
+    private static final int MAX_RETRIES = 3;
+
+    @MockitoBean
+    private NotificationContentCache contentCache;
+
+    @Autowired
+    private DeadLetterQueueRepository dlqRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void replayFailureReopensRowWithReplayCount() {
+        Long id = replayed();
+
+        int reopened = dlqRepository.reopenAfterReplay(id, 1, "boom", "trace", "fp", LocalDateTime.now());
+        entityManager.clear();
+
+        assertThat(reopened).isEqualTo(1);
+        DeadLetterQueue dlq = dlqRepository.findById(id).orElseThrow();
+        assertThat(dlq.getProcessed()).isFalse();
+        assertThat(dlq.getProcessedAt()).isNull();
+        assertThat(dlq.getRetryCount()).isEqualTo(1);
+        assertThat(dlq.getErrorMessage()).isEqualTo("boom");
+        assertThat(dlqRepository.count()).isEqualTo(1);
+        assertThat(claimable()).extracting(DeadLetterQueue::getId).containsExactly(id);
+    }
+
+    @Test
+    void rowReplayedMaxRetriesTimesIsNoLongerClaimed() {
+        Long id = replayed();
+
+        dlqRepository.reopenAfterReplay(id, MAX_RETRIES, "boom", "trace", "fp", LocalDateTime.now());
+        entityManager.clear();
+
+        assertThat(claimable()).isEmpty();
+        assertThat(dlqRepository.countByProcessedFalse()).isEqualTo(1);
+    }
+
+    @Test
+    void missingRowIsNotReopened() {
+        assertThat(dlqRepository.reopenAfterReplay(-1L, 1, "boom", "trace", "fp", LocalDateTime.now())).isZero();
+    }
+
+    private Long replayed() {
+        DeadLetterQueue dlq = dlqRepository.save(DeadLetterQueue.builder()
+                .topic("notifications")
+                .kafkaPartition(0)
+                .kafkaOffset(12L)
+                .payload("{}")
+                .errorMessage("first failure")
+                .retryCount(0)
+                .build());
+        dlqRepository.markReplayed(List.of(dlq.getId()), LocalDateTime.now());
+        entityManager.flush();
+        entityManager.clear();
+        return dlq.getId();
+    }
+
+    private List<DeadLetterQueue> claimable() {
+        return dlqRepository.claimReplayable(MAX_RETRIES, null, null, null, null, LocalDateTime.now(),
+                PageRequest.of(0, 10));
+    }
+}
@@ -0,0 +1,88 @@
+package ma.fstt.notificationservice.repositories;
+
+import ma.fstt.notificationservice.converters.MetadataJsonConverter;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Migrations H2 : une base d'avant Flyway, baselinée en V1 comme en production,
+ * doit recevoir toutes les évolutions de schéma et ses metadata existantes.
+ */
+class FlywayMigrationTest {
+
+    @Test
+    void baselinedLegacyDatabaseIsMigratedToCurrentSchema() {
+        DataSource dataSource = newDatabase();
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/h2/V1__baseline.sql")).execute(dataSource);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("insert into notifications (id, event_type, title, message, created_at) "
+                + "values (1, 'PAYMENT_RECEIVED', 'Paiement reçu', 'Votre paiement a été reçu', current_timestamp)");
+        jdbc.update("insert into notification_metadata (notification_id, meta_key, meta_value) values (1, 'amount', '120')");
+        jdbc.update("insert into notification_metadata (notification_id, meta_key, meta_value) values (1, 'propertyId', '42')");
+        jdbc.update("insert into notifications (id, event_type, title, message, created_at) "
+                + "values (2, 'KEY_DELIVERED', 'Clés remises', 'Les clés ont été remises', current_timestamp)");
+
+        jdbc.update("insert into dead_letter_queue (topic, kafka_partition, kafka_offset, payload, error_message, "
+                + "retry_count, failed_at, processed) values ('notifications', 0, 1, "
+                + "'{\"eventType\":\"PAYMENT_RECEIVED\",\"recipientsRef\":\"9f1c2d3e-0000-4000-8000-000000000001\"}', "
+                + "'boom', 0, current_timestamp, false)");
+
+        flyway(dataSource).migrate();
+
+        assertThat(jdbc.queryForObject("select recipients_ref from dead_letter_queue", String.class))
+                .isEqualTo("9f1c2d3e-0000-4000-8000-000000000001");
+        assertThat(tables(jdbc)).contains("AUDIENCE_MEMBERS", "DELIVERY_OUTBOX", "USER_CONTACTS",
+                        "USER_NOTIFICATIONS_ARCHIVE", "RECIPIENT_LIST_CHUNKS")
+                .doesNotContain("NOTIFICATION_METADATA");
+        MetadataJsonConverter converter = new MetadataJsonConverter();
+        assertThat(converter.convertToEntityAttribute(
+                jdbc.queryForObject("select metadata from notifications where id = 1", String.class)))
+                .isEqualTo(Map.of("amount", "120", "propertyId", "42"));
+        assertThat(jdbc.queryForObject("select metadata from notifications where id = 2", String.class)).isNull();
+
+        // Titre et message facultatifs lorsqu'un modèle s'applique
+        jdbc.update("insert into notifications (id, event_type, template_id, created_at) "
+                + "values (3, 'PAYMENT_RECEIVED', 'PAYMENT_RECEIVED.fr', current_timestamp)");
+    }
+
+    @Test
+    void emptyDatabaseAppliesEveryMigration() {
+        DataSource dataSource = newDatabase();
+
+        flyway(dataSource).migrate();
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        assertThat(tables(jdbc)).contains("NOTIFICATIONS", "USER_NOTIFICATIONS", "DEAD_LETTER_QUEUE",
+                        "AUDIENCE_MEMBERS", "DELIVERY_OUTBOX", "USER_CONTACTS", "USER_NOTIFICATIONS_ARCHIVE")
+                .doesNotContain("NOTIFICATION_METADATA");
+    }
+
+    private static DataSource newDatabase() {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static Flyway flyway(DataSource dataSource) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+
+    private static List<String> tables(JdbcTemplate jdbc) {
+        return jdbc.queryForList("select table_name from information_schema.tables "
+                + "where table_schema = 'PUBLIC'", String.class);
+    }
+}
@@ -0,0 +1,25 @@
+package ma.fstt.notificationservice.repositories;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "notification.store.type=jpa"
+})
+@Import({JpaNotificationStore.class, JdbcNotificationStore.class})
+class JpaNotificationStoreTest extends NotificationStoreContractTest {
+
+    @Autowired
+    private NotificationStore store;
+
+    @Test
+    void selectsConfiguredImplementation() {
+        assertThat(store).isInstanceOf(JpaNotificationStore.class);
+    }
+}
@@ -0,0 +1,133 @@
+package ma.fstt.notificationservice.repositories;
+
+import ma.fstt.notificationservice.entities.Notification;
+import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.enums.Status;
+import ma.fstt.notificationservice.services.NotificationContentCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Débit d'écriture (lignes destinataires/s) des implémentations jpa et jdbc de NotificationStore,
+ * une transaction par notification comme dans NotificationService.processNotification.
+ *
+ * Exécution : mvn test -Pbenchmark -Dtest=NotificationStoreBenchmarkTest
+ *   -Dbench.notifications=20 -Dbench.recipients=500 -Dbench.rounds=5 -Dbench.warmup-rounds=2
+ * Base H2 en mémoire : comparer les implémentations entre elles. Pour MySQL, lancer avec
+ * -Dspring.datasource.url=... (rewriteBatchedStatements=true) et -Dspring.flyway.locations=classpath:db/migration/mysql.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationStoreBenchmarkTest {
+
+    @MockitoBean
+    private NotificationContentCache contentCache;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserNotificationRepository userNotificationRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        deleteAll();
+    }
+
+    @Test
+    void writeThroughput() {
+        int notifications = Integer.getInteger("bench.notifications", 20);
+        int recipients = Integer.getInteger("bench.recipients", 500);
+        int rounds = Integer.getInteger("bench.rounds", 5);
+        int warmupRounds = Integer.getInteger("bench.warmup-rounds", 2);
+
+        NotificationStore jpa = new JpaNotificationStore(notificationRepository, userNotificationRepository);
+        NotificationStore jdbc = new JdbcNotificationStore(namedParameterJdbcTemplate);
+        double jpaRowsPerSecond = measure("jpa", jpa, notifications, recipients, rounds, warmupRounds);
+        double jdbcRowsPerSecond = measure("jdbc", jdbc, notifications, recipients, rounds, warmupRounds);
+
+        assertThat(jpaRowsPerSecond).isPositive();
+        assertThat(jdbcRowsPerSecond).isPositive();
+    }
+
+    private double measure(String type, NotificationStore store, int notifications, int recipients,
+                           int rounds, int warmupRounds) {
+        long rows = 0;
+        long nanos = 0;
+        for (int round = 0; round < warmupRounds + rounds; round++) {
+            deleteAll();
+            long started = System.nanoTime();
+            for (int n = 0; n < notifications; n++) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Notification notification = store.saveNotification(Notification.builder()
+                            .eventType(EventType.PAYMENT_RECEIVED)
+                            .title("Bench")
+                            .message("Bench notification")
+                            .build());
+                    store.saveUserNotifications(recipients(notification, recipients));
+                });
+            }
+            if (round >= warmupRounds) {
+                nanos += System.nanoTime() - started;
+                rows += (long) notifications * recipients;
+            }
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_notifications", Long.class))
+                .isEqualTo((long) notifications * recipients);
+
+        double rowsPerSecond = rows / (nanos / 1e9);
+        System.out.printf("Notification store: type=%s, notifications=%d, recipients=%d, rounds=%d, rows/s=%.0f%n",
+                type, notifications, recipients, rounds, rowsPerSecond);
+        return rowsPerSecond;
+    }
+
+    private static List<UserNotification> recipients(Notification notification, int recipients) {
+        LocalDateTime sentAt = LocalDateTime.now();
+        List<UserNotification> userNotifications = new ArrayList<>(recipients);
+        for (long userId = 1; userId <= recipients; userId++) {
+            userNotifications.add(UserNotification.builder()
+                    .notification(notification)
+                    .userId(userId)
+                    .channel(Channel.PUSH)
+                    .status(Status.UNREAD)
+                    .sentAt(sentAt)
+                    .build());
+        }
+        return userNotifications;
+    }
+
+    private void deleteAll() {
+        jdbcTemplate.update("DELETE FROM user_notifications");
+        jdbcTemplate.update("DELETE FROM notifications");
+    }
+}
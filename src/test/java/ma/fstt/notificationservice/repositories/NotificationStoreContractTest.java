@@ -0,0 +1,252 @@
+package ma.fstt.notificationservice.repositories;
+
+import ma.fstt.notificationservice.dto.FeedVersion;
+import ma.fstt.notificationservice.entities.Notification;
+import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.enums.Status;
+import ma.fstt.notificationservice.services.NotificationContentCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Contrat commun des implémentations de NotificationStore, exécuté sur le schéma Flyway (H2).
+ *
+ * Chaque opération s'exécute dans sa propre transaction, comme depuis NotificationService :
+ * les lectures ne voient jamais d'entités restées dans un contexte de persistance.
+ */
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+abstract class NotificationStoreContractTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @MockitoBean
+    private NotificationContentCache contentCache;
+
+    @Autowired
+    private NotificationStore store;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM user_notifications");
+        jdbcTemplate.update("DELETE FROM notifications");
+    }
+
+    @Test
+    void saveNotificationAssignsIdAndCreatedAt() {
+        Notification notification = inTransaction(() -> store.saveNotification(notification()));
+
+        assertThat(notification.getId()).isNotNull();
+        assertThat(notification.getCreatedAt()).isNotNull();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT metadata FROM notifications WHERE id = ?", String.class, notification.getId()))
+                .contains("\"amount\":\"1200\"");
+    }
+
+    @Test
+    void saveUserNotificationsAssignsIncreasingIdsAndDefaultsToUnread() {
+        Notification notification = inTransaction(() -> store.saveNotification(notification()));
+        List<UserNotification> saved = inTransaction(() -> store.saveUserNotifications(List.of(
+                recipient(notification, 1L, null, null),
+                recipient(notification, 2L, null, null),
+                recipient(notification, 3L, null, null))));
+
+        assertThat(saved).extracting(UserNotification::getId).doesNotContainNull().isSorted();
+        assertThat(saved).extracting(UserNotification::getStatus).containsOnly(Status.UNREAD);
+    }
+
+    @Test
+    void countByUserIdAndStatusCountsOnlyMatchingRows() {
+        Notification notification = inTransaction(() -> store.saveNotification(notification()));
+        inTransaction(() -> store.saveUserNotifications(List.of(
+                recipient(newNotification(), 7L, Status.UNREAD, null),
+                recipient(newNotification(), 7L, Status.UNREAD, null),
+                recipient(newNotification(), 7L, Status.READ, null),
+                recipient(notification, 8L, Status.UNREAD, null))));
+
+        assertThat(inTransaction(() -> store.countByUserIdAndStatus(7L, Status.UNREAD))).isEqualTo(2L);
+        assertThat(inTransaction(() -> store.countByUserIdAndStatus(9L, Status.UNREAD))).isZero();
+    }
+
+    @Test
+    void findByUserIdOrderBySentAtDescReturnsNewestFirst() {
+        Notification notification = inTransaction(() -> store.saveNotification(notification()));
+        inTransaction(() -> store.saveUserNotifications(List.of(
+                recipient(newNotification(), 7L, null, BASE.plusMinutes(1)),
+                recipient(newNotification(), 7L, null, BASE.plusMinutes(3)),
+                recipient(newNotification(), 7L, null, BASE.plusMinutes(2)),
+                recipient(notification, 8L, null, BASE.plusMinutes(4)))));
+
+        List<UserNotification> feed = inTransaction(() -> store.findByUserIdOrderBySentAtDesc(7L));
+
+        assertThat(feed).extracting(UserNotification::getSentAt)
+                .containsExactly(BASE.plusMinutes(3), BASE.plusMinutes(2), BASE.plusMinutes(1));
+        assertThat(feed).extracting(UserNotification::getNotificationId).doesNotContainNull()
+                .doesNotContain(notification.getId());
+        assertThat(feed).extracting(UserNotification::getChannel).containsOnly(Channel.PUSH);
+    }
+
+    @Test
+    void findRecentByUserIdReturnsNewestFirstWithinLimit() {
+        Notification notification = inTransaction(() -> store.saveNotification(notification()));
+        inTransaction(() -> store.saveUserNotifications(List.of(
+                recipient(newNotification(), 7L, null, BASE.plusMinutes(1)),
+                recipient(newNotification(), 7L, null, null),
+                recipient(newNotification(), 7L, null, BASE.plusMinutes(3)),
+                recipient(newNotification(), 7L, null, BASE.plusMinutes(2)))));
+
+        List<UserNotification> page = inTransaction(() -> store.findRecentByUserId(7L, 2));
+
+        assertThat(page).extracting(UserNotification::getSentAt)
+                .containsExactly(BASE.plusMinutes(3), BASE.plusMinutes(2));
+    }
+
+    @Test
+    void findByUserIdAfterIdReturnsLaterRowsInIdOrderWithinLimit() {
+        Notification notification = inTransaction(() -> store.saveNotification(notification()));
+        List<UserNotification> saved = inTransaction(() -> store.saveUserNotifications(List.of(
+                recipient(newNotification(), 7L, null, null),
+                recipient(newNotification(), 7L, null, null),
+                recipient(newNotification(), 7L, null, null),
+                recipient(newNotification(), 7L, null, null))));
+        Long lastSeenId = saved.get(0).getId();
+
+        List<UserNotification> delta = inTransaction(() -> store.findByUserIdAfterId(7L, lastSeenId, 2));
+
+        assertThat(delta).extracting(UserNotification::getId)
+                .containsExactly(saved.get(1).getId(), saved.get(2).getId());
+    }
+
+    @Test
+    void findByUserIdSentAfterReturnsLaterRowsInSentOrderWithinLimit() {
+        Notification notification = inTransaction(() -> store.saveNotification(notification()));
+        inTransaction(() -> store.saveUserNotifications(List.of(
+                recipient(newNotification(), 7L, null, BASE.plusMinutes(3)),
+                recipient(newNotification(), 7L, null, BASE),
+                recipient(newNotification(), 7L, null, BASE.plusMinutes(1)),
+                recipient(newNotification(), 7L, null, BASE.plusMinutes(2)))));
+
+        List<UserNotification> delta = inTransaction(() -> store.findByUserIdSentAfter(7L, BASE, 2));
+
+        assertThat(delta).extracting(UserNotification::getSentAt)
+                .containsExactly(BASE.plusMinutes(1), BASE.plusMinutes(2));
+    }
+
+    @Test
+    void countsSinceMatchDeltaQueries() {
+        Notification notification = inTransaction(() -> store.saveNotification(notification()));
+        List<UserNotification> saved = inTransaction(() -> store.saveUserNotifications(List.of(
+                recipient(newNotification(), 7L, null, BASE),
+                recipient(newNotification(), 7L, null, BASE.plusMinutes(1)),
+                recipient(newNotification(), 7L, null, null),
+                recipient(notification, 8L, null, BASE.plusMinutes(2)))));
+
+        assertThat(inTransaction(() -> store.countByUserIdAfterId(7L, saved.get(0).getId()))).isEqualTo(2L);
+        assertThat(inTransaction(() -> store.countByUserIdSentAfter(7L, BASE))).isEqualTo(1L);
+    }
+
+    @Test
+    void findFeedVersionReturnsHighestIdAndSentAt() {
+        Notification notification = inTransaction(() -> store.saveNotification(notification()));
+        List<UserNotification> saved = inTransaction(() -> store.saveUserNotifications(List.of(
+                recipient(newNotification(), 7L, null, BASE.plusMinutes(2)),
+                recipient(newNotification(), 7L, null, null),
+                recipient(notification, 8L, null, BASE.plusMinutes(5)))));
+
+        FeedVersion version = inTransaction(() -> store.findFeedVersion(7L));
+
+        assertThat(version.getMaxId()).isEqualTo(saved.get(1).getId());
+        assertThat(version.getMaxSentAt()).isEqualTo(BASE.plusMinutes(2));
+        assertThat(inTransaction(() -> store.findFeedVersion(9L))).isEqualTo(new FeedVersion(null, null));
+    }
+
+    @Test
+    void findRecipientUserIdsReturnsUsersAlreadyHoldingARow() {
+        Notification notification = inTransaction(() -> store.saveNotification(notification()));
+        Notification other = inTransaction(() -> store.saveNotification(notification()));
+        inTransaction(() -> store.saveUserNotifications(List.of(
+                recipient(notification, 1L, null, null),
+                recipient(notification, 2L, null, null),
+                recipient(other, 3L, null, null))));
+
+        assertThat(inTransaction(() -> store.findRecipientUserIds(notification.getId(), List.of(2L, 3L, 4L))))
+                .containsExactly(2L);
+    }
+
+    @Test
+    void secondRowForSameRecipientAndChannelIsRejected() {
+        Notification notification = inTransaction(() -> store.saveNotification(notification()));
+        inTransaction(() -> store.saveUserNotifications(List.of(recipient(notification, 1L, null, null))));
+
+        assertThatThrownBy(() -> inTransaction(() -> store.saveUserNotifications(
+                List.of(recipient(notification, 1L, null, null)))))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void markAsReadUpdatesStatusAndReturnsUserId() {
+        Notification notification = inTransaction(() -> store.saveNotification(notification()));
+        List<UserNotification> saved = inTransaction(() -> store.saveUserNotifications(List.of(
+                recipient(newNotification(), 7L, null, null))));
+
+        assertThat(inTransaction(() -> store.markAsRead(saved.get(0).getId()))).contains(7L);
+        assertThat(inTransaction(() -> store.countByUserIdAndStatus(7L, Status.UNREAD))).isZero();
+        assertThat(inTransaction(() -> store.markAsRead(Long.MAX_VALUE))).isEmpty();
+    }
+
+    /**
+     * Une notification par ligne : un utilisateur n'a qu'une ligne par notification et par canal.
+     */
+    private Notification newNotification() {
+        return inTransaction(() -> store.saveNotification(notification()));
+    }
+
+    private <T> T inTransaction(Supplier<T> action) {
+        return new TransactionTemplate(transactionManager).execute(status -> action.get());
+    }
+
+    private static Notification notification() {
+        return Notification.builder()
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .title("Paiement reçu")
+                .message("Votre paiement a été reçu.")
+                .metadata(Map.of("amount", "1200"))
+                .userNotifications(new ArrayList<>())
+                .build();
+    }
+
+    private static UserNotification recipient(Notification notification, Long userId,
+                                              Status status, LocalDateTime sentAt) {
+        return UserNotification.builder()
+                .notification(notification)
+                .userId(userId)
+                .channel(Channel.PUSH)
+                .status(status)
+                .sentAt(sentAt)
+                .build();
+    }
+}
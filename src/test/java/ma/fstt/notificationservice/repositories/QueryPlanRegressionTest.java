@@ -0,0 +1,138 @@
+package ma.fstt.notificationservice.repositories;
+
+import ma.fstt.notificationservice.enums.Status;
+import ma.fstt.notificationservice.services.NotificationContentCache;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Non-régression des plans d'exécution : le SQL réellement émis par chaque requête de repository
+ * est passé à EXPLAIN (H2, schéma Flyway) et ne doit pas contenir de parcours complet de table.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "ma.fstt.notificationservice.repositories.QueryPlanRegressionTest$CapturingStatementInspector"
+})
+class QueryPlanRegressionTest {
+
+    @MockitoBean
+    private NotificationContentCache contentCache;
+
+    @Autowired
+    private UserNotificationRepository userNotificationRepository;
+
+    @Autowired
+    private DeadLetterQueueRepository deadLetterQueueRepository;
+
+    @Autowired
+    private AudienceMemberRepository audienceMemberRepository;
+
+    @Autowired
+    private RecipientListChunkRepository recipientListChunkRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void countByUserIdAndStatusUsesIndex() {
+        assertNoTableScan(() -> userNotificationRepository.countByUserIdAndStatus(1L, Status.UNREAD));
+    }
+
+    @Test
+    void findByUserIdOrderBySentAtDescUsesIndex() {
+        assertNoTableScan(() -> userNotificationRepository.findByUserIdOrderBySentAtDesc(1L));
+    }
+
+    @Test
+    void findFirstPageByUserIdOrderBySentAtDescUsesIndex() {
+        assertNoTableScan(() -> userNotificationRepository.findByUserIdOrderBySentAtDesc(1L, PageRequest.of(0, 20)));
+    }
+
+    @Test
+    void findByUserIdAndSentAtAfterUsesIndex() {
+        assertNoTableScan(() -> userNotificationRepository.findByUserIdAndSentAtAfterOrderBySentAtAsc(
+                1L, LocalDateTime.now(), PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void findByProcessedFalseAndRetryCountLessThanUsesIndex() {
+        assertNoTableScan(() -> deadLetterQueueRepository.findByProcessedFalseAndRetryCountLessThan(5));
+    }
+
+    @Test
+    void countByProcessedFalseUsesIndex() {
+        assertNoTableScan(() -> deadLetterQueueRepository.countByProcessedFalse());
+    }
+
+    @Test
+    void findOldUnprocessedMessagesUsesIndex() {
+        assertNoTableScan(() -> deadLetterQueueRepository.findOldUnprocessedMessages(LocalDateTime.now()));
+    }
+
+    @Test
+    void findUserIdsAfterUsesIndex() {
+        assertNoTableScan(() -> audienceMemberRepository.findUserIdsAfter(
+                "CITY", "rabat", 0L, PageRequest.of(0, 100)));
+    }
+
+    @Test
+    void findByListRefAndChunkIndexUsesIndex() {
+        assertNoTableScan(() -> recipientListChunkRepository.findByListRefAndChunkIndex("ref", 0));
+    }
+
+    private void assertNoTableScan(Runnable query) {
+        CapturingStatementInspector.STATEMENTS.clear();
+        query.run();
+
+        List<String> statements = new ArrayList<>(CapturingStatementInspector.STATEMENTS);
+        assertThat(statements).isNotEmpty();
+        for (String sql : statements) {
+            assertThat(explain(sql))
+                    .as("Query plan of: %s", sql)
+                    .doesNotContainIgnoringCase("tableScan");
+        }
+    }
+
+    private String explain(String sql) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            StringBuilder plan = new StringBuilder();
+            while (resultSet.next()) {
+                plan.append(resultSet.getString(1)).append('\n');
+            }
+            return plan.toString();
+        } catch (SQLException e) {
+            throw new IllegalStateException("EXPLAIN failed for: " + sql, e);
+        }
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ma.fstt.notificationservice.services;
+
+import ma.fstt.notificationservice.entities.AudienceMember;
+import ma.fstt.notificationservice.exceptions.InvalidNotificationDataException;
+import ma.fstt.notificationservice.repositories.AudienceMemberRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@Import(DatabaseAudienceResolver.class)
+class DatabaseAudienceResolverTest {
+
+    @MockitoBean
+    private NotificationContentCache contentCache;
+
+    @Autowired
+    private AudienceMemberRepository audienceMemberRepository;
+
+    @Autowired
+    private DatabaseAudienceResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        for (long userId : new long[]{5, 1, 4, 2, 3}) {
+            audienceMemberRepository.save(member("PROPERTY", "42", userId));
+        }
+        audienceMemberRepository.save(member("PROPERTY", "43", 9L));
+    }
+
+    @Test
+    void expandsSegmentInAscendingDistinctChunks() {
+        List<List<Long>> chunks = new ArrayList<>();
+
+        resolver.forEachChunk("property:42", 2, chunks::add);
+
+        assertThat(chunks).containsExactly(List.of(1L, 2L), List.of(3L, 4L), List.of(5L));
+    }
+
+    @Test
+    void unknownSegmentYieldsNoChunk() {
+        List<List<Long>> chunks = new ArrayList<>();
+
+        resolver.forEachChunk("PROPERTY:99", 2, chunks::add);
+
+        assertThat(chunks).isEmpty();
+    }
+
+    @Test
+    void rejectsMalformedAudience() {
+        assertThatThrownBy(() -> resolver.forEachChunk("PROPERTY", 2, chunk -> {
+        })).isInstanceOf(InvalidNotificationDataException.class);
+    }
+
+    private static AudienceMember member(String segmentType, String segmentKey, Long userId) {
+        return AudienceMember.builder()
+                .segmentType(segmentType)
+                .segmentKey(segmentKey)
+                .userId(userId)
+                .build();
+    }
+}
@@ -0,0 +1,143 @@
+package ma.fstt.notificationservice.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.notificationservice.dto.NotificationEvent;
+import ma.fstt.notificationservice.repositories.DeadLetterQueueRepository;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Débit du rejeu DLQ (envois/s) vers un broker embarqué, réglages du producer et de l'en-vol paramétrables.
+ *
+ * Exécution : mvn test -Pbenchmark -Dtest=DlqReplayBenchmarkTest
+ *   -Dbench.messages=20000 -Dbench.linger-ms=20 -Dbench.batch-size=131072 -Dbench.compression-type=lz4
+ *   -Dbench.max-in-flight=200
+ * Comparer avec -Dbench.linger-ms=0 -Dbench.batch-size=16384 -Dbench.compression-type=none -Dbench.max-in-flight=1
+ * (envoi unitaire bloquant). Broker embarqué à un seul nœud : ordres de grandeur, pas des chiffres de production.
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.dialect=ma.fstt.notificationservice.H2SkipLockedDialect"
+})
+@EmbeddedKafka(partitions = 3, topics = DlqReplayBenchmarkTest.TOPIC)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DlqReplayBenchmarkTest {
+
+    static final String TOPIC = "notifications-bench";
+
+    @MockitoBean
+    private NotificationContentCache contentCache;
+
+    @Autowired
+    private DeadLetterQueueRepository dlqRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM dead_letter_queue");
+    }
+
+    @Test
+    void replayThroughput() {
+        int messages = Integer.getInteger("bench.messages", 20_000);
+        DefaultKafkaProducerFactory<String, NotificationEvent> producerFactory = producerFactory();
+        try {
+            DlqReplayService replayService = replayService(new KafkaTemplate<>(producerFactory));
+
+            // Préchauffage (JIT, connexions, métadonnées du topic)
+            seed(Math.min(2_000, messages));
+            replayService.replay(DlqReplayService.Filter.all(Integer.MAX_VALUE));
+
+            seed(messages);
+            long started = System.nanoTime();
+            int replayed = replayService.replay(DlqReplayService.Filter.all(Integer.MAX_VALUE));
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            assertThat(replayed).isEqualTo(messages);
+            System.out.printf("DLQ replay: messages=%d, seconds=%.2f, sends/s=%.0f, linger-ms=%s, batch-size=%s, "
+                            + "compression=%s, max-in-flight=%s%n",
+                    replayed, seconds, replayed / seconds, property("linger-ms", "20"),
+                    property("batch-size", "131072"), property("compression-type", "lz4"),
+                    property("max-in-flight", "200"));
+        } finally {
+            producerFactory.destroy();
+        }
+    }
+
+    private DlqReplayService replayService(KafkaTemplate<String, NotificationEvent> kafkaTemplate) {
+        RecipientListStore recipientListStore = mock(RecipientListStore.class);
+        when(recipientListStore.offloadIfOversized(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DlqReplayService replayService = new DlqReplayService(dlqRepository, kafkaTemplate, new ObjectMapper(),
+                transactionTemplate, new DeliveryHealthCounters(meterRegistry), recipientListStore, meterRegistry,
+                Double.MAX_VALUE, 200, Integer.parseInt(property("max-in-flight", "200")));
+        ReflectionTestUtils.setField(replayService, "maxRetries", 5);
+        ReflectionTestUtils.setField(replayService, "replayTopic", "");
+        ReflectionTestUtils.setField(replayService, "sendTimeoutMs", 30_000L);
+        ReflectionTestUtils.setField(replayService, "leaseMs", 600_000L);
+        return replayService;
+    }
+
+    // Mêmes clés que KafkaConfig.producerFactory
+    private DefaultKafkaProducerFactory<String, NotificationEvent> producerFactory() {
+        Map<String, Object> config = new HashMap<>();
+        config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        config.put(ProducerConfig.ACKS_CONFIG, "all");
+        config.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, Integer.parseInt(property("linger-ms", "20")));
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, Integer.parseInt(property("batch-size", "131072")));
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, property("compression-type", "lz4"));
+        config.put(ProducerConfig.BUFFER_MEMORY_CONFIG, 67_108_864L);
+        return new DefaultKafkaProducerFactory<>(config);
+    }
+
+    private void seed(int messages) {
+        String payload = "{\"eventType\":\"PAYMENT_RECEIVED\",\"userIds\":[7,8,9],"
+                + "\"metadata\":{\"amount\":\"120\",\"propertyId\":\"42\"}}";
+        jdbcTemplate.update("INSERT INTO dead_letter_queue (topic, kafka_partition, kafka_offset, kafka_key, payload, "
+                + "error_message, retry_count, failed_at, processed) "
+                + "SELECT ?, 0, x, CAST(x AS VARCHAR), ?, 'bench', 0, CURRENT_TIMESTAMP, FALSE "
+                + "FROM SYSTEM_RANGE(1, ?)", TOPIC, payload, messages);
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty("bench." + name, defaultValue);
+    }
+}
@@ -0,0 +1,202 @@
+package ma.fstt.notificationservice.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.notificationservice.dto.NotificationEvent;
+import ma.fstt.notificationservice.entities.DeadLetterQueue;
+import ma.fstt.notificationservice.repositories.DeadLetterQueueRepository;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.dialect=ma.fstt.notificationservice.H2SkipLockedDialect"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DlqReplayServiceTest {
+
+    @MockitoBean
+    private NotificationContentCache contentCache;
+
+    @Autowired
+    private DeadLetterQueueRepository dlqRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, NotificationEvent> kafkaTemplate = mock(KafkaTemplate.class);
+    // Futures des envois par id DLQ, complétés à la main
+    private final Map<Long, CompletableFuture<SendResult<String, NotificationEvent>>> sends = new ConcurrentHashMap<>();
+    private final CountDownLatch sent = new CountDownLatch(1);
+    private DlqReplayService replayService;
+
+    @BeforeEach
+    void setUp() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, NotificationEvent> record = invocation.getArgument(0);
+            Long id = Long.valueOf(new String(record.headers().lastHeader(DlqReplayService.DLQ_ID_HEADER).value()));
+            CompletableFuture<SendResult<String, NotificationEvent>> future = new CompletableFuture<>();
+            sends.put(id, future);
+            sent.countDown();
+            return future;
+        });
+        RecipientListStore recipientListStore = mock(RecipientListStore.class);
+        when(recipientListStore.offloadIfOversized(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        replayService = new DlqReplayService(dlqRepository, kafkaTemplate, new ObjectMapper(), transactionTemplate,
+                new DeliveryHealthCounters(meterRegistry), recipientListStore, meterRegistry, 1000, 200, 500);
+        ReflectionTestUtils.setField(replayService, "maxRetries", 5);
+        ReflectionTestUtils.setField(replayService, "replayTopic", "");
+        ReflectionTestUtils.setField(replayService, "sendTimeoutMs", 300L);
+        ReflectionTestUtils.setField(replayService, "leaseMs", 600_000L);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM dead_letter_queue");
+    }
+
+    @Test
+    void unackedSendsKeepTheirLeaseAndLateAcksAreAppliedOnNextReplay() {
+        Long acked = save();
+        Long late = save();
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<String, NotificationEvent> record = invocation.getArgument(0);
+            Long id = Long.valueOf(new String(record.headers().lastHeader(DlqReplayService.DLQ_ID_HEADER).value()));
+            CompletableFuture<SendResult<String, NotificationEvent>> future = new CompletableFuture<>();
+            if (id.equals(acked)) {
+                future.complete(null);
+            }
+            sends.put(id, future);
+            return future;
+        });
+
+        assertThat(replayService.replay(DlqReplayService.Filter.all(10))).isEqualTo(1);
+
+        // En attente d'acquittement : ni tentative consommée, ni nouvelle réclamation
+        DeadLetterQueue pending = dlqRepository.findById(late).orElseThrow();
+        assertThat(pending.getProcessed()).isFalse();
+        assertThat(pending.getRetryCount()).isZero();
+        assertThat(pending.getReplayLeaseUntil()).isAfter(LocalDateTime.now());
+        assertThat(claimable()).isEmpty();
+        assertThat(dlqRepository.findById(acked).orElseThrow().getProcessed()).isTrue();
+
+        sends.get(late).complete(null);
+        assertThat(replayService.replay(DlqReplayService.Filter.all(10))).isZero();
+
+        DeadLetterQueue replayed = dlqRepository.findById(late).orElseThrow();
+        assertThat(replayed.getProcessed()).isTrue();
+        assertThat(replayed.getReplayLeaseUntil()).isNull();
+        assertThat(sends).hasSize(2);
+    }
+
+    @Test
+    void failedSendConsumesAnAttemptAndReleasesTheLease() {
+        Long id = save();
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("broker down")));
+
+        assertThat(replayService.replay(DlqReplayService.Filter.all(10))).isZero();
+
+        DeadLetterQueue dlq = dlqRepository.findById(id).orElseThrow();
+        assertThat(dlq.getRetryCount()).isEqualTo(1);
+        assertThat(dlq.getErrorMessage()).isEqualTo("broker down");
+        assertThat(dlq.getReplayLeaseUntil()).isNull();
+        assertThat(claimable()).extracting(DeadLetterQueue::getId).containsExactly(id);
+    }
+
+    @Test
+    void rowsAreNotLockedWhileWaitingForAcks() throws Exception {
+        Long id = save();
+        ReflectionTestUtils.setField(replayService, "sendTimeoutMs", 5_000L);
+        CompletableFuture<Integer> replay = CompletableFuture.supplyAsync(
+                () -> replayService.replay(DlqReplayService.Filter.all(10)));
+        assertThat(sent.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Écriture concurrente sur la ligne pendant l'attente : aucun verrou à attendre
+        long started = System.nanoTime();
+        jdbcTemplate.update("UPDATE dead_letter_queue SET error_message = 'touched' WHERE id = ?", id);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(1_000);
+        assertThat(replay).isNotDone();
+
+        sends.get(id).complete(null);
+        assertThat(replay.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+    }
+
+    @Test
+    void nextBatchIsClaimedWhileEarlierAcksArePending() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            save();
+        }
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RecipientListStore recipientListStore = mock(RecipientListStore.class);
+        when(recipientListStore.offloadIfOversized(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        // Lots de 2, jusqu'à 10 envois en vol : les 5 messages partent avant le premier acquittement
+        DlqReplayService pipelined = new DlqReplayService(dlqRepository, kafkaTemplate, new ObjectMapper(),
+                transactionTemplate, new DeliveryHealthCounters(meterRegistry), recipientListStore, meterRegistry,
+                1000, 2, 10);
+        ReflectionTestUtils.setField(pipelined, "maxRetries", 5);
+        ReflectionTestUtils.setField(pipelined, "replayTopic", "");
+        ReflectionTestUtils.setField(pipelined, "sendTimeoutMs", 5_000L);
+        ReflectionTestUtils.setField(pipelined, "leaseMs", 600_000L);
+
+        CompletableFuture<Integer> replay = CompletableFuture.supplyAsync(
+                () -> pipelined.replay(DlqReplayService.Filter.all(10)));
+        await().atMost(Duration.ofSeconds(5)).until(() -> sends.size() == 5);
+        assertThat(replay).isNotDone();
+
+        sends.values().forEach(future -> future.complete(null));
+        assertThat(replay.get(5, TimeUnit.SECONDS)).isEqualTo(5);
+        assertThat(dlqRepository.findAll()).extracting(DeadLetterQueue::getProcessed).containsOnly(true);
+    }
+
+    private Long save() {
+        return dlqRepository.save(DeadLetterQueue.builder()
+                .topic("notifications")
+                .kafkaPartition(0)
+                .kafkaOffset(12L)
+                .payload("{\"eventType\":\"PAYMENT_RECEIVED\",\"userIds\":[7]}")
+                .errorMessage("first failure")
+                .retryCount(0)
+                .build()).getId();
+    }
+
+    private List<DeadLetterQueue> claimable() {
+        return transactionTemplate.execute(status -> dlqRepository.claimReplayable(5, null, null, null, null,
+                LocalDateTime.now(), PageRequest.of(0, 10)));
+    }
+}
@@ -0,0 +1,151 @@
+package ma.fstt.notificationservice.services;
+
+import ma.fstt.notificationservice.config.RetentionProperties;
+import ma.fstt.notificationservice.entities.Notification;
+import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.enums.Status;
+import ma.fstt.notificationservice.repositories.ArchivedUserNotificationRepository;
+import ma.fstt.notificationservice.repositories.NotificationRepository;
+import ma.fstt.notificationservice.repositories.UserNotificationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.dialect=ma.fstt.notificationservice.H2SkipLockedDialect",
+        "notification.retention.default-days=30"
+})
+@Import({NotificationArchiveService.class, NotificationTemplateService.class, RetentionProperties.class,
+        JacksonAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificationArchiveServiceTest {
+
+    @MockitoBean
+    private NotificationContentCache contentCache;
+
+    @Autowired
+    private NotificationArchiveService archiveService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserNotificationRepository userNotificationRepository;
+
+    @Autowired
+    private ArchivedUserNotificationRepository archiveRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Un destinataire distinct par ligne : une seule ligne par notification, utilisateur et canal
+    private final AtomicLong nextUserId = new AtomicLong();
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM user_notifications_archive");
+        jdbcTemplate.update("DELETE FROM user_notifications");
+        jdbcTemplate.update("DELETE FROM notifications");
+    }
+
+    @Test
+    void archivesOldReadNotificationsOnly() {
+        Notification notification = notification();
+        UserNotification oldRead = save(notification, Status.READ, LocalDateTime.now().minusDays(40));
+        UserNotification oldUnread = save(notification, Status.UNREAD, LocalDateTime.now().minusDays(40));
+        UserNotification recentRead = save(notification, Status.READ, LocalDateTime.now().minusDays(1));
+
+        archiveService.archiveReadNotifications();
+
+        assertThat(archiveRepository.findAll()).extracting(archived -> archived.getId())
+                .containsExactly(oldRead.getId());
+        assertThat(userNotificationRepository.findAll()).extracting(UserNotification::getId)
+                .containsExactlyInAnyOrder(oldUnread.getId(), recentRead.getId());
+    }
+
+    @Test
+    void concurrentClaimsSkipLockedRows() throws Exception {
+        Notification notification = notification();
+        for (int i = 0; i < 4; i++) {
+            save(notification, Status.READ, LocalDateTime.now().minusDays(40));
+        }
+        LocalDateTime before = LocalDateTime.now().minusDays(30);
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Première instance : réclame 2 lignes et garde ses verrous
+        CompletableFuture<List<Long>> first = CompletableFuture.supplyAsync(() ->
+                transactionTemplate.execute(status -> {
+                    List<Long> ids = ids(userNotificationRepository.claimArchivable(
+                            Status.READ, EventType.PAYMENT_RECEIVED, before, PageRequest.of(0, 2)));
+                    claimed.countDown();
+                    await(release);
+                    return ids;
+                }));
+        assertThat(claimed.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // Seconde instance : ne doit ni attendre ni reprendre les lignes verrouillées
+        List<Long> second = transactionTemplate.execute(status -> ids(userNotificationRepository.claimArchivable(
+                Status.READ, EventType.PAYMENT_RECEIVED, before, PageRequest.of(0, 4))));
+        release.countDown();
+
+        assertThat(second).hasSize(2).doesNotContainAnyElementsOf(first.get(10, TimeUnit.SECONDS));
+    }
+
+    private Notification notification() {
+        return notificationRepository.save(Notification.builder()
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .title("Paiement reçu")
+                .message("Votre paiement a été reçu.")
+                .userNotifications(new ArrayList<>())
+                .build());
+    }
+
+    private UserNotification save(Notification notification, Status status, LocalDateTime sentAt) {
+        return userNotificationRepository.save(UserNotification.builder()
+                .notification(notification)
+                .userId(nextUserId.incrementAndGet())
+                .channel(Channel.PUSH)
+                .status(status)
+                .sentAt(sentAt)
+                .build());
+    }
+
+    private static List<Long> ids(List<UserNotification> rows) {
+        return rows.stream().map(UserNotification::getId).toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
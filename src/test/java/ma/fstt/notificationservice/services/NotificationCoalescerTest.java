@@ -0,0 +1,140 @@
+package ma.fstt.notificationservice.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.notificationservice.channels.ChannelSender;
+import ma.fstt.notificationservice.channels.SendResult;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.enums.SlowConsumerPolicy;
+import ma.fstt.notificationservice.repositories.UserNotificationRepository;
+import ma.fstt.notificationservice.websocket.SlowConsumerRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class NotificationCoalescerTest {
+
+    private final List<NotificationDTO> digests = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean gatewayDown = new AtomicBoolean();
+    private final AtomicLong rowIds = new AtomicLong();
+    private final UserNotificationRepository userNotificationRepository = mock(UserNotificationRepository.class);
+
+    private final ChannelSender emailSender = new ChannelSender() {
+        @Override
+        public Channel getChannel() {
+            return Channel.EMAIL;
+        }
+
+        @Override
+        public SendResult send(List<NotificationDTO> messages) {
+            if (gatewayDown.get()) {
+                return SendResult.failed(messages);
+            }
+            digests.addAll(messages);
+            return SendResult.sent();
+        }
+    };
+
+    @Test
+    void rendersDigestThroughTemplatesInMessageLocale() {
+        NotificationCoalescer coalescer = coalescer(100);
+
+        List<NotificationDTO> admitted = coalescer.admit(Channel.EMAIL, List.of(
+                message(1L, "PAYMENT_RECEIVED.en"), message(1L, "PAYMENT_RECEIVED.en"), message(1L, "PAYMENT_RECEIVED.en")));
+        coalescer.flushDigests();
+
+        assertThat(admitted).hasSize(1);
+        assertThat(digests).singleElement().satisfies(digest -> {
+            assertThat(digest.getTitle()).isEqualTo("2 new notifications");
+            assertThat(digest.getMessage()).isEqualTo("You have 2 new notifications: Payment received.");
+        });
+    }
+
+    @Test
+    void fallsBackToDefaultLocaleWithoutTemplateId() {
+        NotificationCoalescer coalescer = coalescer(100);
+
+        coalescer.admit(Channel.EMAIL, List.of(message(1L, null), message(1L, null)));
+        coalescer.flushDigests();
+
+        assertThat(digests).singleElement()
+                .extracting(NotificationDTO::getMessage)
+                .isEqualTo("Vous avez 1 nouvelles notifications : Paiement reçu.");
+    }
+
+    @Test
+    void marksCoalescedRowsSentOnlyOnceTheirDigestIsSent() {
+        NotificationCoalescer coalescer = coalescer(100);
+        NotificationDTO admitted = message(1L, "PAYMENT_RECEIVED.fr");
+        NotificationDTO held = message(1L, "PAYMENT_RECEIVED.fr");
+        coalescer.admit(Channel.EMAIL, List.of(admitted, held));
+
+        gatewayDown.set(true);
+        coalescer.flushDigests();
+        verify(userNotificationRepository, never()).markSent(anyList(), any());
+
+        // Résumé en échec : les lignes restent au relais d'outbox, un nouveau résumé les reprend ensuite
+        NotificationDTO heldLater = message(1L, "PAYMENT_RECEIVED.fr");
+        coalescer.admit(Channel.EMAIL, List.of(heldLater));
+        gatewayDown.set(false);
+        coalescer.flushDigests();
+
+        verify(userNotificationRepository).markSent(List.of(heldLater.getId()), digests.get(0).getSentAt());
+        verify(userNotificationRepository, never()).markSent(List.of(held.getId()), digests.get(0).getSentAt());
+    }
+
+    @Test
+    void flushesPendingCountsOfEvictedKeys() throws InterruptedException {
+        NotificationCoalescer coalescer = coalescer(1);
+
+        for (long userId = 1; userId <= 20; userId++) {
+            coalescer.admit(Channel.EMAIL, List.of(message(userId, "PAYMENT_RECEIVED.fr"), message(userId, "PAYMENT_RECEIVED.fr")));
+        }
+
+        // L'éviction Caffeine est asynchrone : on laisse la maintenance se terminer
+        long deadline = System.currentTimeMillis() + 5000;
+        List<Long> digestedUsers = new ArrayList<>();
+        while (digestedUsers.size() < 20 && System.currentTimeMillis() < deadline) {
+            coalescer.flushDigests();
+            digestedUsers = digests.stream().map(NotificationDTO::getUserId).distinct().toList();
+            Thread.sleep(20);
+        }
+
+        assertThat(digestedUsers).hasSize(20);
+        assertThat(digests).allSatisfy(digest -> assertThat(digest.getMetadata()).containsEntry("count", "1"));
+    }
+
+    private NotificationCoalescer coalescer(long maxKeys) {
+        SlowConsumerRegistry slowConsumerRegistry = new SlowConsumerRegistry(
+                new SimpleMeterRegistry(), SlowConsumerPolicy.DROP_OLDEST, 262144, 10000, 0.5);
+        NotificationCoalescer coalescer = new NotificationCoalescer(List.of(emailSender), slowConsumerRegistry,
+                new NotificationTemplateService("fr", 100), userNotificationRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry(), 1, 1, maxKeys);
+        ReflectionTestUtils.setField(coalescer, "enabled", true);
+        return coalescer;
+    }
+
+    private NotificationDTO message(Long userId, String templateId) {
+        return NotificationDTO.builder()
+                .id(rowIds.incrementAndGet())
+                .userId(userId)
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .templateId(templateId)
+                .build();
+    }
+}
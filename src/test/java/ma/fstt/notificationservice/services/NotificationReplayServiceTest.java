@@ -0,0 +1,136 @@
+package ma.fstt.notificationservice.services;
+
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.enums.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationReplayServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @Mock
+    private NotificationService notificationService;
+
+    private RecentNotificationBuffer buffer;
+    private NotificationReplayService replayService;
+
+    @BeforeEach
+    void setUp() {
+        buffer = new RecentNotificationBuffer(3, 100, 30);
+        replayService = new NotificationReplayService(buffer, notificationService);
+        ReflectionTestUtils.setField(replayService, "maxItems", 200);
+    }
+
+    @Test
+    void bufferKeepsIdOrderAndLatestVersionOfEachRow() {
+        buffer.append(notification(12L, Status.UNREAD, BASE.plusMinutes(2)));
+        buffer.append(notification(10L, Status.UNREAD, BASE));
+        buffer.append(notification(11L, Status.FAILED, null));
+        buffer.append(notification(11L, Status.UNREAD, BASE.plusMinutes(3)));
+
+        assertThat(buffer.since(7L, 10L)).hasValueSatisfying(delta -> {
+            assertThat(delta).extracting(NotificationDTO::getId).containsExactly(11L, 12L);
+            assertThat(delta.get(0).getStatus()).isEqualTo(Status.UNREAD);
+        });
+    }
+
+    @Test
+    void bufferDoesNotClaimIdsBelowItsEvictionWatermark() {
+        buffer.append(notification(10L, Status.UNREAD, BASE));
+        buffer.append(notification(11L, Status.UNREAD, BASE));
+        buffer.append(notification(12L, Status.UNREAD, BASE));
+        buffer.append(notification(13L, Status.UNREAD, BASE));
+
+        assertThat(buffer.since(7L, 9L)).isEmpty();
+        assertThat(buffer.since(7L, 10L)).hasValueSatisfying(delta ->
+                assertThat(delta).extracting(NotificationDTO::getId).containsExactly(11L, 12L, 13L));
+        assertThat(buffer.since(7L, 11L)).hasValueSatisfying(delta -> assertThat(delta).hasSize(2));
+    }
+
+    @Test
+    void lateRowBelowWatermarkDoesNotLowerCoverage() {
+        buffer.append(notification(10L, Status.UNREAD, BASE));
+        buffer.append(notification(11L, Status.UNREAD, BASE.plusMinutes(1)));
+        buffer.append(notification(12L, Status.UNREAD, BASE.plusMinutes(2)));
+        buffer.append(notification(13L, Status.UNREAD, BASE.plusMinutes(3)));
+        // Redélivrée par le relais après l'éviction de 10
+        buffer.append(notification(5L, Status.UNREAD, BASE.minusMinutes(5)));
+
+        assertThat(buffer.since(7L, 5L)).isEmpty();
+        assertThat(buffer.since(7L, BASE.minusMinutes(5))).isEmpty();
+        assertThat(buffer.since(7L, BASE)).hasValueSatisfying(delta ->
+                assertThat(delta).extracting(NotificationDTO::getId).containsExactly(11L, 12L, 13L));
+    }
+
+    @Test
+    void servesCoveredDeltaFromMemoryWithoutDatabaseAccess() {
+        buffer.append(notification(10L, Status.UNREAD, BASE));
+        buffer.append(notification(12L, Status.UNREAD, BASE.plusMinutes(1)));
+
+        assertThat(replayService.replaySince(7L, 10L)).extracting(NotificationDTO::getId).containsExactly(12L);
+        verifyNoInteractions(notificationService);
+    }
+
+    @Test
+    void fallsBackToDatabaseWhenLastSeenIsOlderThanBuffer() {
+        buffer.append(notification(10L, Status.UNREAD, BASE));
+        List<NotificationDTO> fromDatabase = List.of(
+                notification(8L, Status.UNREAD, BASE.minusMinutes(1)), notification(10L, Status.UNREAD, BASE));
+        when(notificationService.getNotificationsSince(eq(7L), eq(7L), anyInt())).thenReturn(fromDatabase);
+
+        assertThat(replayService.replaySince(7L, 7L)).isEqualTo(fromDatabase);
+        verify(notificationService, never()).countNotificationsSince(anyLong(), anyLong());
+    }
+
+    @Test
+    void verifiedModeFallsBackToDatabaseWhenBufferMissesRows() {
+        ReflectionTestUtils.setField(replayService, "verifyCount", true);
+        // La ligne 11 a été délivrée par une autre instance : absente de l'anneau local
+        buffer.append(notification(10L, Status.UNREAD, BASE));
+        buffer.append(notification(12L, Status.UNREAD, BASE.plusMinutes(2)));
+        List<NotificationDTO> fromDatabase = List.of(
+                notification(11L, Status.UNREAD, BASE.plusMinutes(1)), notification(12L, Status.UNREAD, BASE.plusMinutes(2)));
+        when(notificationService.countNotificationsSince(7L, 10L)).thenReturn(2L);
+        when(notificationService.getNotificationsSince(eq(7L), eq(10L), anyInt())).thenReturn(fromDatabase);
+
+        assertThat(replayService.replaySince(7L, 10L)).isEqualTo(fromDatabase);
+    }
+
+    @Test
+    void timeBasedReplayAlsoChecksCoverage() {
+        buffer.append(notification(10L, Status.UNREAD, BASE));
+        buffer.append(notification(11L, Status.UNREAD, BASE.plusMinutes(1)));
+        List<NotificationDTO> fromDatabase = List.of(notification(10L, Status.UNREAD, BASE));
+        when(notificationService.getNotificationsSince(eq(7L), eq(BASE.minusMinutes(1)), anyInt())).thenReturn(fromDatabase);
+
+        assertThat(replayService.replaySince(7L, BASE)).extracting(NotificationDTO::getId).containsExactly(11L);
+        assertThat(replayService.replaySince(7L, BASE.minusMinutes(1))).isEqualTo(fromDatabase);
+    }
+
+    private static NotificationDTO notification(Long id, Status status, LocalDateTime sentAt) {
+        return NotificationDTO.builder()
+                .id(id)
+                .userId(7L)
+                .status(status)
+                .sentAt(sentAt)
+                .build();
+    }
+}
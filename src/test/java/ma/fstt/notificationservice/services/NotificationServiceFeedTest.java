@@ -0,0 +1,75 @@
+package ma.fstt.notificationservice.services;
+
+import ma.fstt.notificationservice.config.ReplicaRoutingDataSource;
+import ma.fstt.notificationservice.dto.NotificationContent;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.enums.Status;
+import ma.fstt.notificationservice.repositories.NotificationStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationServiceFeedTest {
+
+    @Mock
+    private NotificationStore notificationStore;
+    @Mock
+    private NotificationContentCache contentCache;
+    @Mock
+    private UserFeedVersionTracker versionTracker;
+
+    @InjectMocks
+    private NotificationService notificationService;
+
+    @Test
+    void rowsWithoutContentAreSkipped() {
+        when(notificationStore.findByUserIdOrderBySentAtDesc(7L)).thenReturn(List.of(
+                row(1L, 10L), row(2L, 11L), row(3L, null)));
+        when(contentCache.getAll(any())).thenReturn(Map.of(10L, NotificationContent.builder()
+                .id(10L).eventType(EventType.PAYMENT_RECEIVED).title("Paiement reçu").build()));
+
+        List<NotificationDTO> feed = notificationService.getNotificationsByUserId(7L);
+
+        assertThat(feed).extracting(NotificationDTO::getId).containsExactly(1L);
+        assertThat(feed.get(0).getTitle()).isEqualTo("Paiement reçu");
+    }
+
+    @Test
+    void readsAfterAChangeArePinnedToPrimary() {
+        List<Boolean> pinned = new ArrayList<>();
+        when(versionTracker.changedRecently(7L)).thenReturn(true, false);
+        when(notificationStore.countByUserIdAndStatus(7L, Status.UNREAD)).thenAnswer(invocation -> {
+            pinned.add(ReplicaRoutingDataSource.isReadingFromPrimary());
+            return 1L;
+        });
+
+        notificationService.countUnreadByUserId(7L);
+        notificationService.countUnreadByUserId(7L);
+
+        assertThat(pinned).containsExactly(true, false);
+    }
+
+    private static UserNotification row(Long id, Long notificationId) {
+        return UserNotification.builder()
+                .id(id)
+                .notificationId(notificationId)
+                .userId(7L)
+                .channel(Channel.PUSH)
+                .status(Status.UNREAD)
+                .build();
+    }
+}
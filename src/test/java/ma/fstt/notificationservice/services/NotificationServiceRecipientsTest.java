@@ -0,0 +1,146 @@
+package ma.fstt.notificationservice.services;
+
+import jakarta.persistence.EntityManager;
+import ma.fstt.notificationservice.dto.NotificationContent;
+import ma.fstt.notificationservice.dto.NotificationEvent;
+import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.repositories.NotificationStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Dédoublonnage des destinataires entre userIds explicites, liste déposée et audience.
+ */
+@ExtendWith(MockitoExtension.class)
+class NotificationServiceRecipientsTest {
+
+    @Mock
+    private NotificationStore notificationStore;
+    @Mock
+    private DeliveryDispatcher deliveryDispatcher;
+    @Mock
+    private DeliveryOutboxService outboxService;
+    @Mock
+    private UserFeedVersionTracker versionTracker;
+    @Mock
+    private AudienceResolver audienceResolver;
+    @Mock
+    private RecipientListStore recipientListStore;
+    @Mock
+    private NotificationTemplateService templateService;
+    @Mock
+    private NotificationContentCache contentCache;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private UserFeedCache feedCache;
+
+    @InjectMocks
+    private NotificationService notificationService;
+
+    private final List<Long> persistedUserIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(notificationService, "audienceChunkSize", 2);
+        when(contentCache.put(any())).thenReturn(NotificationContent.builder()
+                .id(1L).eventType(EventType.PAYMENT_RECEIVED).build());
+        AtomicLong ids = new AtomicLong();
+        when(notificationStore.saveUserNotifications(any())).thenAnswer(invocation -> {
+            List<UserNotification> rows = invocation.getArgument(0);
+            rows.forEach(row -> {
+                row.setId(ids.incrementAndGet());
+                persistedUserIds.add(row.getUserId());
+            });
+            return rows;
+        });
+        // Lecture indexée des destinataires déjà persistés pour la notification
+        lenient().when(notificationStore.findRecipientUserIds(any(), any())).thenAnswer(invocation -> {
+            Collection<Long> userIds = invocation.getArgument(1);
+            return userIds.stream().filter(persistedUserIds::contains).toList();
+        });
+    }
+
+    @Test
+    void explicitRecipientsAreDeduplicated() {
+        notificationService.processNotification(event(List.of(1L, 2L, 1L, 3L, 2L), null));
+
+        assertThat(persistedUserIds).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void audienceMembersAlreadyListedExplicitlyAreSkipped() {
+        doAnswer(invocation -> {
+            Consumer<List<Long>> chunkConsumer = invocation.getArgument(2);
+            chunkConsumer.accept(List.of(2L, 4L));
+            chunkConsumer.accept(List.of(5L, 7L));
+            return null;
+        }).when(audienceResolver).forEachChunk(eq("PROPERTY:42"), anyInt(), any());
+
+        notificationService.processNotification(event(List.of(2L, 7L), "PROPERTY:42"));
+
+        assertThat(persistedUserIds).containsExactly(2L, 7L, 4L, 5L);
+    }
+
+    @Test
+    void claimCheckFragmentsAreDeduplicatedAgainstEarlierChunks() {
+        doAnswer(invocation -> {
+            Consumer<List<Long>> chunkConsumer = invocation.getArgument(1);
+            chunkConsumer.accept(List.of(3L, 4L, 3L));
+            chunkConsumer.accept(List.of(1L, 4L, 5L));
+            return null;
+        }).when(recipientListStore).forEachChunk(eq("ref-1"), any());
+
+        notificationService.processNotification(NotificationEvent.builder()
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .userIds(List.of(1L))
+                .recipientsRef("ref-1")
+                .title("Paiement reçu")
+                .message("Votre paiement a été reçu.")
+                .channels(List.of(Channel.PUSH))
+                .build());
+
+        assertThat(persistedUserIds).containsExactly(1L, 3L, 4L, 5L);
+    }
+
+    @Test
+    void singleChunkDoesNotQueryExistingRecipients() {
+        notificationService.processNotification(event(List.of(1L, 2L), null));
+
+        verify(notificationStore, never()).findRecipientUserIds(any(), any());
+    }
+
+    private static NotificationEvent event(List<Long> userIds, String audience) {
+        return NotificationEvent.builder()
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .userIds(userIds)
+                .audience(audience)
+                .title("Paiement reçu")
+                .message("Votre paiement a été reçu.")
+                .channels(List.of(Channel.PUSH))
+                .build();
+    }
+}
@@ -0,0 +1,325 @@
+package ma.fstt.notificationservice.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import ma.fstt.notificationservice.channels.ChannelSender;
+import ma.fstt.notificationservice.channels.SendResult;
+import ma.fstt.notificationservice.dto.NotificationContent;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.entities.DeliveryOutbox;
+import ma.fstt.notificationservice.entities.Notification;
+import ma.fstt.notificationservice.entities.UserNotification;
+import ma.fstt.notificationservice.enums.Channel;
+import ma.fstt.notificationservice.enums.EventType;
+import ma.fstt.notificationservice.enums.Priority;
+import ma.fstt.notificationservice.enums.Status;
+import ma.fstt.notificationservice.repositories.DeliveryOutboxRepository;
+import ma.fstt.notificationservice.repositories.NotificationRepository;
+import ma.fstt.notificationservice.repositories.UserNotificationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Échec d'un envoi après commit : la tâche d'outbox reste ouverte et le relais redélivre
+ * les seuls destinataires en échec.
+ */
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.dialect=ma.fstt.notificationservice.H2SkipLockedDialect"
+})
+@Import({OutboxRelay.class, DeliveryOutboxService.class, NotificationDeliveryService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTest {
+
+    @MockitoBean
+    private NotificationContentCache contentCache;
+
+    @MockitoBean
+    private DeliveryDispatcher deliveryDispatcher;
+
+    @MockitoBean
+    private NotificationCoalescer coalescer;
+
+    @MockitoBean
+    private ChannelSender pushSender;
+
+    @MockitoBean
+    private UserFeedVersionTracker versionTracker;
+
+    @MockitoBean
+    private UserFeedCache feedCache;
+
+    @MockitoBean
+    private DeliveryHealthCounters healthCounters;
+
+    @MockitoBean
+    private RecentNotificationBuffer recentBuffer;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private DeliveryOutboxService outboxService;
+
+    @Autowired
+    private NotificationDeliveryService deliveryService;
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private UserNotificationRepository userNotificationRepository;
+
+    @Autowired
+    private DeliveryOutboxRepository outboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<List<Long>> sentBatches = new ArrayList<>();
+    private final AtomicBoolean gatewayDown = new AtomicBoolean();
+    private final CountDownLatch workerReleased = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        when(coalescer.admit(any(), anyList())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(pushSender.getChannel()).thenReturn(Channel.PUSH);
+        when(pushSender.send(anyList())).thenAnswer(invocation -> {
+            List<NotificationDTO> messages = invocation.getArgument(0);
+            // L'utilisateur 99 bloque le worker du dispatcher réel (file encombrée)
+            if (messages.stream().anyMatch(message -> message.getUserId() == 99L)) {
+                workerReleased.await(30, TimeUnit.SECONDS);
+                return SendResult.sent();
+            }
+            sentBatches.add(messages.stream().map(NotificationDTO::getUserId).toList());
+            // La passerelle refuse l'utilisateur 2 tant qu'elle est en panne
+            // L'utilisateur 3 n'a pas de contact : rejet définitif
+            return new SendResult(gatewayDown.get()
+                    ? messages.stream().filter(message -> message.getUserId() == 2L).toList()
+                    : List.of(),
+                    messages.stream().filter(message -> message.getUserId() == 3L).toList());
+        });
+        doAnswer(invocation -> {
+            deliveryService.deliver(invocation.getArgument(0));
+            return null;
+        }).when(deliveryDispatcher).submit(any());
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM delivery_outbox");
+        jdbcTemplate.update("DELETE FROM user_notifications");
+        jdbcTemplate.update("DELETE FROM notifications");
+    }
+
+    @Test
+    void relayRedeliversRecipientsWhoseSendFailed() {
+        Notification notification = notificationRepository.save(Notification.builder()
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .title("Paiement reçu")
+                .message("Votre paiement a été reçu.")
+                .userNotifications(new ArrayList<>())
+                .build());
+        UserNotification first = save(notification, 1L);
+        UserNotification second = save(notification, 2L);
+        Long outboxId = transactionTemplate.execute(status -> outboxService.record(
+                notification.getId(), first.getId(), second.getId(), Priority.NORMAL));
+        NotificationContent content = NotificationContent.builder()
+                .id(notification.getId())
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .title(notification.getTitle())
+                .message(notification.getMessage())
+                .build();
+        when(contentCache.getAll(List.of(notification.getId()))).thenReturn(Map.of(notification.getId(), content));
+
+        gatewayDown.set(true);
+        deliveryService.deliver(new DeliveryTask(content, List.of(
+                new DeliveryTask.Recipient(first.getId(), 1L, Channel.PUSH),
+                new DeliveryTask.Recipient(second.getId(), 2L, Channel.PUSH)),
+                Priority.NORMAL, System.nanoTime(), outboxId));
+        outboxService.flushCompleted();
+
+        assertThat(userNotificationRepository.findById(second.getId()).orElseThrow().getStatus()).isEqualTo(Status.FAILED);
+        assertThat(outboxRepository.findById(outboxId)).isPresent();
+
+        // Passerelle rétablie, backoff écoulé : le relais reprend la tâche
+        gatewayDown.set(false);
+        jdbcTemplate.update("UPDATE delivery_outbox SET available_at = ? WHERE id = ?",
+                LocalDateTime.now().minusSeconds(1), outboxId);
+        outboxRelay.relay();
+        outboxService.flushCompleted();
+
+        assertThat(sentBatches).containsExactly(List.of(1L, 2L), List.of(2L));
+        UserNotification redelivered = userNotificationRepository.findById(second.getId()).orElseThrow();
+        assertThat(redelivered.getStatus()).isEqualTo(Status.UNREAD);
+        assertThat(redelivered.getSentAt()).isNotNull();
+        assertThat(outboxRepository.findById(outboxId)).isEmpty();
+    }
+
+    @Test
+    void failedDeliveryPostponesTaskWithBackoff() {
+        Notification notification = notificationRepository.save(Notification.builder()
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .title("Paiement reçu")
+                .message("Votre paiement a été reçu.")
+                .userNotifications(new ArrayList<>())
+                .build());
+        UserNotification recipient = save(notification, 2L);
+        Long outboxId = transactionTemplate.execute(status -> outboxService.record(
+                notification.getId(), recipient.getId(), recipient.getId(), Priority.NORMAL));
+        jdbcTemplate.update("UPDATE delivery_outbox SET attempts = 3 WHERE id = ?", outboxId);
+
+        gatewayDown.set(true);
+        deliveryService.deliver(new DeliveryTask(NotificationContent.builder().id(notification.getId()).build(),
+                List.of(new DeliveryTask.Recipient(recipient.getId(), 2L, Channel.PUSH)),
+                Priority.NORMAL, System.nanoTime(), outboxId));
+
+        DeliveryOutbox outbox = outboxRepository.findById(outboxId).orElseThrow();
+        // 30 s << 3 tentatives = 240 s
+        assertThat(outbox.getAvailableAt()).isAfter(LocalDateTime.now().plusSeconds(200));
+    }
+
+    @Test
+    void rejectedRecipientsAreMarkedFailedWithoutRetry() {
+        Notification notification = notificationRepository.save(Notification.builder()
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .title("Paiement reçu")
+                .message("Votre paiement a été reçu.")
+                .userNotifications(new ArrayList<>())
+                .build());
+        UserNotification first = save(notification, 1L);
+        UserNotification rejected = save(notification, 3L);
+        Long outboxId = transactionTemplate.execute(status -> outboxService.record(
+                notification.getId(), first.getId(), rejected.getId(), Priority.NORMAL));
+
+        deliveryService.deliver(new DeliveryTask(NotificationContent.builder().id(notification.getId()).build(),
+                List.of(new DeliveryTask.Recipient(first.getId(), 1L, Channel.PUSH),
+                        new DeliveryTask.Recipient(rejected.getId(), 3L, Channel.PUSH)),
+                Priority.NORMAL, System.nanoTime(), outboxId));
+        outboxService.flushCompleted();
+
+        assertThat(userNotificationRepository.findById(rejected.getId()).orElseThrow().getStatus()).isEqualTo(Status.FAILED);
+        assertThat(outboxRepository.findById(outboxId)).isEmpty();
+    }
+
+    @Test
+    void coalescedRowsStayUndeliveredUntilTheirDigestIsSent() {
+        Notification notification = notificationRepository.save(Notification.builder()
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .title("Paiement reçu")
+                .message("Votre paiement a été reçu.")
+                .userNotifications(new ArrayList<>())
+                .build());
+        UserNotification first = save(notification, 1L);
+        UserNotification second = save(notification, 2L);
+        Long outboxId = transactionTemplate.execute(status -> outboxService.record(
+                notification.getId(), first.getId(), second.getId(), Priority.NORMAL));
+        NotificationContent content = NotificationContent.builder()
+                .id(notification.getId())
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .title(notification.getTitle())
+                .message(notification.getMessage())
+                .build();
+        when(contentCache.getAll(List.of(notification.getId()))).thenReturn(Map.of(notification.getId(), content));
+        // L'utilisateur 2 est retenu pour un résumé qui ne partira jamais (redémarrage)
+        when(coalescer.admit(any(), anyList())).thenAnswer(invocation -> invocation.<List<NotificationDTO>>getArgument(1)
+                .stream().filter(message -> message.getUserId() != 2L).toList());
+
+        deliveryService.deliver(new DeliveryTask(content, List.of(
+                new DeliveryTask.Recipient(first.getId(), 1L, Channel.PUSH),
+                new DeliveryTask.Recipient(second.getId(), 2L, Channel.PUSH)),
+                Priority.NORMAL, System.nanoTime(), outboxId));
+        outboxService.flushCompleted();
+
+        assertThat(userNotificationRepository.findById(second.getId()).orElseThrow().getSentAt()).isNull();
+        assertThat(outboxRepository.findById(outboxId)).isPresent();
+
+        when(coalescer.admit(any(), anyList())).thenAnswer(invocation -> invocation.getArgument(1));
+        jdbcTemplate.update("UPDATE delivery_outbox SET available_at = ? WHERE id = ?",
+                LocalDateTime.now().minusSeconds(1), outboxId);
+        outboxRelay.relay();
+        outboxService.flushCompleted();
+
+        assertThat(sentBatches).containsExactly(List.of(1L), List.of(2L));
+        assertThat(userNotificationRepository.findById(second.getId()).orElseThrow().getSentAt()).isNotNull();
+        assertThat(outboxRepository.findById(outboxId)).isEmpty();
+    }
+
+    @Test
+    void relaySkipsTaskStillQueuedPastRedeliveryDelay() throws InterruptedException {
+        Notification notification = notificationRepository.save(Notification.builder()
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .title("Paiement reçu")
+                .message("Votre paiement a été reçu.")
+                .userNotifications(new ArrayList<>())
+                .build());
+        UserNotification recipient = save(notification, 1L);
+        Long outboxId = transactionTemplate.execute(status -> outboxService.record(
+                notification.getId(), recipient.getId(), recipient.getId(), Priority.NORMAL));
+        NotificationContent content = NotificationContent.builder()
+                .id(notification.getId())
+                .eventType(EventType.PAYMENT_RECEIVED)
+                .title(notification.getTitle())
+                .message(notification.getMessage())
+                .build();
+        when(contentCache.getAll(List.of(notification.getId()))).thenReturn(Map.of(notification.getId(), content));
+
+        DeliveryDispatcher dispatcher = new DeliveryDispatcher(deliveryService, outboxService,
+                new SimpleMeterRegistry(), ObservationRegistry.NOOP, List.of(), 10, 10, 4, 1, new MockEnvironment());
+        // Le seul worker est occupé : la tâche reste en file
+        dispatcher.submit(new DeliveryTask(content, List.of(new DeliveryTask.Recipient(null, 99L, Channel.PUSH)),
+                Priority.NORMAL, System.nanoTime(), null));
+        dispatcher.submit(new DeliveryTask(content, List.of(new DeliveryTask.Recipient(recipient.getId(), 1L, Channel.PUSH)),
+                Priority.NORMAL, System.nanoTime(), outboxId));
+
+        // redelivery-delay-seconds écoulé pendant l'attente en file, puis renouvellement du bail
+        jdbcTemplate.update("UPDATE delivery_outbox SET available_at = ? WHERE id = ?",
+                LocalDateTime.now().minusSeconds(1), outboxId);
+        dispatcher.renewOutboxLeases();
+        outboxRelay.relay();
+
+        workerReleased.countDown();
+        dispatcher.shutdown();
+        outboxService.flushCompleted();
+
+        assertThat(sentBatches).containsExactly(List.of(1L));
+        assertThat(outboxRepository.findById(outboxId)).isEmpty();
+    }
+
+    private UserNotification save(Notification notification, Long userId) {
+        return userNotificationRepository.save(UserNotification.builder()
+                .notification(notification)
+                .userId(userId)
+                .channel(Channel.PUSH)
+                .status(Status.UNREAD)
+                .build());
+    }
+}
@@ -0,0 +1,119 @@
+package ma.fstt.notificationservice.services;
+
+import ma.fstt.notificationservice.entities.DeadLetterQueue;
+import ma.fstt.notificationservice.exceptions.InvalidNotificationDataException;
+import ma.fstt.notificationservice.repositories.DeadLetterQueueRepository;
+import ma.fstt.notificationservice.repositories.RecipientListChunkRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "notification.claim-check.chunk-size=2",
+        "notification.claim-check.retention-hours=72"
+})
+@Import(RecipientListStore.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RecipientListStoreTest {
+
+    @MockitoBean
+    private NotificationContentCache contentCache;
+
+    @Autowired
+    private RecipientListStore store;
+
+    @Autowired
+    private RecipientListChunkRepository chunkRepository;
+
+    @Autowired
+    private DeadLetterQueueRepository dlqRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM recipient_list_chunks");
+        jdbcTemplate.update("DELETE FROM dead_letter_queue");
+    }
+
+    @Test
+    void purgeKeepsListsReferencedByUnprocessedDlqMessages() {
+        String referenced = store.store(userIds(5));
+        String replayed = store.store(userIds(5));
+        String unreferenced = store.store(userIds(5));
+        String recent = store.store(userIds(5));
+        jdbcTemplate.update("UPDATE recipient_list_chunks SET created_at = ? WHERE list_ref <> ?",
+                LocalDateTime.now().minusDays(10), recent);
+        dlq(referenced, false);
+        dlq(replayed, true);
+
+        store.purgeExpired();
+
+        assertThat(chunkRepository.existsByListRef(referenced)).isTrue();
+        assertThat(chunkRepository.existsByListRef(recent)).isTrue();
+        assertThat(chunkRepository.existsByListRef(replayed)).isFalse();
+        assertThat(chunkRepository.existsByListRef(unreferenced)).isFalse();
+    }
+
+    @Test
+    void storedListIsReadBackChunkByChunk() {
+        String ref = store.store(userIds(5));
+        List<List<Long>> chunks = new ArrayList<>();
+
+        store.forEachChunk(ref, chunks::add);
+
+        assertThat(chunks).containsExactly(List.of(1L, 2L), List.of(3L, 4L), List.of(5L));
+    }
+
+    @Test
+    void truncatedChunkIsRejected() {
+        assertThatThrownBy(() -> RecipientListStore.decode(new byte[12]))
+                .isInstanceOf(InvalidNotificationDataException.class);
+        assertThat(RecipientListStore.decode(RecipientListStore.encode(List.of(7L, 8L)))).containsExactly(7L, 8L);
+    }
+
+    @Test
+    void chunkWithUnexpectedUserCountIsRejected() {
+        String ref = store.store(userIds(2));
+        jdbcTemplate.update("UPDATE recipient_list_chunks SET user_count = 3 WHERE list_ref = ?", ref);
+
+        assertThatThrownBy(() -> store.forEachChunk(ref, chunk -> {
+        })).isInstanceOf(InvalidNotificationDataException.class);
+    }
+
+    private void dlq(String recipientsRef, boolean processed) {
+        DeadLetterQueue dlq = dlqRepository.save(DeadLetterQueue.builder()
+                .topic("notifications")
+                .kafkaPartition(0)
+                .kafkaOffset(1L)
+                .payload("{\"recipientsRef\":\"" + recipientsRef + "\"}")
+                .recipientsRef(recipientsRef)
+                .errorMessage("boom")
+                .retryCount(0)
+                .build());
+        if (processed) {
+            jdbcTemplate.update("UPDATE dead_letter_queue SET processed = TRUE WHERE id = ?", dlq.getId());
+        }
+    }
+
+    private static List<Long> userIds(int count) {
+        return LongStream.rangeClosed(1, count).boxed().toList();
+    }
+}
@@ -0,0 +1,81 @@
+package ma.fstt.notificationservice.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SseConnectionRegistryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SseConnectionRegistry registry = new SseConnectionRegistry(meterRegistry, Runnable::run);
+
+    @Test
+    void notificationsPushedDuringReplayAreSentAfterItWithoutDuplicates() {
+        SseEmitter emitter = registry.open(7L, () -> {
+            // Livraisons concurrentes pendant le calcul du delta
+            registry.send(7L, notification(11L));
+            registry.send(7L, notification(12L));
+            return List.of(notification(10L), notification(11L));
+        });
+        registry.send(7L, notification(11L));
+        registry.send(7L, notification(13L));
+
+        assertThat(sentIds(emitter)).containsExactly(10L, 11L, 12L, 13L);
+    }
+
+    @Test
+    void liveNotificationsOfOtherUsersAreNotBuffered() {
+        SseEmitter emitter = registry.open(7L, () -> {
+            registry.send(8L, notification(20L));
+            return List.of();
+        });
+
+        assertThat(sentIds(emitter)).isEmpty();
+    }
+
+    @Test
+    void writesLeaveTheDeliveryThreadAndSlowClientsAreClosed() {
+        List<Runnable> writerTasks = new ArrayList<>();
+        SseConnectionRegistry slowRegistry = new SseConnectionRegistry(meterRegistry, writerTasks::add);
+        ReflectionTestUtils.setField(slowRegistry, "maxPending", 2);
+        SseEmitter emitter = slowRegistry.open(7L, List::of);
+
+        slowRegistry.send(7L, notification(10L));
+        slowRegistry.send(7L, notification(11L));
+        // Rien n'est écrit sur le thread appelant : une seule tâche de vidage attend le pool
+        assertThat(sentIds(emitter)).isEmpty();
+        assertThat(writerTasks).hasSize(1);
+
+        slowRegistry.send(7L, notification(12L));
+        assertThat(meterRegistry.get("notification.sse.streams").gauge().value()).isZero();
+
+        writerTasks.forEach(Runnable::run);
+        slowRegistry.send(7L, notification(13L));
+        assertThat(sentIds(emitter)).doesNotContain(13L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Long> sentIds(SseEmitter emitter) {
+        // Envois antérieurs à l'initialisation de la réponse, conservés dans l'ordre par l'emitter
+        Collection<ResponseBodyEmitter.DataWithMediaType> early =
+                (Collection<ResponseBodyEmitter.DataWithMediaType>) ReflectionTestUtils.getField(emitter, "earlySendAttempts");
+        return early.stream()
+                .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                .filter(NotificationDTO.class::isInstance)
+                .map(data -> ((NotificationDTO) data).getId())
+                .toList();
+    }
+
+    private static NotificationDTO notification(Long id) {
+        return NotificationDTO.builder().id(id).userId(id >= 20 ? 8L : 7L).build();
+    }
+}
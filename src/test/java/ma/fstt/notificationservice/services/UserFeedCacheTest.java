@@ -0,0 +1,154 @@
+package ma.fstt.notificationservice.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.notificationservice.dto.FeedVersion;
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.enums.Status;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserFeedCacheTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final UserFeedCache cache = new UserFeedCache(new SimpleMeterRegistry(), 3, 1 << 20, 60, 5000, nanos::get);
+    // Empreinte du flux en base, modifiable pour simuler une écriture d'une autre instance
+    private final AtomicReference<FeedVersion> version = new AtomicReference<>(new FeedVersion(2L, T0));
+    private final AtomicInteger versionReads = new AtomicInteger();
+
+    @Test
+    void mergeKeepsFeedOrderAndPageSize() {
+        UserFeedCache.Feed feed = UserFeedCache.Feed.loaded(List.of(row(1, T0), row(2, T0.plusMinutes(1))), 3);
+
+        UserFeedCache.Feed merged = feed.merge(List.of(row(3, T0.plusMinutes(2)), row(4, null), row(5, T0.plusMinutes(3))),
+                3, UserFeedCache.REPLACE);
+
+        assertThat(merged.items()).extracting(NotificationDTO::getId).containsExactly(5L, 3L, 2L);
+        assertThat(merged.complete()).isFalse();
+    }
+
+    @Test
+    void mergeIntoIncompleteFeedDropsRowsPastTheLastKnownOne() {
+        // Flux incomplet : des lignes plus anciennes que la dernière en cache existent en base
+        UserFeedCache.Feed feed = UserFeedCache.Feed.of(List.of(row(3, T0.plusMinutes(2)), row(2, T0.plusMinutes(1))), false);
+
+        UserFeedCache.Feed merged = feed.merge(List.of(row(9, T0), row(10, T0.plusMinutes(5))), 3, UserFeedCache.REPLACE);
+
+        assertThat(merged.items()).extracting(NotificationDTO::getId).containsExactly(10L, 3L, 2L);
+    }
+
+    @Test
+    void deliveryDoesNotRevertReadStatus() {
+        load(row(1, null).toBuilder().status(Status.READ).build(), row(2, null));
+
+        cache.applyDelivery(List.of(row(1, T0), row(2, T0)));
+
+        List<NotificationDTO> page = cache.firstPage(7L, 3, id -> List.of(), this::readVersion);
+        assertThat(page).extracting(NotificationDTO::getStatus).containsExactly(Status.UNREAD, Status.READ);
+        assertThat(page).extracting(NotificationDTO::getSentAt).containsOnly(T0);
+    }
+
+    @Test
+    void redeliveredFailedRowBecomesUnreadAndFailureKeepsSentAt() {
+        load(row(1, null).toBuilder().status(Status.FAILED).build(), row(2, T0));
+
+        cache.applyDelivery(List.of(row(1, T0.plusMinutes(1)),
+                row(2, null).toBuilder().status(Status.FAILED).build()));
+
+        List<NotificationDTO> page = cache.firstPage(7L, 3, id -> List.of(), this::readVersion);
+        assertThat(page.get(0).getId()).isEqualTo(1L);
+        assertThat(page.get(0).getStatus()).isEqualTo(Status.UNREAD);
+        assertThat(page.get(1).getStatus()).isEqualTo(Status.FAILED);
+        assertThat(page.get(1).getSentAt()).isEqualTo(T0);
+    }
+
+    @Test
+    void updatesDoNotExtendTheTimeToLive() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.firstPage(7L, 3, id -> {
+            loads.incrementAndGet();
+            return List.of(row(1, T0));
+        }, this::readVersion);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(50));
+        cache.upsert(List.of(row(2, T0.plusMinutes(1))));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(15));
+        cache.firstPage(7L, 3, id -> {
+            loads.incrementAndGet();
+            return List.of(row(1, T0));
+        }, this::readVersion);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void changeMadeByAnotherInstanceIsPickedUpAtRevalidation() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.firstPage(7L, 3, id -> {
+            loads.incrementAndGet();
+            return List.of(row(1, T0));
+        }, this::readVersion);
+
+        // Ligne créée et envoyée par une autre instance : aucune mise à jour locale
+        version.set(new FeedVersion(3L, T0.plusMinutes(1)));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(cache.firstPage(7L, 3, id -> List.of(), this::readVersion)).extracting(NotificationDTO::getId)
+                .containsExactly(1L);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        List<NotificationDTO> page = cache.firstPage(7L, 3, id -> {
+            loads.incrementAndGet();
+            return List.of(row(3, T0.plusMinutes(1)), row(1, T0));
+        }, this::readVersion);
+
+        assertThat(page).extracting(NotificationDTO::getId).containsExactly(3L, 1L);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void unchangedVersionKeepsCachedPageUntilNextRevalidation() {
+        AtomicInteger loads = new AtomicInteger();
+        Function<Long, List<NotificationDTO>> loader = id -> {
+            loads.incrementAndGet();
+            return List.of(row(1, T0));
+        };
+        cache.firstPage(7L, 3, loader, this::readVersion);
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        cache.firstPage(7L, 3, loader, this::readVersion);
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        cache.firstPage(7L, 3, loader, this::readVersion);
+
+        assertThat(loads).hasValue(1);
+        // Chargement, puis une seule revalidation : la seconde lecture tombe dans revalidate-ms
+        assertThat(versionReads).hasValue(2);
+    }
+
+    private FeedVersion readVersion(Long userId) {
+        versionReads.incrementAndGet();
+        return version.get();
+    }
+
+    private void load(NotificationDTO... rows) {
+        cache.firstPage(7L, 3, id -> List.of(rows), this::readVersion);
+    }
+
+    private static NotificationDTO row(long id, LocalDateTime sentAt) {
+        return NotificationDTO.builder()
+                .id(id)
+                .userId(7L)
+                .status(Status.UNREAD)
+                .sentAt(sentAt)
+                .build();
+    }
+}
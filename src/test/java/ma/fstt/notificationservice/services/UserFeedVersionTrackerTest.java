@@ -0,0 +1,55 @@
+package ma.fstt.notificationservice.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserFeedVersionTrackerTest {
+
+    private final List<Runnable> submitted = new ArrayList<>();
+    private final UserFeedVersionTracker tracker = new UserFeedVersionTracker(submitted::add, 30, 1000, 10);
+
+    @Test
+    void bumpHandsListenersToExecutorInsteadOfRunningThem() {
+        AtomicInteger woken = new AtomicInteger();
+        tracker.onNextChange(7L, woken::incrementAndGet);
+        tracker.onNextChange(7L, woken::incrementAndGet);
+
+        tracker.bump(7L);
+
+        assertThat(woken).hasValue(0);
+        assertThat(submitted).hasSize(2);
+        submitted.forEach(Runnable::run);
+        assertThat(woken).hasValue(2);
+        assertThat(tracker.waitingUsers()).isZero();
+    }
+
+    @Test
+    void cancelledListenersAreReleased() {
+        AtomicInteger woken = new AtomicInteger();
+        Runnable first = tracker.onNextChange(7L, woken::incrementAndGet);
+        Runnable second = tracker.onNextChange(7L, woken::incrementAndGet);
+
+        first.run();
+        assertThat(tracker.waitingUsers()).isEqualTo(1);
+        second.run();
+        second.run();
+        assertThat(tracker.waitingUsers()).isZero();
+
+        tracker.bump(7L);
+        assertThat(submitted).isEmpty();
+    }
+
+    @Test
+    void versionChangesOnBump() {
+        String before = tracker.currentVersion(7L);
+
+        tracker.bump(7L);
+
+        assertThat(tracker.currentVersion(7L)).isNotEqualTo(before);
+    }
+}
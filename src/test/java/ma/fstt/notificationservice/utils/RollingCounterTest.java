@@ -0,0 +1,129 @@
+package ma.fstt.notificationservice.utils;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RollingCounterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void windowIsRoundedUpToWholeBuckets() {
+        RollingCounter counter = new RollingCounter(now::get, new RollingCounter.Level(Duration.ofSeconds(1), 60));
+        now.set(9_100);
+        counter.increment();
+        now.set(10_200);
+        counter.add(2);
+        now.set(10_500);
+
+        assertThat(counter.sum(Duration.ofMillis(1))).isEqualTo(2);
+        assertThat(counter.sum(Duration.ofSeconds(1))).isEqualTo(2);
+        assertThat(counter.sum(Duration.ofMillis(1_500))).isEqualTo(3);
+        assertThat(counter.ratePerSecond(Duration.ofSeconds(2))).isEqualTo(1.5);
+    }
+
+    @Test
+    void finestLevelCoveringTheWindowIsUsed() {
+        RollingCounter counter = new RollingCounter(now::get,
+                new RollingCounter.Level(Duration.ofSeconds(1), 60),
+                new RollingCounter.Level(Duration.ofSeconds(10), 90),
+                new RollingCounter.Level(Duration.ofMinutes(1), 60));
+        counter.increment();
+        now.addAndGet(Duration.ofSeconds(70).toMillis());
+        counter.increment();
+
+        assertThat(counter.sum(Duration.ofSeconds(60))).isEqualTo(1);
+        assertThat(counter.sum(Duration.ofSeconds(120))).isEqualTo(2);
+
+        now.addAndGet(Duration.ofMinutes(30).toMillis());
+        assertThat(counter.sum(Duration.ofMinutes(15))).isZero();
+        assertThat(counter.sum(Duration.ofMinutes(45))).isEqualTo(2);
+        // Au-delà du niveau le plus large, la fenêtre est plafonnée à 1 h
+        now.addAndGet(Duration.ofMinutes(40).toMillis());
+        assertThat(counter.sum(Duration.ofHours(3))).isZero();
+    }
+
+    @Test
+    void staleBucketIsRecycledOnceUnderContention() throws Exception {
+        RollingCounter.Level level = new RollingCounter.Level(Duration.ofSeconds(1), 4);
+        level.add(1_000, 5);
+
+        // Même index quatre périodes plus tard : tous les threads se disputent le recyclage
+        int threads = 8;
+        int increments = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < increments; i++) {
+                        level.add(5_000, 1);
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(level.sum(5_000, 1_000)).isEqualTo((long) threads * increments);
+        assertThat(level.sum(5_000, 4_000)).isEqualTo((long) threads * increments);
+    }
+
+    @Test
+    void writerSpinsWhileBucketIsResetting() throws Exception {
+        RollingCounter.Level level = new RollingCounter.Level(Duration.ofSeconds(1), 4);
+        AtomicLongArray periods = (AtomicLongArray) ReflectionTestUtils.getField(level, "periods");
+        AtomicLongArray counts = (AtomicLongArray) ReflectionTestUtils.getField(level, "counts");
+        periods.set(1, -1);
+
+        Thread writer = new Thread(() -> level.add(1_000, 1));
+        writer.start();
+        writer.join(200);
+        assertThat(writer.isAlive()).isTrue();
+
+        // Fin de la remise à zéro par le thread qui avait gagné le CAS
+        counts.set(1, 3);
+        periods.set(1, 1);
+        writer.join(5_000);
+
+        assertThat(writer.isAlive()).isFalse();
+        assertThat(level.sum(1_000, 1_000)).isEqualTo(4);
+    }
+
+    @Test
+    void lateWriteToRecycledBucketIsDropped() {
+        RollingCounter.Level level = new RollingCounter.Level(Duration.ofSeconds(1), 4);
+        level.add(5_000, 2);
+
+        level.add(1_000, 7);
+
+        assertThat(level.sum(5_000, 4_000)).isEqualTo(2);
+    }
+
+    @Test
+    void nonPositiveWindowIsRejected() {
+        RollingCounter counter = new RollingCounter(now::get, new RollingCounter.Level(Duration.ofSeconds(1), 60));
+
+        assertThatThrownBy(() -> counter.sum(Duration.ZERO)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> counter.sum(Duration.ofSeconds(-5))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,35 @@
+package ma.fstt.notificationservice.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ma.fstt.notificationservice.enums.SlowConsumerPolicy;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlowConsumerSubProtocolWebSocketHandlerTest {
+
+    @Test
+    void decoratesSessionOnceWithTransportLimits() {
+        SlowConsumerRegistry registry = new SlowConsumerRegistry(
+                new SimpleMeterRegistry(), SlowConsumerPolicy.DROP_OLDEST, 4096, 2000, 0.5);
+        SlowConsumerSubProtocolWebSocketHandler handler = new SlowConsumerSubProtocolWebSocketHandler(
+                mock(SubscribableChannel.class), mock(SubscribableChannel.class), registry);
+        handler.setSendTimeLimit(2000);
+        handler.setSendBufferSizeLimit(4096);
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+
+        WebSocketSession decorated = handler.decorateSession(session);
+
+        assertThat(decorated).isInstanceOf(ConcurrentWebSocketSessionDecorator.class);
+        ConcurrentWebSocketSessionDecorator concurrent = (ConcurrentWebSocketSessionDecorator) decorated;
+        assertThat(concurrent.getDelegate()).isSameAs(session);
+        assertThat(concurrent.getSendTimeLimit()).isEqualTo(2000);
+        assertThat(concurrent.getBufferSizeLimit()).isEqualTo(4096);
+    }
+}
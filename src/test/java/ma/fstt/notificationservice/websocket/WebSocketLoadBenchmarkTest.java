@@ -0,0 +1,153 @@
+package ma.fstt.notificationservice.websocket;
+
+import ma.fstt.notificationservice.dto.NotificationDTO;
+import ma.fstt.notificationservice.enums.Status;
+import ma.fstt.notificationservice.services.PushNotificationService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Charge WebSocket : N clients STOMP simulés se connectent (limiteur de handshakes actif), s'abonnent
+ * à leur topic, puis reçoivent chacun une notification poussée par PushNotificationService.
+ * Mesures : handshakes acceptés / rejetés (503), durée des connexions, latence push p50 / p99.
+ *
+ * Exécution : mvn test -Pbenchmark -Dtest=WebSocketLoadBenchmarkTest
+ *   -Dbench.clients=2000 -Dbench.connect-rate=150 (clients/s, 0 = tous d'un coup)
+ * Les réglages websocket.* se passent en propriétés système, ex. -Dwebsocket.handshake.rate-per-second=500.
+ * Client et serveur partagent la machine : comparer des réglages entre eux, pas des valeurs absolues.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.cloud.config.enabled=false",
+        "spring.kafka.bootstrap-servers=localhost:9092",
+        "spring.kafka.consumer.group-id=bench",
+        "spring.kafka.topics.notification=notifications-bench",
+        "spring.kafka.topics.notification-priority=notifications-bench-priority",
+        "spring.kafka.listener.auto-startup=false",
+        "websocket.sockjs.enabled=false"
+})
+class WebSocketLoadBenchmarkTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PushNotificationService pushNotificationService;
+
+    @Test
+    void connectAndFanOut() throws Exception {
+        int clients = Integer.getInteger("bench.clients", 2000);
+        int connectRate = Integer.getInteger("bench.connect-rate", 150);
+
+        ThreadPoolTaskScheduler heartbeatScheduler = new ThreadPoolTaskScheduler();
+        heartbeatScheduler.setPoolSize(2);
+        heartbeatScheduler.initialize();
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        stompClient.setTaskScheduler(heartbeatScheduler);
+        stompClient.setDefaultHeartbeat(new long[]{0, 0});
+
+        Map<Long, Long> pushedAt = new ConcurrentHashMap<>();
+        long[] latencies = new long[clients];
+        AtomicInteger received = new AtomicInteger();
+        CountDownLatch allReceived = new CountDownLatch(clients);
+        List<CompletableFuture<StompSession>> connections = new ArrayList<>(clients);
+        String url = "ws://localhost:" + port + "/ws-notifications";
+
+        long connectStarted = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            connections.add(stompClient.connectAsync(url, new StompSessionHandlerAdapter() {
+            }));
+            if (connectRate > 0) {
+                Thread.sleep(1000L / connectRate);
+            }
+        }
+        List<StompSession> sessions = new ArrayList<>();
+        List<Long> subscribedUsers = new ArrayList<>();
+        int rejected = 0;
+        for (int i = 0; i < clients; i++) {
+            try {
+                StompSession session = connections.get(i).get(30, TimeUnit.SECONDS);
+                long userId = i + 1L;
+                session.subscribe("/topic/notifications/" + userId, new StompFrameHandler() {
+                    @Override
+                    public Type getPayloadType(StompHeaders headers) {
+                        return NotificationDTO.class;
+                    }
+
+                    @Override
+                    public void handleFrame(StompHeaders headers, Object payload) {
+                        latencies[received.getAndIncrement()] = System.nanoTime() - pushedAt.get(userId);
+                        allReceived.countDown();
+                    }
+                });
+                sessions.add(session);
+                subscribedUsers.add(userId);
+            } catch (Exception e) {
+                rejected++;
+                allReceived.countDown();
+            }
+        }
+        double connectSeconds = (System.nanoTime() - connectStarted) / 1e9;
+        // Abonnements traités par le canal entrant avant les envois
+        Thread.sleep(1000);
+
+        long pushStarted = System.nanoTime();
+        for (long userId : subscribedUsers) {
+            pushedAt.put(userId, System.nanoTime());
+            pushNotificationService.sendPushNotification(NotificationDTO.builder()
+                    .id(userId)
+                    .userId(userId)
+                    .title("Bench")
+                    .message("Bench")
+                    .status(Status.UNREAD)
+                    .build());
+        }
+        allReceived.await(60, TimeUnit.SECONDS);
+        double pushSeconds = (System.nanoTime() - pushStarted) / 1e9;
+
+        long[] measured = Arrays.copyOf(latencies, received.get());
+        Arrays.sort(measured);
+        System.out.printf("WebSocket load: clients=%d, connected=%d, rejected=%d, connectSeconds=%.2f, "
+                        + "pushed=%d, received=%d, pushSeconds=%.2f, latencyP50Ms=%.1f, latencyP99Ms=%.1f%n",
+                clients, sessions.size(), rejected, connectSeconds, sessions.size(), measured.length, pushSeconds,
+                percentile(measured, 0.50), percentile(measured, 0.99));
+
+        sessions.forEach(StompSession::disconnect);
+        stompClient.stop();
+        heartbeatScheduler.shutdown();
+        assertThat(measured.length).isEqualTo(sessions.size());
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+}